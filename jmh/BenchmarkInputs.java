@@ -0,0 +1,89 @@
+import java.util.Random;
+
+/**
+ * Generates reproducible benchmark inputs resembling real traffic and routing data.
+ * Addresses are skewed towards a small set of busy /16 networks, like client addresses in access logs,
+ * and prefix lengths follow the shape of a global routing table, where most prefixes are /24.
+ */
+final class BenchmarkInputs {
+    /**
+     * Number of busy /16 networks receiving most of the addresses.
+     */
+    private static final int HOT_NETWORKS = 64;
+
+    /**
+     * Not instantiable.
+     */
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * Generates addresses of which 80% fall into a few busy /16 networks and the rest is spread uniformly.
+     *
+     * @param count The number of addresses.
+     * @param seed  The random seed.
+     * @return The numerical representations of the addresses.
+     */
+    static int[] addresses(int count, long seed) {
+        Random random = new Random(seed);
+        int[] hot = new int[HOT_NETWORKS];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = random.nextInt() & 0xFFFF0000;
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = random.nextInt(5) == 0 ? random.nextInt() : hot[(int) (Math.abs(random.nextGaussian()) * HOT_NETWORKS / 3) % HOT_NETWORKS] | random.nextInt(1 << 16);
+        }
+        return result;
+    }
+
+    /**
+     * Formats addresses in dot-decimal notation.
+     *
+     * @param addresses The numerical representations of the addresses.
+     * @return The string representations.
+     */
+    static String[] strings(int[] addresses) {
+        String[] result = new String[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            result[i] = IpAddress.toString(addresses[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Generates a prefix length distributed like a global routing table: about 60% /24, 20% /22 to /23,
+     * 15% /16 to /21 and 5% /8 to /15.
+     *
+     * @param random The random generator.
+     * @return The prefix length.
+     */
+    static int prefixLength(Random random) {
+        int p = random.nextInt(100);
+        if (p < 60) {
+            return 24;
+        } else if (p < 80) {
+            return 22 + random.nextInt(2);
+        } else if (p < 95) {
+            return 16 + random.nextInt(6);
+        }
+        return 8 + random.nextInt(8);
+    }
+
+    /**
+     * Generates subnets with routing table like prefix lengths.
+     *
+     * @param count The number of subnets.
+     * @param seed  The random seed.
+     * @return The subnets.
+     */
+    static Subnet[] subnets(int count, long seed) {
+        Random random = new Random(seed);
+        int[] networks = addresses(count, seed);
+        Subnet[] result = new Subnet[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new Subnet(networks[i], prefixLength(random));
+        }
+        return result;
+    }
+}
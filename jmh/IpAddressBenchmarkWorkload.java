@@ -0,0 +1,53 @@
+import bench.IpAddressWorkload;
+
+/**
+ * The IpAddress operations measured by the benchmarks, on addresses skewed towards a few busy networks.
+ */
+public class IpAddressBenchmarkWorkload implements IpAddressWorkload {
+    /**
+     * The string representations of the input addresses.
+     */
+    private final String[] strings;
+    /**
+     * The input addresses.
+     */
+    private final IpAddress[] ips;
+
+    /**
+     * Generates the inputs.
+     *
+     * @param inputs The number of inputs.
+     */
+    public IpAddressBenchmarkWorkload(int inputs) {
+        strings = BenchmarkInputs.strings(BenchmarkInputs.addresses(inputs, 1));
+        ips = new IpAddress[inputs];
+        for (int i = 0; i < inputs; i++) {
+            ips[i] = new IpAddress(strings[i]);
+        }
+    }
+
+    @Override
+    public Object constructFromString(int i) {
+        return new IpAddress(strings[i]);
+    }
+
+    @Override
+    public Object valueOfString(int i) {
+        return IpAddress.valueOf(strings[i]);
+    }
+
+    @Override
+    public long parse(int i) {
+        return IpAddress.parse(strings[i]);
+    }
+
+    @Override
+    public String format(int i) {
+        return ips[i].toString();
+    }
+
+    @Override
+    public int[] getAsArray(int i) {
+        return ips[i].getAsArray();
+    }
+}
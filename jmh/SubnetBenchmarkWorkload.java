@@ -0,0 +1,107 @@
+import bench.SubnetWorkload;
+
+import java.util.Arrays;
+
+/**
+ * The Subnet operations measured by the benchmarks, on subnets with routing table like prefix lengths.
+ */
+public class SubnetBenchmarkWorkload implements SubnetWorkload {
+    /**
+     * The input subnets.
+     */
+    private final Subnet[] subnets;
+    /**
+     * The input subnets in CIDR notation.
+     */
+    private final String[] cidrStrings;
+    /**
+     * The network addresses of the input subnets in dot-decimal notation.
+     */
+    private final String[] addressStrings;
+    /**
+     * The subnet masks of the input subnets in dot-decimal notation.
+     */
+    private final String[] maskStrings;
+    /**
+     * The input addresses for membership tests, every second one is in the subnet with the same index.
+     */
+    private final IpAddress[] ips;
+    /**
+     * The subnets in random order, the input copied and sorted by {@link #sortByCompareTo()}.
+     */
+    private final Subnet[] unsorted;
+
+    /**
+     * Generates the inputs.
+     *
+     * @param inputs The number of inputs.
+     */
+    public SubnetBenchmarkWorkload(int inputs) {
+        subnets = BenchmarkInputs.subnets(inputs, 2);
+        cidrStrings = new String[inputs];
+        addressStrings = new String[inputs];
+        maskStrings = new String[inputs];
+        ips = new IpAddress[inputs];
+        int[] addresses = BenchmarkInputs.addresses(inputs, 3);
+        for (int i = 0; i < inputs; i++) {
+            Subnet s = subnets[i];
+            addressStrings[i] = s.getNetAddress().toString();
+            maskStrings[i] = s.getNetMask().toString();
+            cidrStrings[i] = addressStrings[i] + "/" + s.getPrefixLength();
+            ips[i] = IpAddress.valueOf(i % 2 == 0 ? addresses[i] : s.getNetAddressAsInt() | (addresses[i] & ~s.getNetMaskAsInt()));
+        }
+        unsorted = BenchmarkInputs.subnets(inputs, 4);
+    }
+
+    @Override
+    public Object constructFromCidrString(int i) {
+        return new Subnet(cidrStrings[i]);
+    }
+
+    @Override
+    public Object constructFromStrings(int i) {
+        return new Subnet(addressStrings[i], maskStrings[i]);
+    }
+
+    @Override
+    public Object constructFromIpAndSuffix(int i) {
+        return new Subnet(ips[i], subnets[i].getPrefixLength());
+    }
+
+    @Override
+    public Object constructFromIpAndMask(int i) {
+        return new Subnet(ips[i], subnets[i].getNetMask());
+    }
+
+    @Override
+    public Object constructClassful(int i) {
+        return new Subnet(IpAddress.valueOf(0x0A000000 | i));
+    }
+
+    @Override
+    public Object constructFromInts(int i) {
+        return new Subnet(ips[i].getAsInt(), subnets[i].getPrefixLength());
+    }
+
+    @Override
+    public boolean isInNetwork(int i) {
+        return subnets[i].isInNetwork(ips[i]);
+    }
+
+    @Override
+    public Object[] getAllIpsInNetwork(int prefixLength) {
+        return new Subnet(0x0A000000, prefixLength).getAllIpsInNetwork();
+    }
+
+    @Override
+    public Object[] splitNet(int i) {
+        return subnets[i].splitNet(4);
+    }
+
+    @Override
+    public Object[] sortByCompareTo() {
+        Subnet[] copy = unsorted.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing and formatting of IpAddress.
+ * Every invocation handles the next address of a pre-generated input array, so branch prediction and caches see realistic variety.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IpAddressBenchmark {
+    /**
+     * Number of pre-generated inputs, a power of two.
+     */
+    private static final int INPUTS = 1 << 16;
+    /**
+     * The measured operations.
+     */
+    private IpAddressWorkload workload;
+    /**
+     * Index of the next input.
+     */
+    private int next;
+
+    /**
+     * Generates the inputs.
+     */
+    @Setup
+    public void setup() {
+        workload = Workloads.load(IpAddressWorkload.class, "IpAddressBenchmarkWorkload", INPUTS);
+    }
+
+    /**
+     * Gets the index of the next input.
+     *
+     * @return The index.
+     */
+    private int next() {
+        return next++ & (INPUTS - 1);
+    }
+
+    /**
+     * Measures the constructFromString operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromString() {
+        return workload.constructFromString(next());
+    }
+
+    /**
+     * Measures the valueOfString operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object valueOfString() {
+        return workload.valueOfString(next());
+    }
+
+    /**
+     * Measures the parse operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public long parse() {
+        return workload.parse(next());
+    }
+
+    /**
+     * Measures the format operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public String format() {
+        return workload.format(next());
+    }
+
+    /**
+     * Measures the getAsArray operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public int[] getAsArray() {
+        return workload.getAsArray(next());
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+/**
+ * The IpAddress operations measured by {@link IpAddressBenchmark}, each working on the input with the given index.
+ */
+public interface IpAddressWorkload {
+    /**
+     * Parses through the String constructor, the path of the former set(String).
+     *
+     * @param i The input index.
+     * @return The parsed address.
+     */
+    Object constructFromString(int i);
+
+    /**
+     * Parses through the cached valueOf factory.
+     *
+     * @param i The input index.
+     * @return The parsed address.
+     */
+    Object valueOfString(int i);
+
+    /**
+     * Parses without creating an IpAddress.
+     *
+     * @param i The input index.
+     * @return The parsed address.
+     */
+    long parse(int i);
+
+    /**
+     * Formats an address in dot-decimal notation.
+     *
+     * @param i The input index.
+     * @return The string representation.
+     */
+    String format(int i);
+
+    /**
+     * Splits an address into its octets.
+     *
+     * @param i The input index.
+     * @return The octets.
+     */
+    int[] getAsArray(int i);
+}
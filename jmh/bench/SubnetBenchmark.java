@@ -0,0 +1,174 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for construction, membership tests, enumeration, splitting and sorting of Subnet.
+ * Inputs have routing table like prefix lengths and are cycled through per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SubnetBenchmark {
+    /**
+     * Number of pre-generated inputs, a power of two. Also the number of subnets sorted per invocation.
+     */
+    private static final int INPUTS = 1 << 16;
+    /**
+     * The measured operations.
+     */
+    private SubnetWorkload workload;
+    /**
+     * Index of the next input.
+     */
+    private int next;
+
+    /**
+     * Generates the inputs.
+     */
+    @Setup
+    public void setup() {
+        workload = Workloads.load(SubnetWorkload.class, "SubnetBenchmarkWorkload", INPUTS);
+    }
+
+    /**
+     * Gets the index of the next input.
+     *
+     * @return The index.
+     */
+    private int next() {
+        return next++ & (INPUTS - 1);
+    }
+
+    /**
+     * Measures the constructFromCidrString operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromCidrString() {
+        return workload.constructFromCidrString(next());
+    }
+
+    /**
+     * Measures the constructFromStrings operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromStrings() {
+        return workload.constructFromStrings(next());
+    }
+
+    /**
+     * Measures the constructFromIpAndSuffix operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromIpAndSuffix() {
+        return workload.constructFromIpAndSuffix(next());
+    }
+
+    /**
+     * Measures the constructFromIpAndMask operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromIpAndMask() {
+        return workload.constructFromIpAndMask(next());
+    }
+
+    /**
+     * Measures the constructClassful operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructClassful() {
+        return workload.constructClassful(next());
+    }
+
+    /**
+     * Measures the constructFromInts operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object constructFromInts() {
+        return workload.constructFromInts(next());
+    }
+
+    /**
+     * Measures the isInNetwork operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public boolean isInNetwork() {
+        return workload.isInNetwork(next());
+    }
+
+    /**
+     * Measures the getAllIpsInNetwork operation of the workload.
+     *
+     * @param enumeration The size of the enumerated subnet.
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object[] getAllIpsInNetwork(Enumeration enumeration) {
+        return workload.getAllIpsInNetwork(enumeration.prefixLength);
+    }
+
+    /**
+     * Measures the splitNet operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    public Object[] splitNet() {
+        return workload.splitNet(next());
+    }
+
+    /**
+     * Measures the sortByCompareTo operation of the workload.
+     *
+     * @return The result, consumed by JMH.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Object[] sortByCompareTo() {
+        return workload.sortByCompareTo();
+    }
+
+    /**
+     * Parameters of {@link #getAllIpsInNetwork(Enumeration)}.
+     */
+    @State(Scope.Benchmark)
+    public static class Enumeration {
+        /**
+         * Prefix length of the enumerated subnet.
+         */
+        @Param({"24", "16"})
+        public int prefixLength;
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+/**
+ * The Subnet operations measured by {@link SubnetBenchmark}, each working on the input with the given index.
+ */
+public interface SubnetWorkload {
+    /**
+     * Constructs from CIDR notation.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructFromCidrString(int i);
+
+    /**
+     * Constructs from an address and mask in dot-decimal notation.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructFromStrings(int i);
+
+    /**
+     * Constructs from an address and a prefix length.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructFromIpAndSuffix(int i);
+
+    /**
+     * Constructs from an address and a subnet mask.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructFromIpAndMask(int i);
+
+    /**
+     * Constructs from an address with the classful prefix.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructClassful(int i);
+
+    /**
+     * Constructs from a primitive address and prefix length.
+     *
+     * @param i The input index.
+     * @return The subnet.
+     */
+    Object constructFromInts(int i);
+
+    /**
+     * Tests membership of an address, half of the inputs are members.
+     *
+     * @param i The input index.
+     * @return Whether the address is in the subnet.
+     */
+    boolean isInNetwork(int i);
+
+    /**
+     * Materialises all addresses of a subnet.
+     *
+     * @param prefixLength The prefix length of the enumerated subnet.
+     * @return The addresses.
+     */
+    Object[] getAllIpsInNetwork(int prefixLength);
+
+    /**
+     * Splits a subnet into 4 parts.
+     *
+     * @param i The input index.
+     * @return The parts.
+     */
+    Object[] splitNet(int i);
+
+    /**
+     * Sorts a copy of a list of subnets by their natural order.
+     *
+     * @return The sorted subnets.
+     */
+    Object[] sortByCompareTo();
+}
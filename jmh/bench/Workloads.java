@@ -0,0 +1,31 @@
+package bench;
+
+/**
+ * Loads the workload implementations. JMH refuses benchmark classes in the default package and classes of a named
+ * package cannot reference the default package the library lives in, so the benchmarks call the library through
+ * interfaces implemented by default package classes. The calls are monomorphic and get inlined by the JIT.
+ */
+final class Workloads {
+    /**
+     * Not instantiable.
+     */
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload implementation by its class name.
+     *
+     * @param type      The workload interface.
+     * @param className The name of the implementing class in the default package.
+     * @param inputs    The number of inputs to generate.
+     * @param <T>       The workload type.
+     * @return The workload.
+     */
+    static <T> T load(Class<T> type, String className, int inputs) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor(int.class).newInstance(inputs));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,725 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of IPv4 addresses in the style of a Roaring bitmap. Addresses are grouped into blocks
+ * by their upper 16 bits, i.e. by /16 subnet. A block with at most 4096 addresses is stored as a sorted
+ * array of the lower 16 bits (2 bytes per address), a denser block as a 65536 bit bitmap (8 KB), so sparse
+ * and dense regions both stay small.
+ * <p>
+ * Set operations work block by block and return new sets. Not thread-safe.
+ */
+public class AddressBitmap {
+    /**
+     * The maximum number of addresses of an array block, denser blocks are bitmaps.
+     */
+    private static final int ARRAY_MAX = 4096;
+    /**
+     * The number of longs of a bitmap block.
+     */
+    private static final int BITMAP_WORDS = 1024;
+    /**
+     * The upper 16 bits of the addresses of each block, in ascending order.
+     */
+    private char[] keys;
+    /**
+     * The blocks, either a char[] of the sorted lower 16 bits with no spare room or a long[] bitmap.
+     */
+    private Object[] blocks;
+    /**
+     * The number of addresses of each block.
+     */
+    private int[] cards;
+    /**
+     * The number of blocks.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty set.
+     */
+    public AddressBitmap() {
+        this(4);
+    }
+
+    /**
+     * Constructs an empty set with room for a number of blocks.
+     *
+     * @param capacity The number of blocks.
+     */
+    private AddressBitmap(int capacity) {
+        keys = new char[capacity];
+        blocks = new Object[capacity];
+        cards = new int[capacity];
+    }
+
+    /**
+     * Creates a set of addresses.
+     *
+     * @param ips The numerical representations of the IP addresses, duplicates are allowed.
+     * @return The set.
+     */
+    public static AddressBitmap of(int... ips) {
+        AddressBitmap set = new AddressBitmap();
+        set.addAll(ips, 0, ips.length);
+        return set;
+    }
+
+    /**
+     * Adds an address to the set.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address was not contained before.
+     */
+    public boolean add(int ip) {
+        char key = (char) (ip >>> 16);
+        char low = (char) ip;
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            insertBlock(~i, key, new char[]{low}, 1);
+            return true;
+        }
+        if (blocks[i] instanceof long[] bitmap) {
+            if ((bitmap[low >>> 6] & (1L << low)) != 0) {
+                return false;
+            }
+            bitmap[low >>> 6] |= 1L << low;
+            cards[i]++;
+            return true;
+        }
+        char[] array = (char[]) blocks[i];
+        int pos = Arrays.binarySearch(array, low);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = ~pos;
+        if (array.length == ARRAY_MAX) {
+            long[] bitmap = toBitmap(array);
+            bitmap[low >>> 6] |= 1L << low;
+            blocks[i] = bitmap;
+        } else {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, pos);
+            grown[pos] = low;
+            System.arraycopy(array, pos, grown, pos + 1, array.length - pos);
+            blocks[i] = grown;
+        }
+        cards[i]++;
+        return true;
+    }
+
+    /**
+     * Adds the addresses of a part of an array to the set. The addresses are sorted once and merged into the
+     * blocks, which is much faster than adding them one by one. The array is not modified.
+     *
+     * @param ips    The numerical representations of the IP addresses, duplicates are allowed.
+     * @param offset Index of the first address.
+     * @param length Number of addresses.
+     */
+    public void addAll(int[] ips, int offset, int length) {
+        int[] sorted = new int[length];
+        for (int i = 0; i < length; i++) {
+            sorted[i] = ips[offset + i] ^ Integer.MIN_VALUE;
+        }
+        Arrays.sort(sorted);
+        int start = 0;
+        while (start < length) {
+            int key = (sorted[start] ^ Integer.MIN_VALUE) >>> 16;
+            int end = start + 1;
+            while (end < length && ((sorted[end] ^ Integer.MIN_VALUE) >>> 16) == key) {
+                end++;
+            }
+            char[] run = new char[end - start];
+            int n = 0;
+            for (int k = start; k < end; k++) {
+                char low = (char) sorted[k];
+                if (n == 0 || run[n - 1] != low) {
+                    run[n++] = low;
+                }
+            }
+            if (n < run.length) {
+                run = Arrays.copyOf(run, n);
+            }
+            int i = Arrays.binarySearch(keys, 0, size, (char) key);
+            if (i < 0) {
+                i = ~i;
+                insertBlock(i, (char) key, new char[0], 0);
+            }
+            setBlock(i, union(blocks[i], run));
+            start = end;
+        }
+    }
+
+    /**
+     * Checks if an address is in the set.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is in the set.
+     */
+    public boolean contains(int ip) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (ip >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) ip;
+        if (blocks[i] instanceof long[] bitmap) {
+            return (bitmap[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) blocks[i], low) >= 0;
+    }
+
+    /**
+     * Checks if an address is in the set.
+     *
+     * @param ip The IP address.
+     * @return True if the address is in the set.
+     */
+    public boolean contains(IpAddress ip) {
+        return contains(ip.getAsInt());
+    }
+
+    /**
+     * Gets the number of addresses in the set.
+     *
+     * @return The number of addresses.
+     */
+    public long getCardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cards[i];
+        }
+        return total;
+    }
+
+    /**
+     * Counts the addresses of the set in a subnet, without visiting single addresses of dense blocks.
+     *
+     * @param subnet The subnet.
+     * @return The number of addresses of the set in the subnet.
+     */
+    public long getCardinality(Subnet subnet) {
+        long first = subnet.getNetAddressAsInt() & 0xFFFFFFFFL;
+        long last = subnet.getBroadcastAddressAsInt() & 0xFFFFFFFFL;
+        int firstKey = (int) (first >>> 16);
+        int lastKey = (int) (last >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, (char) firstKey);
+        if (i < 0) {
+            i = ~i;
+        }
+        long total = 0;
+        for (; i < size && keys[i] <= lastKey; i++) {
+            if (keys[i] > firstKey && keys[i] < lastKey) {
+                total += cards[i];
+            } else {
+                int from = keys[i] == firstKey ? (int) first & 0xFFFF : 0;
+                int to = keys[i] == lastKey ? (int) last & 0xFFFF : 0xFFFF;
+                total += countRange(blocks[i], cards[i], from, to);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return True if the set contains no address.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes every address of the set to an action, in ascending unsigned order.
+     *
+     * @param action The action receiving the numerical representation of each address.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            if (blocks[i] instanceof long[] bitmap) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    for (long word = bitmap[w]; word != 0; word &= word - 1) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                for (char low : (char[]) blocks[i]) {
+                    action.accept(high | low);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the addresses of the set into an array.
+     *
+     * @return The numerical representations of the addresses, in ascending unsigned order.
+     */
+    public int[] toArray() {
+        int[] result = new int[Math.toIntExact(getCardinality())];
+        int[] n = {0};
+        forEach(ip -> result[n[0]++] = ip);
+        return result;
+    }
+
+    /**
+     * Calculates the union of this set and another one.
+     *
+     * @param other The other set.
+     * @return A new set of the addresses in either set.
+     */
+    public AddressBitmap union(AddressBitmap other) {
+        AddressBitmap result = new AddressBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], copy(blocks[i]), cards[i]);
+                i++;
+            } else if (i == size || other.keys[j] < keys[i]) {
+                result.append(other.keys[j], copy(other.blocks[j]), other.cards[j]);
+                j++;
+            } else {
+                result.append(keys[i], union(blocks[i], other.blocks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the intersection of this set and another one.
+     *
+     * @param other The other set.
+     * @return A new set of the addresses in both sets.
+     */
+    public AddressBitmap intersection(AddressBitmap other) {
+        AddressBitmap result = new AddressBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (other.keys[j] < keys[i]) {
+                j++;
+            } else {
+                result.append(keys[i], intersection(blocks[i], other.blocks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the difference of this set and another one.
+     *
+     * @param other The other set.
+     * @return A new set of the addresses in this set but not in the other one.
+     */
+    public AddressBitmap andNot(AddressBitmap other) {
+        AddressBitmap result = new AddressBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.append(keys[i], andNot(blocks[i], other.blocks[j]));
+            } else {
+                result.append(keys[i], copy(blocks[i]), cards[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of bytes written by {@link #serialize(ByteBuffer)}.
+     *
+     * @return The serialized size in bytes.
+     */
+    public int serializedSize() {
+        int bytes = 4;
+        for (int i = 0; i < size; i++) {
+            bytes += 6 + (blocks[i] instanceof long[] ? 8 * BITMAP_WORDS : 2 * cards[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the set into a buffer: the number of blocks, then for each block its key as a char,
+     * its number of addresses as an int, and its addresses as chars or its bitmap as longs.
+     *
+     * @param dst The buffer, needs {@link #serializedSize()} bytes remaining.
+     */
+    public void serialize(ByteBuffer dst) {
+        dst.putInt(size);
+        for (int i = 0; i < size; i++) {
+            dst.putChar(keys[i]).putInt(cards[i]);
+            if (blocks[i] instanceof long[] bitmap) {
+                dst.asLongBuffer().put(bitmap);
+                dst.position(dst.position() + 8 * BITMAP_WORDS);
+            } else {
+                char[] array = (char[]) blocks[i];
+                dst.asCharBuffer().put(array);
+                dst.position(dst.position() + 2 * array.length);
+            }
+        }
+    }
+
+    /**
+     * Reads a set written by {@link #serialize(ByteBuffer)} from a buffer.
+     *
+     * @param src The buffer, its position is moved after the set.
+     * @return The set.
+     * @throws IllegalArgumentException If the buffer does not contain a valid set.
+     */
+    public static AddressBitmap deserialize(ByteBuffer src) {
+        int count = src.getInt();
+        if (count < 0 || count > 1 << 16) {
+            throw new IllegalArgumentException("Invalid address bitmap block count: " + count);
+        }
+        AddressBitmap set = new AddressBitmap(count);
+        for (int i = 0; i < count; i++) {
+            char key = src.getChar();
+            int card = src.getInt();
+            if (card <= 0 || card > 1 << 16 || (i > 0 && key <= set.keys[i - 1])) {
+                throw new IllegalArgumentException("Invalid address bitmap block " + i);
+            }
+            Object block;
+            if (card > ARRAY_MAX) {
+                long[] bitmap = new long[BITMAP_WORDS];
+                src.asLongBuffer().get(bitmap);
+                src.position(src.position() + 8 * BITMAP_WORDS);
+                if (cardinality(bitmap) != card) {
+                    throw new IllegalArgumentException("Invalid address bitmap block " + i);
+                }
+                block = bitmap;
+            } else {
+                char[] array = new char[card];
+                src.asCharBuffer().get(array);
+                src.position(src.position() + 2 * card);
+                for (int k = 1; k < card; k++) {
+                    if (array[k] <= array[k - 1]) {
+                        throw new IllegalArgumentException("Invalid address bitmap block " + i);
+                    }
+                }
+                block = array;
+            }
+            set.append(key, block, card);
+        }
+        return set;
+    }
+
+    /**
+     * Checks if two sets contain the same addresses.
+     *
+     * @param o The other set.
+     * @return True if both sets contain the same addresses.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AddressBitmap set) || size != set.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != set.keys[i] || cards[i] != set.cards[i]) {
+                return false;
+            }
+            if (blocks[i] instanceof long[] bitmap ? !Arrays.equals(bitmap, (long[]) set.blocks[i])
+                    : !Arrays.equals((char[]) blocks[i], (char[]) set.blocks[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the hash code of the set, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + keys[i];
+            h = 31 * h + (blocks[i] instanceof long[] bitmap ? Arrays.hashCode(bitmap) : Arrays.hashCode((char[]) blocks[i]));
+        }
+        return h;
+    }
+
+    /**
+     * Inserts a block at an index.
+     *
+     * @param index The index.
+     * @param key   The upper 16 bits of the addresses of the block.
+     * @param block The block.
+     * @param card  The number of addresses of the block.
+     */
+    private void insertBlock(int index, char key, Object block, int card) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, 2 * size);
+            keys = Arrays.copyOf(keys, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+            cards = Arrays.copyOf(cards, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(blocks, index, blocks, index + 1, size - index);
+        System.arraycopy(cards, index, cards, index + 1, size - index);
+        keys[index] = key;
+        blocks[index] = block;
+        cards[index] = card;
+        size++;
+    }
+
+    /**
+     * Replaces the block at an index.
+     *
+     * @param index The index.
+     * @param block The new block.
+     */
+    private void setBlock(int index, Object block) {
+        blocks[index] = block;
+        cards[index] = cardinality(block);
+    }
+
+    /**
+     * Appends a block as the last block, unless it is empty.
+     *
+     * @param key   The upper 16 bits of the addresses of the block.
+     * @param block The block.
+     */
+    private void append(char key, Object block) {
+        append(key, block, cardinality(block));
+    }
+
+    /**
+     * Appends a block as the last block, unless it is empty.
+     *
+     * @param key   The upper 16 bits of the addresses of the block.
+     * @param block The block.
+     * @param card  The number of addresses of the block.
+     */
+    private void append(char key, Object block, int card) {
+        if (card > 0) {
+            insertBlock(size, key, block, card);
+        }
+    }
+
+    /**
+     * Copies a block.
+     *
+     * @param block The block.
+     * @return The copy.
+     */
+    private static Object copy(Object block) {
+        return block instanceof long[] bitmap ? bitmap.clone() : block;
+    }
+
+    /**
+     * Calculates the union of two blocks.
+     *
+     * @param a The first block.
+     * @param b The second block.
+     * @return The new block.
+     */
+    private static Object union(Object a, Object b) {
+        if (a instanceof char[] x && b instanceof char[] y && x.length + y.length <= ARRAY_MAX) {
+            char[] merged = new char[x.length + y.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.length || j < y.length) {
+                if (j == y.length || (i < x.length && x[i] < y[j])) {
+                    merged[n++] = x[i++];
+                } else if (i == x.length || y[j] < x[i]) {
+                    merged[n++] = y[j++];
+                } else {
+                    merged[n++] = x[i++];
+                    j++;
+                }
+            }
+            return n == merged.length ? merged : Arrays.copyOf(merged, n);
+        }
+        long[] bitmap = a instanceof long[] bits ? bits.clone() : toBitmap((char[]) a);
+        if (b instanceof long[] bits) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                bitmap[w] |= bits[w];
+            }
+        } else {
+            for (char low : (char[]) b) {
+                bitmap[low >>> 6] |= 1L << low;
+            }
+        }
+        return normalize(bitmap);
+    }
+
+    /**
+     * Calculates the intersection of two blocks.
+     *
+     * @param a The first block.
+     * @param b The second block.
+     * @return The new block.
+     */
+    private static Object intersection(Object a, Object b) {
+        if (a instanceof long[] x && b instanceof long[] y) {
+            long[] bitmap = new long[BITMAP_WORDS];
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                bitmap[w] = x[w] & y[w];
+            }
+            return normalize(bitmap);
+        }
+        if (a instanceof long[]) {
+            return intersection(b, a);
+        }
+        char[] x = (char[]) a;
+        char[] result = new char[x.length];
+        int n = 0;
+        if (b instanceof long[] bitmap) {
+            for (char low : x) {
+                if ((bitmap[low >>> 6] & (1L << low)) != 0) {
+                    result[n++] = low;
+                }
+            }
+        } else {
+            char[] y = (char[]) b;
+            for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (y[j] < x[i]) {
+                    j++;
+                } else {
+                    result[n++] = x[i++];
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Calculates the difference of two blocks.
+     *
+     * @param a The first block.
+     * @param b The second block.
+     * @return The new block with the addresses of the first block not in the second one.
+     */
+    private static Object andNot(Object a, Object b) {
+        if (a instanceof long[] x) {
+            long[] bitmap = x.clone();
+            if (b instanceof long[] y) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bitmap[w] &= ~y[w];
+                }
+            } else {
+                for (char low : (char[]) b) {
+                    bitmap[low >>> 6] &= ~(1L << low);
+                }
+            }
+            return normalize(bitmap);
+        }
+        char[] x = (char[]) a;
+        char[] result = new char[x.length];
+        int n = 0;
+        for (char low : x) {
+            boolean contained = b instanceof long[] bitmap ? (bitmap[low >>> 6] & (1L << low)) != 0
+                    : Arrays.binarySearch((char[]) b, low) >= 0;
+            if (!contained) {
+                result[n++] = low;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Turns a bitmap into the block of its number of addresses, an array if it is sparse enough.
+     *
+     * @param bitmap The bitmap.
+     * @return The block.
+     */
+    private static Object normalize(long[] bitmap) {
+        int card = cardinality(bitmap);
+        if (card > ARRAY_MAX) {
+            return bitmap;
+        }
+        char[] array = new char[card];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = bitmap[w]; word != 0; word &= word - 1) {
+                array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Converts an array block into a bitmap.
+     *
+     * @param array The sorted lower 16 bits of the addresses.
+     * @return The bitmap.
+     */
+    private static long[] toBitmap(char[] array) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (char low : array) {
+            bitmap[low >>> 6] |= 1L << low;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Counts the addresses of a block.
+     *
+     * @param block The block.
+     * @return The number of addresses.
+     */
+    private static int cardinality(Object block) {
+        return block instanceof long[] bitmap ? cardinality(bitmap) : ((char[]) block).length;
+    }
+
+    /**
+     * Counts the set bits of a bitmap.
+     *
+     * @param bitmap The bitmap.
+     * @return The number of set bits.
+     */
+    private static int cardinality(long[] bitmap) {
+        int card = 0;
+        for (long word : bitmap) {
+            card += Long.bitCount(word);
+        }
+        return card;
+    }
+
+    /**
+     * Counts the addresses of a block in a range of lower 16 bits.
+     *
+     * @param block The block.
+     * @param card  The number of addresses of the block.
+     * @param from  The first lower 16 bits of the range.
+     * @param to    The last lower 16 bits of the range.
+     * @return The number of addresses in the range.
+     */
+    private static int countRange(Object block, int card, int from, int to) {
+        if (from == 0 && to == 0xFFFF) {
+            return card;
+        }
+        if (block instanceof long[] bitmap) {
+            int first = from >>> 6;
+            int last = to >>> 6;
+            if (first == last) {
+                return Long.bitCount(bitmap[first] & (-1L << from) & (-1L >>> (63 - (to & 63))));
+            }
+            int count = Long.bitCount(bitmap[first] & (-1L << from)) + Long.bitCount(bitmap[last] & (-1L >>> (63 - (to & 63))));
+            for (int w = first + 1; w < last; w++) {
+                count += Long.bitCount(bitmap[w]);
+            }
+            return count;
+        }
+        char[] array = (char[]) block;
+        int lo = Arrays.binarySearch(array, (char) from);
+        int hi = to == 0xFFFF ? array.length : Arrays.binarySearch(array, (char) (to + 1));
+        return (hi < 0 ? ~hi : hi) - (lo < 0 ? ~lo : lo);
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over a range of consecutive IP addresses, splitting the range in halves.
+ * Addresses are handled as unsigned values, so ranges may cross 128.0.0.0.
+ */
+class AddressSpliterator implements Spliterator.OfInt {
+    /**
+     * The next address, as an unsigned value.
+     */
+    private long next;
+    /**
+     * The address after the last one, as an unsigned value.
+     */
+    private final long end;
+
+    /**
+     * Constructs a spliterator over a range of addresses.
+     *
+     * @param first The first address, as an unsigned value.
+     * @param end   The address after the last one, as an unsigned value.
+     */
+    AddressSpliterator(long first, long end) {
+        this.next = first;
+        this.end = Math.max(first, end);
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (next >= end) {
+            return false;
+        }
+        action.accept((int) next++);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        long i = next;
+        long end = this.end;
+        next = end;
+        for (; i < end; i++) {
+            action.accept((int) i);
+        }
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        long mid = next + ((end - next) >>> 1);
+        if (mid <= next) {
+            return null;
+        }
+        AddressSpliterator prefix = new AddressSpliterator(next, mid);
+        next = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
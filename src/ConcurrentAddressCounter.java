@@ -0,0 +1,352 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe table of counters keyed by IPv4 address, for counting requests per client from many threads.
+ * Keys are spread over independent segments, each an open addressing hash table of atomic arrays.
+ * Incrementing an existing counter is a lock-free compare-and-set; only the first increment of a new address
+ * and resizing take the lock of one segment.
+ * <p>
+ * {@link #drain()} takes and resets every counter atomically, so each increment is exported by exactly one drain
+ * while writers keep running. {@link #snapshot()} and {@link #rollup(int)} read the counters without resetting them.
+ */
+public class ConcurrentAddressCounter {
+    /**
+     * Marks a count whose slot was copied to a new table, writers seeing it retry on the new table.
+     */
+    private static final long MOVED = Long.MIN_VALUE;
+    /**
+     * Initial number of slots per segment.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * The segments, selected by the upper bits of the mixed address.
+     */
+    private final Segment[] segments;
+
+    /**
+     * Constructs an empty counter table with 64 segments.
+     */
+    public ConcurrentAddressCounter() {
+        this(64);
+    }
+
+    /**
+     * Constructs an empty counter table.
+     *
+     * @param concurrencyLevel The expected number of concurrently inserting threads, rounded up to a power of two (at most 256).
+     * @throws IllegalArgumentException If the concurrency level is not positive.
+     */
+    public ConcurrentAddressCounter(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Invalid concurrency level: " + concurrencyLevel);
+        }
+        int n = Math.min(256, Integer.highestOneBit(concurrencyLevel - 1) << 1);
+        segments = new Segment[Math.max(1, n)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Adds an amount to the counter of an address.
+     *
+     * @param ip    The numerical representation of the IP address.
+     * @param delta The amount to add.
+     */
+    public void add(int ip, long delta) {
+        int h = IpAddressHashTable.mix(ip);
+        Segment segment = segmentOf(h);
+        long tag = tag(ip);
+        while (true) {
+            Table table = segment.table;
+            int pos = table.find(tag, h);
+            if (pos >= 0) {
+                if (table.addAt(pos, delta)) {
+                    return;
+                }
+            }
+            synchronized (segment) {
+                if (segment.table == table) {
+                    segment.insert(tag, h, delta);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Increments the counter of an address by one.
+     *
+     * @param ip The numerical representation of the IP address.
+     */
+    public void increment(int ip) {
+        add(ip, 1);
+    }
+
+    /**
+     * Increments the counter of an address by one.
+     *
+     * @param ip The IP address.
+     */
+    public void increment(IpAddress ip) {
+        add(ip.getAsInt(), 1);
+    }
+
+    /**
+     * Gets the current count of an address.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The count, or 0 if the address was not counted.
+     */
+    public long get(int ip) {
+        int h = IpAddressHashTable.mix(ip);
+        Segment segment = segmentOf(h);
+        long tag = tag(ip);
+        while (true) {
+            Table table = segment.table;
+            int pos = table.find(tag, h);
+            if (pos < 0) {
+                return 0;
+            }
+            long count = table.counts.get(pos);
+            if (count != MOVED) {
+                return count;
+            }
+            synchronized (segment) {
+                // wait until the table is replaced
+            }
+        }
+    }
+
+    /**
+     * Gets the number of addresses in the table, including drained addresses counted again since.
+     *
+     * @return The number of addresses.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.table.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies the current counts into a map. Writers are not blocked, each count is a value it had during the call.
+     *
+     * @return The counts, without addresses whose count is 0.
+     */
+    public IpAddressLongMap snapshot() {
+        return rollup(32);
+    }
+
+    /**
+     * Sums the current counts per subnet of a prefix length, using the masks of {@link Subnet#maskOf(int)}.
+     * Writers are not blocked, each count is a value it had during the call.
+     *
+     * @param prefixLength The prefix length (0-32), e.g. 24 to count per /24.
+     * @return The counts keyed by network address, without subnets whose count is 0.
+     * @throws IllegalArgumentException If the prefix length is out of range.
+     */
+    public IpAddressLongMap rollup(int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw new IllegalArgumentException("Invalid prefix length: " + prefixLength);
+        }
+        int mask = Subnet.maskOf(prefixLength);
+        IpAddressLongMap result = new IpAddressLongMap();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Table table = segment.table;
+                for (int i = 0; i < table.capacity; i++) {
+                    long key = table.keys.get(i);
+                    long count = table.counts.get(i);
+                    if (key != 0 && count != 0) {
+                        result.addTo((int) key & mask, count);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes all counts and resets the table. Every increment is contained in exactly one drain,
+     * increments racing with a drain are contained in this or the next one.
+     *
+     * @return The counts, without addresses whose count is 0.
+     */
+    public IpAddressLongMap drain() {
+        IpAddressLongMap result = new IpAddressLongMap();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Table table = segment.table;
+                for (int i = 0; i < table.capacity; i++) {
+                    long key = table.keys.get(i);
+                    if (key != 0) {
+                        long count = table.counts.getAndSet(i, MOVED);
+                        if (count != 0) {
+                            result.addTo((int) key, count);
+                        }
+                    }
+                }
+                segment.table = new Table(INITIAL_CAPACITY);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Passes the current count of every address to an action, in no particular order.
+     *
+     * @param action The action receiving each address and count, must not modify this table.
+     */
+    public void forEach(IpAddressLongMap.EntryConsumer action) {
+        snapshot().forEach(action);
+    }
+
+    /**
+     * Selects the segment of a mixed address.
+     *
+     * @param h The mixed address.
+     * @return The segment.
+     */
+    private Segment segmentOf(int h) {
+        return segments[(h >>> 24) & (segments.length - 1)];
+    }
+
+    /**
+     * Calculates the key of an address in the tables, never 0 so that 0 can mark free slots.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The key.
+     */
+    private static long tag(int ip) {
+        return (1L << 32) | (ip & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A segment, its lock guards inserts and the replacement of its table.
+     */
+    private static final class Segment {
+        /**
+         * The current table, replaced when it grows or is drained.
+         */
+        volatile Table table = new Table(INITIAL_CAPACITY);
+
+        /**
+         * Adds an amount to the counter of an address, inserting the address if needed. Must hold the lock.
+         *
+         * @param tag   The key of the address.
+         * @param h     The mixed address.
+         * @param delta The amount to add.
+         */
+        void insert(long tag, int h, long delta) {
+            Table t = table;
+            int pos = t.find(tag, h);
+            if (pos < 0) {
+                if (4 * (t.size + 1) > 3 * t.capacity) {
+                    t = grow(t);
+                }
+                pos = ~t.find(tag, h);
+                t.keys.set(pos, tag);
+                t.size++;
+            }
+            t.counts.getAndAdd(pos, delta);
+        }
+
+        /**
+         * Copies the table into one of twice the capacity and publishes it. Must hold the lock.
+         *
+         * @param t The current table.
+         * @return The new table.
+         */
+        private Table grow(Table t) {
+            Table bigger = new Table(2 * t.capacity);
+            for (int i = 0; i < t.capacity; i++) {
+                long key = t.keys.get(i);
+                if (key != 0) {
+                    int pos = ~bigger.find(key, IpAddressHashTable.mix((int) key));
+                    bigger.keys.set(pos, key);
+                    bigger.counts.set(pos, t.counts.getAndSet(i, MOVED));
+                    bigger.size++;
+                }
+            }
+            table = bigger;
+            return bigger;
+        }
+    }
+
+    /**
+     * An open addressing hash table with linear probing. Keys are only added under the segment lock
+     * and never removed, so lock-free readers see a slot change at most once from free to its final key.
+     */
+    private static final class Table {
+        /**
+         * The keys of {@link #tag(int)}, 0 marks a free slot.
+         */
+        final AtomicLongArray keys;
+        /**
+         * The counts, indexed like the keys, or {@link #MOVED} once copied to a new table.
+         */
+        final AtomicLongArray counts;
+        /**
+         * The number of slots, a power of two.
+         */
+        final int capacity;
+        /**
+         * The number of used slots, guarded by the segment lock.
+         */
+        int size;
+
+        /**
+         * Constructs an empty table.
+         *
+         * @param capacity The number of slots, a power of two.
+         */
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.counts = new AtomicLongArray(capacity);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Finds the slot of a key.
+         *
+         * @param tag The key.
+         * @param h   The mixed address.
+         * @return The slot of the key, or the bitwise complement of the first free slot if the key is not present.
+         */
+        int find(long tag, int h) {
+            int m = capacity - 1;
+            for (int i = h & m; ; i = (i + 1) & m) {
+                long key = keys.get(i);
+                if (key == tag) {
+                    return i;
+                }
+                if (key == 0) {
+                    return ~i;
+                }
+            }
+        }
+
+        /**
+         * Adds an amount to a count without locking.
+         *
+         * @param pos   The slot.
+         * @param delta The amount to add.
+         * @return False if the slot was moved to a new table and nothing was added.
+         */
+        boolean addAt(int pos, long delta) {
+            long count;
+            do {
+                count = counts.get(pos);
+                if (count == MOVED) {
+                    return false;
+                }
+            } while (!counts.compareAndSet(pos, count, count + delta));
+            return true;
+        }
+    }
+}
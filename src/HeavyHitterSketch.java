@@ -0,0 +1,416 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds hierarchical heavy hitters in a stream of IPv4 addresses in bounded memory: the prefixes at several
+ * prefix lengths, e.g. /8, /16, /24 and /32, which carry a large share of the traffic not already explained by
+ * heavier prefixes inside them.
+ * <p>
+ * Every level has a Count-Min sketch of {@link AtomicLongArray} counters, keyed by the address masked like
+ * {@link Subnet#maskOf(int)}, and a small table of candidate prefixes. A prefix enters the candidate table if a
+ * probed slot is free or holds a prefix with a smaller estimate. Adding is lock-free and safe from several threads.
+ * Reports subtract the counts of heavy prefixes from the prefixes containing them, the discounted count.
+ */
+public class HeavyHitterSketch {
+    /**
+     * The number of hash rows of each Count-Min sketch.
+     */
+    private static final int DEPTH = 4;
+    /**
+     * The number of candidate slots probed per insertion.
+     */
+    private static final int PROBES = 4;
+    /**
+     * Seeds of the hash functions, one per row and one for the candidate tables.
+     */
+    private static final int[] SEEDS = {0x2C1B3C6D, 0x297A2D39, 0x5BD1E995, 0x1B873593, 0x68E31DA4};
+    /**
+     * The prefix lengths of the levels, ascending.
+     */
+    private final int[] prefixLengths;
+    /**
+     * The number of counters per row, a power of two.
+     */
+    private final int width;
+    /**
+     * The number of candidate slots per level, a power of two.
+     */
+    private final int capacity;
+    /**
+     * The counters of the current window.
+     */
+    private volatile Window window;
+
+    /**
+     * A reported prefix.
+     *
+     * @param subnet          The prefix.
+     * @param count           The estimated number of addresses in the prefix, never less than the true number.
+     * @param discountedCount The count minus the counts of the reported heavy prefixes inside this one.
+     */
+    public record HeavyHitter(Subnet subnet, long count, long discountedCount) {
+    }
+
+    /**
+     * Constructs a sketch for /8, /16, /24 and /32 with 2^14 counters per row and 1024 candidates per level,
+     * about 2 MiB in total.
+     */
+    public HeavyHitterSketch() {
+        this(new int[]{8, 16, 24, 32}, 1 << 14, 1024);
+    }
+
+    /**
+     * Constructs a sketch.
+     *
+     * @param prefixLengths The prefix lengths of the levels, strictly ascending from 0 to 32.
+     * @param width         The number of counters per row, rounded up to a power of two. The overestimate of a
+     *                      count is at most about e / width of the total with high probability.
+     * @param candidates    The number of candidate prefixes per level, rounded up to a power of two.
+     * @throws IllegalArgumentException If the prefix lengths are invalid or width or candidates are out of range.
+     */
+    public HeavyHitterSketch(int[] prefixLengths, int width, int candidates) {
+        if (prefixLengths.length == 0) {
+            throw new IllegalArgumentException("No prefix lengths");
+        }
+        for (int l = 0; l < prefixLengths.length; l++) {
+            if (prefixLengths[l] < 0 || prefixLengths[l] > 32 || (l > 0 && prefixLengths[l] <= prefixLengths[l - 1])) {
+                throw new IllegalArgumentException("Invalid prefix lengths: " + Arrays.toString(prefixLengths));
+            }
+        }
+        if (width <= 0 || width > 1 << 26) {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+        if (candidates <= 0 || candidates > 1 << 20) {
+            throw new IllegalArgumentException("Invalid number of candidates: " + candidates);
+        }
+        this.prefixLengths = prefixLengths.clone();
+        this.width = Math.max(1, Integer.highestOneBit(width - 1) << 1);
+        this.capacity = Math.max(1, Integer.highestOneBit(candidates - 1) << 1);
+        this.window = new Window();
+    }
+
+    /**
+     * The counters and candidates of one time window.
+     */
+    private final class Window {
+        /**
+         * The number of added addresses.
+         */
+        final LongAdder total = new LongAdder();
+        /**
+         * The Count-Min counters per level, row after row.
+         */
+        final AtomicLongArray[] counters = new AtomicLongArray[prefixLengths.length];
+        /**
+         * The candidate prefixes per level, as {@code 1L << 32 | network} or 0 for a free slot.
+         */
+        final AtomicLongArray[] candidates = new AtomicLongArray[prefixLengths.length];
+
+        /**
+         * Constructs an empty window.
+         */
+        Window() {
+            for (int l = 0; l < prefixLengths.length; l++) {
+                counters[l] = new AtomicLongArray(DEPTH * width);
+                candidates[l] = new AtomicLongArray(capacity);
+            }
+        }
+
+        /**
+         * Adds an amount to a prefix of a level.
+         *
+         * @param level The level.
+         * @param key   The network address of the prefix.
+         * @param delta The amount.
+         * @return The new estimate of the prefix.
+         */
+        long add(int level, int key, long delta) {
+            AtomicLongArray c = counters[level];
+            long estimate = Long.MAX_VALUE;
+            for (int r = 0; r < DEPTH; r++) {
+                estimate = Math.min(estimate, c.addAndGet(r * width + (hash(key, r) & (width - 1)), delta));
+            }
+            return estimate;
+        }
+
+        /**
+         * Estimates the count of a prefix of a level.
+         *
+         * @param level The level.
+         * @param key   The network address of the prefix.
+         * @return The smallest counter of the prefix.
+         */
+        long estimate(int level, int key) {
+            AtomicLongArray c = counters[level];
+            long estimate = Long.MAX_VALUE;
+            for (int r = 0; r < DEPTH; r++) {
+                estimate = Math.min(estimate, c.get(r * width + (hash(key, r) & (width - 1))));
+            }
+            return estimate;
+        }
+
+        /**
+         * Offers a prefix to the candidate table of a level. It takes a free probed slot, or replaces the probed
+         * candidate with the smallest estimate if that is smaller than its own. Lost races are ignored.
+         *
+         * @param level    The level.
+         * @param key      The network address of the prefix.
+         * @param estimate The estimate of the prefix.
+         */
+        void offer(int level, int key, long estimate) {
+            AtomicLongArray slots = candidates[level];
+            long tag = 1L << 32 | (key & 0xFFFFFFFFL);
+            int h = hash(key, DEPTH);
+            int victim = -1;
+            long victimTag = 0;
+            long victimEstimate = estimate;
+            for (int p = 0; p < PROBES; p++) {
+                int pos = (h + p) & (capacity - 1);
+                long t = slots.get(pos);
+                if (t == 0) {
+                    if (slots.compareAndSet(pos, 0, tag)) {
+                        return;
+                    }
+                    t = slots.get(pos);
+                }
+                if (t == tag) {
+                    return;
+                }
+                long e = estimate(level, (int) t);
+                if (e < victimEstimate) {
+                    victim = pos;
+                    victimTag = t;
+                    victimEstimate = e;
+                }
+            }
+            if (victim >= 0) {
+                slots.compareAndSet(victim, victimTag, tag);
+            }
+        }
+    }
+
+    /**
+     * Counts an address in every level.
+     *
+     * @param ip The numerical representation of the IP address.
+     */
+    public void add(int ip) {
+        add(ip, 1);
+    }
+
+    /**
+     * Counts an address in every level.
+     *
+     * @param ip The IP address.
+     */
+    public void add(IpAddress ip) {
+        add(ip.getAsInt(), 1);
+    }
+
+    /**
+     * Adds an amount for an address in every level, e.g. a number of packets or bytes.
+     *
+     * @param ip    The numerical representation of the IP address.
+     * @param delta The amount, not negative.
+     * @throws IllegalArgumentException If the amount is negative.
+     */
+    public void add(int ip, long delta) {
+        if (delta < 0) {
+            throw new IllegalArgumentException("Negative amount: " + delta);
+        }
+        Window w = window;
+        w.total.add(delta);
+        for (int l = 0; l < prefixLengths.length; l++) {
+            int key = ip & Subnet.maskOf(prefixLengths[l]);
+            w.offer(l, key, w.add(l, key, delta));
+        }
+    }
+
+    /**
+     * Counts a batch of addresses.
+     *
+     * @param ips    The numerical representations of the IP addresses.
+     * @param offset Index of the first address.
+     * @param length Number of addresses.
+     */
+    public void addAll(int[] ips, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            add(ips[i], 1);
+        }
+    }
+
+    /**
+     * Gets the total amount added in the current window.
+     *
+     * @return The total.
+     */
+    public long getTotal() {
+        return window.total.sum();
+    }
+
+    /**
+     * Estimates the count of a prefix in the current window.
+     *
+     * @param subnet A subnet whose prefix length is one of the levels, host bits of its address are ignored.
+     * @return The estimate, never less than the true count.
+     * @throws IllegalArgumentException If the prefix length is not one of the levels.
+     */
+    public long estimate(Subnet subnet) {
+        return window.estimate(levelOf(subnet.getPrefixLength()), subnet.getNetAddressAsInt());
+    }
+
+    /**
+     * Reports the candidates of one level with the largest estimates in the current window.
+     *
+     * @param prefixLength The prefix length of the level.
+     * @param k            The maximum number of prefixes.
+     * @return The prefixes by descending count, the discounted count equals the count.
+     * @throws IllegalArgumentException If the prefix length is not one of the levels.
+     */
+    public List<HeavyHitter> top(int prefixLength, int k) {
+        Window w = window;
+        int level = levelOf(prefixLength);
+        List<HeavyHitter> result = new ArrayList<>();
+        for (long key : candidateKeys(w, level)) {
+            long count = w.estimate(level, (int) key);
+            result.add(new HeavyHitter(new Subnet((int) key, prefixLength), count, count));
+        }
+        result.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return result.subList(0, Math.min(k, result.size()));
+    }
+
+    /**
+     * Reports the hierarchical heavy hitters of the current window.
+     *
+     * @param phi The fraction of the total a prefix's discounted count needs to reach, greater than 0.
+     * @return The heavy prefixes, by ascending prefix length and then descending discounted count.
+     * @throws IllegalArgumentException If phi is not greater than 0.
+     */
+    public List<HeavyHitter> heavyHitters(double phi) {
+        return heavyHitters(window, phi);
+    }
+
+    /**
+     * Starts a new window and reports the hierarchical heavy hitters of the previous one. Adds racing with the
+     * call may still reach the previous window.
+     *
+     * @param phi The fraction of the total a prefix's discounted count needs to reach, greater than 0.
+     * @return The heavy prefixes of the previous window, like {@link #heavyHitters(double)}.
+     * @throws IllegalArgumentException If phi is not greater than 0.
+     */
+    public List<HeavyHitter> rotate(double phi) {
+        if (!(phi > 0)) {
+            throw new IllegalArgumentException("Invalid fraction: " + phi);
+        }
+        Window previous;
+        synchronized (this) {
+            previous = window;
+            window = new Window();
+        }
+        return heavyHitters(previous, phi);
+    }
+
+    /**
+     * Reports the hierarchical heavy hitters of a window, from the longest prefixes to the shortest. Each prefix
+     * is discounted by the heavy prefixes inside it which are not inside another heavy prefix inside it.
+     *
+     * @param w   The window.
+     * @param phi The fraction of the total a prefix's discounted count needs to reach.
+     * @return The heavy prefixes, by ascending prefix length and then descending discounted count.
+     */
+    private List<HeavyHitter> heavyHitters(Window w, double phi) {
+        if (!(phi > 0)) {
+            throw new IllegalArgumentException("Invalid fraction: " + phi);
+        }
+        long threshold = Math.max(1, (long) Math.ceil(phi * w.total.sum()));
+        List<HeavyHitter> result = new ArrayList<>();
+        List<HeavyHitter> frontier = new ArrayList<>();
+        for (int level = prefixLengths.length - 1; level >= 0; level--) {
+            int prefixLength = prefixLengths[level];
+            List<HeavyHitter> reported = new ArrayList<>();
+            for (long key : candidateKeys(w, level)) {
+                int network = (int) key;
+                long count = w.estimate(level, network);
+                if (count < threshold) {
+                    continue;
+                }
+                long discounted = count;
+                for (HeavyHitter h : frontier) {
+                    if (((h.subnet().getNetAddressAsInt() ^ network) & Subnet.maskOf(prefixLength)) == 0) {
+                        discounted -= h.count();
+                    }
+                }
+                if (discounted >= threshold) {
+                    reported.add(new HeavyHitter(new Subnet(network, prefixLength), count, discounted));
+                }
+            }
+            frontier.removeIf(h -> reported.stream().anyMatch(p -> p.subnet().isInNetwork(h.subnet().getNetAddressAsInt())));
+            frontier.addAll(reported);
+            reported.sort(Comparator.comparingLong(HeavyHitter::discountedCount).reversed());
+            result.addAll(0, reported);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the distinct candidate prefixes of a level. Racing offers of the same prefix can leave it in two slots,
+     * so the keys are sorted and deduplicated.
+     *
+     * @param w     The window.
+     * @param level The level.
+     * @return The network addresses of the candidates in the low 32 bits, ascending.
+     */
+    private long[] candidateKeys(Window w, int level) {
+        AtomicLongArray slots = w.candidates[level];
+        long[] keys = new long[capacity];
+        int n = 0;
+        for (int i = 0; i < capacity; i++) {
+            long t = slots.get(i);
+            if (t != 0) {
+                keys[n++] = t & 0xFFFFFFFFL;
+            }
+        }
+        Arrays.sort(keys, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    /**
+     * Finds the level of a prefix length.
+     *
+     * @param prefixLength The prefix length.
+     * @return The index of the level.
+     * @throws IllegalArgumentException If the prefix length is not one of the levels.
+     */
+    private int levelOf(int prefixLength) {
+        for (int l = 0; l < prefixLengths.length; l++) {
+            if (prefixLengths[l] == prefixLength) {
+                return l;
+            }
+        }
+        throw new IllegalArgumentException("Prefix length " + prefixLength + " is not one of " + Arrays.toString(prefixLengths));
+    }
+
+    /**
+     * Hashes a prefix for one row, a seeded MurmurHash3 finalizer.
+     *
+     * @param key The network address of the prefix.
+     * @param row The row, or {@link #DEPTH} for the candidate tables.
+     * @return The hash.
+     */
+    private static int hash(int key, int row) {
+        int h = (key ^ SEEDS[row]) * 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,11 +1,14 @@
-import java.util.Arrays;
-import java.util.stream.IntStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Represents an IPv4 address and provides methods for manipulation and comparison.
  * Implements the Comparable interface for natural ordering based on the numerical value of the IP address.
+ * Instances are immutable and can be shared between threads, {@link #valueOf(int)} hands out cached instances.
  */
-public class IpAddress implements Comparable<IpAddress> {
+public final class IpAddress implements Comparable<IpAddress> {
     /**
      * Represents the localhost IP address (127.0.0.1).
      */
@@ -14,16 +17,48 @@ public class IpAddress implements Comparable<IpAddress> {
      * Represents a default IP address for a modem (10.0.0.138).
      */
     public static final IpAddress MODEM = new IpAddress(10, 0, 0, 138);
+    /**
+     * Returned by the parse methods if the input is not a valid IP address.
+     */
+    public static final long INVALID = -1L;
+    /**
+     * Maximum length of an IP address in dot-decimal notation.
+     */
+    public static final int MAX_LENGTH = 15;
+    /**
+     * ASCII digits of all octet values, 4 bytes per value: the number of digits followed by the digits.
+     */
+    private static final byte[] OCTET_DIGITS = new byte[256 * 4];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            String digits = Integer.toString(i);
+            OCTET_DIGITS[i * 4] = (byte) digits.length();
+            for (int d = 0; d < digits.length(); d++) {
+                OCTET_DIGITS[i * 4 + 1 + d] = (byte) digits.charAt(d);
+            }
+        }
+    }
+
+    /**
+     * Number of slots of the instance cache used by the valueOf methods, a power of two.
+     */
+    private static final int CACHE_SIZE = 4096;
+    /**
+     * Direct-mapped cache of canonical instances, an address evicts the one with the same slot.
+     * Racy reads and writes are safe, because instances are immutable.
+     */
+    private static final IpAddress[] CACHE = new IpAddress[CACHE_SIZE];
     /**
      * The numerical representation of the IP address.
      */
-    private int ip;
+    private final int ip;
 
     /**
      * Default constructor, initializes the IP address to the localhost (127.0.0.1).
      */
     public IpAddress() {
-        set(new int[]{127, 0, 0, 1});
+        this(127, 0, 0, 1);
     }
 
     /**
@@ -32,7 +67,7 @@ public class IpAddress implements Comparable<IpAddress> {
      * @param ip The numerical representation of the IP address.
      */
     private IpAddress(int ip) {
-        set(ip);
+        this.ip = ip;
     }
 
     /**
@@ -44,7 +79,7 @@ public class IpAddress implements Comparable<IpAddress> {
      * @param o4 Fourth octet.
      */
     public IpAddress(int o1, int o2, int o3, int o4) {
-        set(o1, o2, o3, o4);
+        this(toInt(o1, o2, o3, o4));
     }
 
     /**
@@ -53,7 +88,7 @@ public class IpAddress implements Comparable<IpAddress> {
      * @param ip An array representing the four octets of the IP address.
      */
     public IpAddress(int[] ip) {
-        set(ip);
+        this(toInt(ip));
     }
 
     /**
@@ -62,65 +97,213 @@ public class IpAddress implements Comparable<IpAddress> {
      * @param ip A string representing the IP address in dot-decimal notation.
      */
     public IpAddress(String ip) {
-        set(ip);
+        this(toInt(ip));
+    }
+
+    /**
+     * Gets the IP address of a numerical representation, reusing a cached instance if possible.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The IP address.
+     */
+    public static IpAddress valueOf(int ip) {
+        int slot = IpAddressHashTable.mix(ip) & (CACHE_SIZE - 1);
+        IpAddress cached = CACHE[slot];
+        if (cached == null || cached.ip != ip) {
+            cached = new IpAddress(ip);
+            CACHE[slot] = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Gets the IP address of four octets, reusing a cached instance if possible.
+     *
+     * @param o1 First octet.
+     * @param o2 Second octet.
+     * @param o3 Third octet.
+     * @param o4 Fourth octet.
+     * @return The IP address.
+     * @throws IllegalArgumentException if any octet is outside the valid range.
+     */
+    public static IpAddress valueOf(int o1, int o2, int o3, int o4) {
+        return valueOf(toInt(o1, o2, o3, o4));
+    }
+
+    /**
+     * Gets the IP address of a string representation in dot-decimal notation, reusing a cached instance if possible.
+     *
+     * @param ip A string representing the IP address in dot-decimal notation.
+     * @return The IP address.
+     * @throws IllegalArgumentException if the string format is invalid or if any octet is outside the valid range.
+     */
+    public static IpAddress valueOf(String ip) {
+        return valueOf(toInt(ip));
     }
 
     /**
-     * Sets the IP address based on an array of integers representing the four octets.
+     * Calculates the numerical representation of an array of integers representing the four octets.
      *
      * @param ip An array representing the four octets of the IP address.
+     * @return The numerical representation of the IP address.
      * @throws IllegalArgumentException if the array length is not 4 or if any octet is outside the valid range.
      */
-    public void set(int[] ip) {
-        if (ip.length != 4 || Arrays.stream(ip).anyMatch(octet -> octet < 0 || octet > 255)) {
+    private static int toInt(int[] ip) {
+        if (ip.length != 4) {
+            throw new IllegalArgumentException("Invalid IP address range");
+        }
+        return toInt(ip[0], ip[1], ip[2], ip[3]);
+    }
+
+    /**
+     * Calculates the numerical representation of four octets.
+     *
+     * @param o1 First octet.
+     * @param o2 Second octet.
+     * @param o3 Third octet.
+     * @param o4 Fourth octet.
+     * @return The numerical representation of the IP address.
+     * @throws IllegalArgumentException if any octet is outside the valid range.
+     */
+    private static int toInt(int o1, int o2, int o3, int o4) {
+        if ((o1 | o2 | o3 | o4) >>> 8 != 0) {
             throw new IllegalArgumentException("Invalid IP address range");
-        } else {
-            this.ip = IntStream.of(ip).reduce((result, octet) -> (result << 8) | octet).orElse(0);
         }
+        return o1 << 24 | o2 << 16 | o3 << 8 | o4;
     }
 
     /**
-     * Sets the IP address based on a string representation in dot-decimal notation.
+     * Calculates the numerical representation of a string representation in dot-decimal notation.
      *
      * @param ip A string representing the IP address in dot-decimal notation.
+     * @return The numerical representation of the IP address.
      * @throws IllegalArgumentException if the string format is invalid or if any octet is outside the valid range.
      */
-    public void set(String ip) {
-        String[] parts = ip.split("\\.");
-        if (parts.length != 4 || Arrays.stream(parts).anyMatch(part -> {
-            try {
-                int octet = Integer.parseInt(part);
-                return octet < 0 || octet > 255;
-            } catch (NumberFormatException e) {
-                return true;
-            }
-        })) {
-            throw new IllegalArgumentException("Invalid IP address format or range");
+    private static int toInt(String ip) {
+        long parsed = parse(ip);
+        if (parsed == INVALID) {
+            throw Metrics.parseFailed(false, ip, ParseError.ofAddress(ip, 0, ip.length()));
         } else {
-            this.ip = Arrays.stream(parts).mapToInt(Integer::parseInt).reduce((result, octet) -> (result << 8) | octet).orElse(0);
+            Metrics.addressParsed();
+            return (int) parsed;
         }
     }
 
     /**
-     * Sets the IP address based on a single integer value.
+     * Parses an IP address in dot-decimal notation without allocating.
      *
-     * @param ip The numerical representation of the IP address.
+     * @param s The characters to parse.
+     * @return The IP address in the low 32 bits, or {@link #INVALID} if the input is not a valid IP address.
      */
-    public void set(int ip) {
-        this.ip = ip;
+    public static long parse(CharSequence s) {
+        return parse(s, 0, s.length());
     }
 
     /**
-     * Sets the IP address based on four integer parameters representing the four octets.
+     * Parses an IP address in dot-decimal notation from a part of a character sequence without allocating.
      *
-     * @param o3 First octet.
-     * @param o2 Second octet.
-     * @param o1 Third octet.
-     * @param o0 Fourth octet.
+     * @param s      The characters to parse.
+     * @param offset Index of the first character.
+     * @param length Number of characters to parse.
+     * @return The IP address in the low 32 bits, or {@link #INVALID} if the input is not a valid IP address.
+     */
+    public static long parse(CharSequence s, int offset, int length) {
+        int ip = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return INVALID;
+                }
+                digits++;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                ip = (ip << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return INVALID;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return INVALID;
+        }
+        return ((ip << 8) | octet) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Parses an IP address in dot-decimal notation from ASCII bytes without allocating.
+     *
+     * @param s      The bytes to parse.
+     * @param offset Index of the first byte.
+     * @param length Number of bytes to parse.
+     * @return The IP address in the low 32 bits, or {@link #INVALID} if the input is not a valid IP address.
+     */
+    public static long parse(byte[] s, int offset, int length) {
+        int ip = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            byte c = s[i];
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return INVALID;
+                }
+                digits++;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                ip = (ip << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return INVALID;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return INVALID;
+        }
+        return ((ip << 8) | octet) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Parses newline-delimited IP addresses from ASCII bytes into an array.
+     * Empty lines are skipped and a trailing carriage return on a line is ignored.
+     *
+     * @param buf    The bytes to parse.
+     * @param offset Index of the first byte.
+     * @param length Number of bytes to parse.
+     * @param dst    The array the addresses get written to, needs room for one address per line.
+     * @return The number of addresses written, or {@code -(n + 1)} if the n-th non-empty line (counting from 0) is invalid.
      */
-    public void set(int o3, int o2, int o1, int o0) {
-        int[] o = {o3, o2, o1, o0};
-        set(o);
+    public static int parseLines(byte[] buf, int offset, int length, int[] dst) {
+        int count = 0;
+        int end = offset + length;
+        int start = offset;
+        while (start < end) {
+            int lineEnd = start;
+            while (lineEnd < end && buf[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > start && buf[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > start) {
+                long parsed = parse(buf, start, lineEnd - start);
+                if (parsed == INVALID) {
+                    return -(count + 1);
+                }
+                dst[count++] = (int) parsed;
+            }
+            start = next;
+        }
+        return count;
     }
 
     /**
@@ -155,11 +338,10 @@ public class IpAddress implements Comparable<IpAddress> {
      * @throws IllegalArgumentException if the index is out of bounds.
      */
     public int getOctet(int num) {
-        try {
-            return this.getAsArray()[num];
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (num < 0 || num > 3) {
             throw new IllegalArgumentException("Wrong Index");
         }
+        return (ip >>> (24 - 8 * num)) & 0xFF;
     }
 
     /**
@@ -168,8 +350,145 @@ public class IpAddress implements Comparable<IpAddress> {
      * @return The string representation of the IP address.
      */
     public String toString() {
-        int[] ipArray = getAsArray();
-        return ipArray[0] + "." + ipArray[1] + "." + ipArray[2] + "." + ipArray[3];
+        return toString(ip);
+    }
+
+    /**
+     * Returns the string representation of a numerical IP address in dot-decimal notation.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The string representation of the IP address.
+     */
+    public static String toString(int ip) {
+        byte[] buf = new byte[MAX_LENGTH];
+        return new String(buf, 0, format(ip, buf, 0), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes a numerical IP address in dot-decimal notation as ASCII bytes into an array.
+     *
+     * @param ip     The numerical representation of the IP address.
+     * @param dst    The array, needs room for up to {@link #MAX_LENGTH} bytes.
+     * @param offset Index of the first byte to write.
+     * @return The index after the last written byte.
+     */
+    public static int format(int ip, byte[] dst, int offset) {
+        offset = formatOctet(ip >>> 24, dst, offset);
+        dst[offset++] = '.';
+        offset = formatOctet((ip >>> 16) & 0xFF, dst, offset);
+        dst[offset++] = '.';
+        offset = formatOctet((ip >>> 8) & 0xFF, dst, offset);
+        dst[offset++] = '.';
+        return formatOctet(ip & 0xFF, dst, offset);
+    }
+
+    /**
+     * Writes a numerical IP address in dot-decimal notation as ASCII bytes into a buffer, at its position.
+     *
+     * @param ip  The numerical representation of the IP address.
+     * @param dst The buffer, needs up to {@link #MAX_LENGTH} bytes remaining.
+     * @throws BufferOverflowException if the buffer has not enough bytes remaining, then nothing is written.
+     */
+    public static void format(int ip, ByteBuffer dst) {
+        int length = 3 + OCTET_DIGITS[(ip >>> 24) * 4] + OCTET_DIGITS[((ip >>> 16) & 0xFF) * 4]
+                + OCTET_DIGITS[((ip >>> 8) & 0xFF) * 4] + OCTET_DIGITS[(ip & 0xFF) * 4];
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            int start = dst.arrayOffset() + dst.position();
+            dst.position(format(ip, dst.array(), start) - dst.arrayOffset());
+            return;
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int d = ((ip >>> shift) & 0xFF) * 4;
+            dst.put(OCTET_DIGITS, d + 1, OCTET_DIGITS[d]);
+            if (shift > 0) {
+                dst.put((byte) '.');
+            }
+        }
+    }
+
+    /**
+     * Appends a numerical IP address in dot-decimal notation to a StringBuilder.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @param sb The StringBuilder.
+     * @return The StringBuilder.
+     */
+    public static StringBuilder format(int ip, StringBuilder sb) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int d = ((ip >>> shift) & 0xFF) * 4;
+            for (int i = 1; i <= OCTET_DIGITS[d]; i++) {
+                sb.append((char) OCTET_DIGITS[d + i]);
+            }
+            if (shift > 0) {
+                sb.append('.');
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a numerical IP address in dot-decimal notation to an Appendable, e.g. a Writer.
+     *
+     * @param ip  The numerical representation of the IP address.
+     * @param out The Appendable.
+     * @throws IOException if the Appendable fails.
+     */
+    public static void format(int ip, Appendable out) throws IOException {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int d = ((ip >>> shift) & 0xFF) * 4;
+            for (int i = 1; i <= OCTET_DIGITS[d]; i++) {
+                out.append((char) OCTET_DIGITS[d + i]);
+            }
+            if (shift > 0) {
+                out.append('.');
+            }
+        }
+    }
+
+    /**
+     * Writes numerical IP addresses in dot-decimal notation as ASCII bytes into an array, separated by a delimiter.
+     * No delimiter is written after the last address.
+     *
+     * @param ips       The numerical representations of the IP addresses.
+     * @param offset    Index of the first address.
+     * @param length    Number of addresses to write.
+     * @param delimiter The byte written between two addresses, e.g. '\n' or ','.
+     * @param dst       The array, needs room for up to {@code length * (MAX_LENGTH + 1)} bytes.
+     * @param dstOffset Index of the first byte to write.
+     * @return The index after the last written byte.
+     */
+    public static int formatAll(int[] ips, int offset, int length, byte delimiter, byte[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                dst[dstOffset++] = delimiter;
+            }
+            dstOffset = format(ips[offset + i], dst, dstOffset);
+        }
+        return dstOffset;
+    }
+
+    /**
+     * Writes a number from 0 to 255 as ASCII digits into an array.
+     *
+     * @param value  The number.
+     * @param dst    The array.
+     * @param offset Index of the first byte to write.
+     * @return The index after the last written byte.
+     */
+    static int formatOctet(int value, byte[] dst, int offset) {
+        int d = value * 4;
+        int n = OCTET_DIGITS[d];
+        dst[offset] = OCTET_DIGITS[d + 1];
+        if (n > 1) {
+            dst[offset + 1] = OCTET_DIGITS[d + 2];
+            if (n > 2) {
+                dst[offset + 2] = OCTET_DIGITS[d + 3];
+            }
+        }
+        return offset + n;
     }
 
     /**
@@ -185,6 +504,16 @@ public class IpAddress implements Comparable<IpAddress> {
         return ip == ipAddress.ip;
     }
 
+    /**
+     * Calculates the hash code of this IpAddress, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return ip;
+    }
+
     /**
      * Compares this IpAddress with another IpAddress for order.
      *
@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents an IPv6 address as two longs, the IPv6 counterpart of {@link IpAddress}.
+ * The parse and format methods work on primitives and do not allocate, the text form follows RFC 5952
+ * (lowercase hex, no leading zeros, the longest run of zero groups compressed to "::").
+ * Instances are immutable and ordered by the unsigned numerical value of the address.
+ */
+public class IpAddress6 implements Comparable<IpAddress6> {
+    /**
+     * Represents the loopback address (::1).
+     */
+    public static final IpAddress6 LOCALHOST = new IpAddress6(0, 1);
+    /**
+     * Represents the unspecified address (::).
+     */
+    public static final IpAddress6 UNSPECIFIED = new IpAddress6(0, 0);
+    /**
+     * Maximum length of an IPv6 address as written by the format methods.
+     */
+    public static final int MAX_LENGTH = 39;
+    /**
+     * Lowercase ASCII hex digits.
+     */
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+    /**
+     * The upper 64 bits of the address.
+     */
+    private final long high;
+    /**
+     * The lower 64 bits of the address.
+     */
+    private final long low;
+
+    /**
+     * Constructs an IPv6 address from its numerical representation.
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     */
+    public IpAddress6(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Constructs an IPv6 address from its string representation, e.g. "2001:db8::1" or "::ffff:192.168.0.1".
+     *
+     * @param ip A string representing the IPv6 address.
+     * @throws IllegalArgumentException If the string is not a valid IPv6 address.
+     */
+    public IpAddress6(String ip) {
+        long[] parsed = new long[2];
+        if (!parse(ip, 0, ip.length(), parsed, 0)) {
+            throw new IllegalArgumentException("Invalid IPv6 address: " + ip);
+        }
+        this.high = parsed[0];
+        this.low = parsed[1];
+    }
+
+    /**
+     * Parses an IPv6 address without allocating.
+     *
+     * @param s         The characters to parse.
+     * @param dst       The array receiving the upper and the lower 64 bits of the address.
+     * @param dstOffset Index of the upper 64 bits in the array.
+     * @return True if the input is a valid IPv6 address, false otherwise and the array is unchanged.
+     */
+    public static boolean parse(CharSequence s, long[] dst, int dstOffset) {
+        return parse(s, 0, s.length(), dst, dstOffset);
+    }
+
+    /**
+     * Parses an IPv6 address from a part of a character sequence without allocating.
+     *
+     * @param s         The characters to parse.
+     * @param offset    Index of the first character.
+     * @param length    Number of characters to parse.
+     * @param dst       The array receiving the upper and the lower 64 bits of the address.
+     * @param dstOffset Index of the upper 64 bits in the array.
+     * @return True if the input is a valid IPv6 address, false otherwise and the array is unchanged.
+     */
+    public static boolean parse(CharSequence s, int offset, int length, long[] dst, int dstOffset) {
+        return parse(s, null, offset, length, dst, dstOffset);
+    }
+
+    /**
+     * Parses an IPv6 address from ASCII bytes without allocating.
+     *
+     * @param s         The bytes to parse.
+     * @param offset    Index of the first byte.
+     * @param length    Number of bytes to parse.
+     * @param dst       The array receiving the upper and the lower 64 bits of the address.
+     * @param dstOffset Index of the upper 64 bits in the array.
+     * @return True if the input is a valid IPv6 address, false otherwise and the array is unchanged.
+     */
+    public static boolean parse(byte[] s, int offset, int length, long[] dst, int dstOffset) {
+        return parse(null, s, offset, length, dst, dstOffset);
+    }
+
+    /**
+     * Parses an IPv6 address from either characters or bytes. Groups before the "::" are collected in one
+     * 128 bit accumulator and groups after it in another, the first is shifted into place at the end.
+     *
+     * @param chars     The characters to parse, or null if bytes are parsed.
+     * @param bytes     The bytes to parse, or null if characters are parsed.
+     * @param offset    Index of the first character.
+     * @param length    Number of characters to parse.
+     * @param dst       The array receiving the upper and the lower 64 bits of the address.
+     * @param dstOffset Index of the upper 64 bits in the array.
+     * @return True if the input is a valid IPv6 address.
+     */
+    private static boolean parse(CharSequence chars, byte[] bytes, int offset, int length, long[] dst, int dstOffset) {
+        int end = offset + length;
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+        int i = offset;
+        if (length >= 2 && charAt(chars, bytes, i) == ':' && charAt(chars, bytes, i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (length > 0 && charAt(chars, bytes, i) == ':') {
+            return false;
+        }
+        while (i < end) {
+            int start = i;
+            long value = 0;
+            int digits = 0;
+            for (int d; i < end && (d = hexValue(charAt(chars, bytes, i))) >= 0; i++) {
+                value = (value << 4) | d;
+                if (++digits > 4) {
+                    return false;
+                }
+            }
+            int bits = 16;
+            if (i < end && charAt(chars, bytes, i) == '.') {
+                value = chars != null ? IpAddress.parse(chars, start, end - start) : IpAddress.parse(bytes, start, end - start);
+                if (value == IpAddress.INVALID) {
+                    return false;
+                }
+                bits = 32;
+                i = end;
+            } else if (digits == 0) {
+                return false;
+            }
+            if (headGroups + tailGroups + bits / 16 > 8) {
+                return false;
+            }
+            if (compressed) {
+                tailHigh = (tailHigh << bits) | (tailLow >>> (64 - bits));
+                tailLow = (tailLow << bits) | value;
+                tailGroups += bits / 16;
+            } else {
+                headHigh = (headHigh << bits) | (headLow >>> (64 - bits));
+                headLow = (headLow << bits) | value;
+                headGroups += bits / 16;
+            }
+            if (i == end) {
+                break;
+            }
+            if (charAt(chars, bytes, i++) != ':' || i == end) {
+                return false;
+            }
+            if (charAt(chars, bytes, i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        if (compressed ? headGroups + tailGroups > 7 : headGroups != 8) {
+            return false;
+        }
+        for (int g = headGroups; g < 8; g++) {
+            headHigh = (headHigh << 16) | (headLow >>> 48);
+            headLow <<= 16;
+        }
+        dst[dstOffset] = headHigh | tailHigh;
+        dst[dstOffset + 1] = headLow | tailLow;
+        return true;
+    }
+
+    /**
+     * Gets a character of the input of {@link #parse(CharSequence, byte[], int, int, long[], int)}.
+     *
+     * @param chars The characters, or null if bytes are parsed.
+     * @param bytes The bytes, or null if characters are parsed.
+     * @param index The index.
+     * @return The character.
+     */
+    private static char charAt(CharSequence chars, byte[] bytes, int index) {
+        return chars != null ? chars.charAt(index) : (char) (bytes[index] & 0xFF);
+    }
+
+    /**
+     * Gets the value of an ASCII hex digit.
+     *
+     * @param c The character.
+     * @return The value of the digit, or -1 if the character is no hex digit.
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        c |= 0x20;
+        return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+    }
+
+    /**
+     * Gets the upper 64 bits of the address.
+     *
+     * @return The upper 64 bits.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Gets the lower 64 bits of the address.
+     *
+     * @return The lower 64 bits.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Gets a 16 bit group of the address.
+     *
+     * @param num The index of the group (0-7), 0 is the leftmost group.
+     * @return The value of the group.
+     * @throws IllegalArgumentException If the index is out of range.
+     */
+    public int getGroup(int num) {
+        if (num < 0 || num > 7) {
+            throw new IllegalArgumentException("Wrong Index");
+        }
+        return group(high, low, num);
+    }
+
+    /**
+     * Returns the string representation of the address as recommended by RFC 5952.
+     *
+     * @return The string representation of the address.
+     */
+    @Override
+    public String toString() {
+        return toString(high, low);
+    }
+
+    /**
+     * Returns the string representation of a numerical IPv6 address as recommended by RFC 5952.
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     * @return The string representation of the address.
+     */
+    public static String toString(long high, long low) {
+        byte[] buf = new byte[MAX_LENGTH];
+        return new String(buf, 0, format(high, low, buf, 0), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes a numerical IPv6 address as ASCII bytes into an array, as recommended by RFC 5952.
+     *
+     * @param high   The upper 64 bits of the address.
+     * @param low    The lower 64 bits of the address.
+     * @param dst    The array, needs room for up to {@link #MAX_LENGTH} bytes.
+     * @param offset Index of the first byte to write.
+     * @return The index after the last written byte.
+     */
+    public static int format(long high, long low, byte[] dst, int offset) {
+        long run = zeroRun(high, low);
+        int runStart = (int) (run >>> 32);
+        int runEnd = (int) run;
+        for (int g = 0; g < 8; g++) {
+            if (g == runStart) {
+                dst[offset++] = ':';
+                if (runEnd == 8) {
+                    dst[offset++] = ':';
+                }
+                g = runEnd - 1;
+                continue;
+            }
+            if (g > 0) {
+                dst[offset++] = ':';
+            }
+            int group = group(high, low, g);
+            for (int shift = (28 - Integer.numberOfLeadingZeros(group | 1) + 3) & ~3; shift >= 0; shift -= 4) {
+                dst[offset++] = HEX_DIGITS[(group >>> shift) & 0xF];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Appends a numerical IPv6 address to a StringBuilder, as recommended by RFC 5952.
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     * @param sb   The StringBuilder.
+     * @return The StringBuilder.
+     */
+    public static StringBuilder format(long high, long low, StringBuilder sb) {
+        try {
+            format(high, low, (Appendable) sb);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a numerical IPv6 address to an Appendable, e.g. a Writer, as recommended by RFC 5952.
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     * @param out  The Appendable.
+     * @throws IOException if the Appendable fails.
+     */
+    public static void format(long high, long low, Appendable out) throws IOException {
+        long run = zeroRun(high, low);
+        int runStart = (int) (run >>> 32);
+        int runEnd = (int) run;
+        for (int g = 0; g < 8; g++) {
+            if (g == runStart) {
+                out.append(':');
+                if (runEnd == 8) {
+                    out.append(':');
+                }
+                g = runEnd - 1;
+                continue;
+            }
+            if (g > 0) {
+                out.append(':');
+            }
+            int group = group(high, low, g);
+            for (int shift = (28 - Integer.numberOfLeadingZeros(group | 1) + 3) & ~3; shift >= 0; shift -= 4) {
+                out.append((char) HEX_DIGITS[(group >>> shift) & 0xF]);
+            }
+        }
+    }
+
+    /**
+     * Finds the first longest run of at least two zero groups, which gets compressed to "::".
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     * @return The index of the first group of the run in the upper 32 bits and the index after the run in the lower 32 bits, or -1 if there is no such run.
+     */
+    private static long zeroRun(long high, long low) {
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int g = 0; g < 8; ) {
+            if (group(high, low, g) != 0) {
+                g++;
+                continue;
+            }
+            int start = g;
+            while (g < 8 && group(high, low, g) == 0) {
+                g++;
+            }
+            if (g - start > bestLength) {
+                bestStart = start;
+                bestLength = g - start;
+            }
+        }
+        return bestStart < 0 ? -1 : (long) bestStart << 32 | (bestStart + bestLength);
+    }
+
+    /**
+     * Gets a 16 bit group of a numerical IPv6 address.
+     *
+     * @param high The upper 64 bits of the address.
+     * @param low  The lower 64 bits of the address.
+     * @param num  The index of the group (0-7).
+     * @return The value of the group.
+     */
+    private static int group(long high, long low, int num) {
+        return (int) ((num < 4 ? high : low) >>> (48 - 16 * (num & 3))) & 0xFFFF;
+    }
+
+    /**
+     * Compares two numerical IPv6 addresses as unsigned 128 bit values.
+     *
+     * @param high1 The upper 64 bits of the first address.
+     * @param low1  The lower 64 bits of the first address.
+     * @param high2 The upper 64 bits of the second address.
+     * @param low2  The lower 64 bits of the second address.
+     * @return A negative integer, zero, or a positive integer as the first address is less than, equal to, or greater than the second.
+     */
+    public static int compare(long high1, long low1, long high2, long low2) {
+        int c = Long.compareUnsigned(high1, high2);
+        return c != 0 ? c : Long.compareUnsigned(low1, low2);
+    }
+
+    /**
+     * Checks if the provided object is equal to this IpAddress6.
+     *
+     * @param o The object to compare.
+     * @return True if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof IpAddress6 ip && high == ip.high && low == ip.low);
+    }
+
+    /**
+     * Calculates the hash code of this IpAddress6, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(high) + Long.hashCode(low);
+    }
+
+    /**
+     * Compares this IpAddress6 with another IpAddress6 for order.
+     *
+     * @param o The IpAddress6 to be compared.
+     * @return A negative integer, zero, or a positive integer as this IpAddress6 is less than, equal to, or greater than the specified IpAddress6.
+     */
+    @Override
+    public int compareTo(IpAddress6 o) {
+        return compare(high, low, o.high, o.low);
+    }
+}
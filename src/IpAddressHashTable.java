@@ -0,0 +1,289 @@
+import java.util.Arrays;
+
+/**
+ * Base class for the open addressing hash tables keyed by the numerical representation of an IP address.
+ * Keys are stored in a plain int array with linear probing, 0 marks a free slot and the address 0.0.0.0
+ * is kept in the extra slot at index {@code keys.length}, so subclasses size their value arrays one larger.
+ */
+abstract class IpAddressHashTable {
+    /**
+     * The default load factor of the tables.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    /**
+     * The largest supported capacity.
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+    /**
+     * The keys of the table, 0 marks a free slot.
+     */
+    int[] keys;
+    /**
+     * Whether the address 0.0.0.0 is contained.
+     */
+    boolean hasZeroKey;
+    /**
+     * The number of contained keys.
+     */
+    int size;
+    /**
+     * The load factor of the table.
+     */
+    private final float loadFactor;
+    /**
+     * Mask to get a slot index from a hash.
+     */
+    private int mask;
+    /**
+     * The number of keys at which the table grows.
+     */
+    private int maxFill;
+
+    /**
+     * Constructs a table which can hold the expected number of keys without growing.
+     *
+     * @param expectedSize The expected number of keys.
+     * @param loadFactor   The load factor of the table.
+     * @throws IllegalArgumentException if the expected size is negative or the load factor is not in (0, 1).
+     */
+    IpAddressHashTable(int expectedSize, float loadFactor) {
+        if (expectedSize < 0 || !(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Invalid size or load factor");
+        }
+        this.loadFactor = loadFactor;
+        int capacity = capacityFor(expectedSize);
+        this.keys = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = maxFill(capacity);
+    }
+
+    /**
+     * Spreads the bits of an address, so that consecutive addresses do not end up in consecutive slots.
+     *
+     * @param key The address.
+     * @return The hash of the address.
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the number of contained keys.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the table is empty.
+     *
+     * @return True if no key is contained.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all keys from the table, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key The address.
+     * @return The slot index, or -1 if the key is not contained.
+     */
+    final int find(int key) {
+        if (key == 0) {
+            return hasZeroKey ? keys.length : -1;
+        }
+        int[] keys = this.keys;
+        int pos = mix(key) & mask;
+        int curr;
+        while ((curr = keys[pos]) != 0) {
+            if (curr == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of a key, inserting the key if it is not contained yet.
+     *
+     * @param key The address.
+     * @return The slot index if the key was contained, otherwise the complement ({@code ~index}) of the new slot.
+     */
+    final int insert(int key) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                return keys.length;
+            }
+            growIfFull();
+            hasZeroKey = true;
+            size++;
+            return ~keys.length;
+        }
+        int pos = mix(key) & mask;
+        int curr;
+        while ((curr = keys[pos]) != 0) {
+            if (curr == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        if (growIfFull()) {
+            pos = mix(key) & mask;
+            while (keys[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+        }
+        keys[pos] = key;
+        size++;
+        return ~pos;
+    }
+
+    /**
+     * Removes the key in a slot, shifting back the following keys of its probe sequence.
+     *
+     * @param pos The slot index as returned by {@link #find(int)}.
+     */
+    final void removeAt(int pos) {
+        size--;
+        if (pos == keys.length) {
+            hasZeroKey = false;
+            return;
+        }
+        int[] keys = this.keys;
+        int last;
+        int slot;
+        int curr;
+        for (; ; ) {
+            pos = ((last = pos) + 1) & mask;
+            for (; ; ) {
+                if ((curr = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                slot = mix(curr) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = curr;
+            moveValue(pos, last);
+        }
+    }
+
+    /**
+     * Called when a key is shifted back during removal, subclasses move the value along with it.
+     *
+     * @param from The old slot index.
+     * @param to   The new slot index.
+     */
+    void moveValue(int from, int to) {
+    }
+
+    /**
+     * Called before rehashing, subclasses allocate a new value array and keep the old one until {@link #endRehash()}.
+     *
+     * @param length The length of the new value array.
+     */
+    void beginRehash(int length) {
+    }
+
+    /**
+     * Called during rehashing for every contained key, subclasses copy the value from the old to the new array.
+     *
+     * @param from The slot index in the old array.
+     * @param to   The slot index in the new array.
+     */
+    void rehashValue(int from, int to) {
+    }
+
+    /**
+     * Called after rehashing, subclasses drop the old value array.
+     */
+    void endRehash() {
+    }
+
+    /**
+     * Doubles the capacity if inserting another key would exceed the load factor.
+     *
+     * @return True if the table was rehashed.
+     */
+    private boolean growIfFull() {
+        if (size < maxFill) {
+            return false;
+        }
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Table is full");
+        }
+        rehash(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * Moves all keys and values into a table of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] newKeys = new int[capacity];
+        int newMask = capacity - 1;
+        beginRehash(capacity + 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int pos = mix(key) & newMask;
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & newMask;
+                }
+                newKeys[pos] = key;
+                rehashValue(i, pos);
+            }
+        }
+        if (hasZeroKey) {
+            rehashValue(oldKeys.length, capacity);
+        }
+        endRehash();
+        keys = newKeys;
+        mask = newMask;
+        maxFill = maxFill(capacity);
+    }
+
+    /**
+     * Calculates the capacity needed for a number of keys.
+     *
+     * @param expectedSize The number of keys.
+     * @return A power of two.
+     */
+    private int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size too large");
+        }
+        return Math.max(8, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    /**
+     * Calculates the number of keys at which a table of the given capacity grows.
+     *
+     * @param capacity The capacity.
+     * @return The maximum number of keys.
+     */
+    private int maxFill(int capacity) {
+        return Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * A map from IP addresses to primitive long values, stored in an open addressing hash table.
+ * Meant for per-address counters, uses about 12 bytes per slot instead of boxed keys, values and map entries.
+ * Not thread-safe.
+ */
+public class IpAddressLongMap extends IpAddressHashTable {
+    /**
+     * The values, indexed like the keys with the value of 0.0.0.0 in the last slot.
+     */
+    private long[] values;
+    /**
+     * The values before rehashing, only set while rehashing.
+     */
+    private long[] oldValues;
+
+    /**
+     * Constructs an empty map.
+     */
+    public IpAddressLongMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty map which can hold the expected number of entries without growing.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    public IpAddressLongMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map which can hold the expected number of entries without growing.
+     *
+     * @param expectedSize The expected number of entries.
+     * @param loadFactor   The load factor, between 0 and 1 exclusive.
+     */
+    public IpAddressLongMap(int expectedSize, float loadFactor) {
+        super(expectedSize, loadFactor);
+        values = new long[keys.length + 1];
+    }
+
+    /**
+     * Gets the value of an address.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The value, or 0 if the address is not contained.
+     */
+    public long get(int ip) {
+        return getOrDefault(ip, 0);
+    }
+
+    /**
+     * Gets the value of an address.
+     *
+     * @param ip           The numerical representation of the IP address.
+     * @param defaultValue The value returned if the address is not contained.
+     * @return The value, or the default value if the address is not contained.
+     */
+    public long getOrDefault(int ip, long defaultValue) {
+        int pos = find(ip);
+        return pos < 0 ? defaultValue : values[pos];
+    }
+
+    /**
+     * Checks if an address is contained in the map.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is contained.
+     */
+    public boolean containsKey(int ip) {
+        return find(ip) >= 0;
+    }
+
+    /**
+     * Sets the value of an address.
+     *
+     * @param ip    The numerical representation of the IP address.
+     * @param value The new value.
+     * @return The previous value, or 0 if the address was not contained.
+     */
+    public long put(int ip, long value) {
+        int pos = insert(ip);
+        if (pos < 0) {
+            values[~pos] = value;
+            return 0;
+        }
+        long previous = values[pos];
+        values[pos] = value;
+        return previous;
+    }
+
+    /**
+     * Adds to the value of an address, starting from 0 if the address is not contained.
+     *
+     * @param ip    The numerical representation of the IP address.
+     * @param delta The amount to add.
+     * @return The new value.
+     */
+    public long addTo(int ip, long delta) {
+        int pos = insert(ip);
+        if (pos < 0) {
+            return values[~pos] = delta;
+        }
+        return values[pos] += delta;
+    }
+
+    /**
+     * Increments the value of an address by one, starting from 0 if the address is not contained.
+     *
+     * @param ip The IP address.
+     * @return The new value.
+     */
+    public long increment(IpAddress ip) {
+        return addTo(ip.getAsInt(), 1);
+    }
+
+    /**
+     * Removes an address from the map.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The removed value, or 0 if the address was not contained.
+     */
+    public long remove(int ip) {
+        int pos = find(ip);
+        if (pos < 0) {
+            return 0;
+        }
+        long previous = values[pos];
+        removeAt(pos);
+        return previous;
+    }
+
+    /**
+     * Passes every entry of the map to an action, in no particular order.
+     *
+     * @param action The action receiving each address and value.
+     */
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, values[keys.length]);
+        }
+        int[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void beginRehash(int length) {
+        oldValues = values;
+        values = new long[length];
+    }
+
+    @Override
+    void rehashValue(int from, int to) {
+        values[to] = oldValues[from];
+    }
+
+    @Override
+    void endRehash() {
+        oldValues = null;
+    }
+
+    /**
+     * Receives the entries of an {@link IpAddressLongMap}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Receives one entry.
+         *
+         * @param ip    The numerical representation of the IP address.
+         * @param value The value of the address.
+         */
+        void accept(int ip, long value);
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.function.IntConsumer;
+
+/**
+ * A set of IP addresses stored as primitive ints in an open addressing hash table.
+ * Uses about 4 bytes per slot instead of a boxed {@link IpAddress} and a map entry per element.
+ * Not thread-safe.
+ */
+public class IpAddressSet extends IpAddressHashTable {
+
+    /**
+     * Constructs an empty set.
+     */
+    public IpAddressSet() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty set which can hold the expected number of addresses without growing.
+     *
+     * @param expectedSize The expected number of addresses.
+     */
+    public IpAddressSet(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set which can hold the expected number of addresses without growing.
+     *
+     * @param expectedSize The expected number of addresses.
+     * @param loadFactor   The load factor, between 0 and 1 exclusive.
+     */
+    public IpAddressSet(int expectedSize, float loadFactor) {
+        super(expectedSize, loadFactor);
+    }
+
+    /**
+     * Adds an address to the set.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address was not contained yet.
+     */
+    public boolean add(int ip) {
+        return insert(ip) < 0;
+    }
+
+    /**
+     * Adds an address to the set.
+     *
+     * @param ip The IP address.
+     * @return True if the address was not contained yet.
+     */
+    public boolean add(IpAddress ip) {
+        return add(ip.getAsInt());
+    }
+
+    /**
+     * Checks if an address is contained in the set.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is contained.
+     */
+    public boolean contains(int ip) {
+        return find(ip) >= 0;
+    }
+
+    /**
+     * Checks if an address is contained in the set.
+     *
+     * @param ip The IP address.
+     * @return True if the address is contained.
+     */
+    public boolean contains(IpAddress ip) {
+        return contains(ip.getAsInt());
+    }
+
+    /**
+     * Removes an address from the set.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address was contained.
+     */
+    public boolean remove(int ip) {
+        int pos = find(ip);
+        if (pos < 0) {
+            return false;
+        }
+        removeAt(pos);
+        return true;
+    }
+
+    /**
+     * Removes an address from the set.
+     *
+     * @param ip The IP address.
+     * @return True if the address was contained.
+     */
+    public boolean remove(IpAddress ip) {
+        return remove(ip.getAsInt());
+    }
+
+    /**
+     * Passes every address of the set to an action, in no particular order.
+     *
+     * @param action The action receiving the numerical representation of each address.
+     */
+    public void forEach(IntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0);
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Gets all addresses of the set, in no particular order.
+     *
+     * @return An array of the numerical representations of the addresses.
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        if (hasZeroKey) {
+            result[i++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+}
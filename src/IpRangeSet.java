@@ -0,0 +1,337 @@
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An immutable set of IP addresses, stored as sorted, disjoint and non-adjacent address ranges.
+ * Union, intersection and difference merge the range arrays in linear time and {@link #contains(int)}
+ * is a binary search, so large sets never have to be expanded into single addresses.
+ * Addresses are compared as unsigned values.
+ */
+public final class IpRangeSet {
+    /**
+     * The empty set.
+     */
+    public static final IpRangeSet EMPTY = new IpRangeSet(new int[0], new int[0], 0);
+    /**
+     * The first address of each range.
+     */
+    private final int[] starts;
+    /**
+     * The last address of each range.
+     */
+    private final int[] ends;
+
+    /**
+     * Constructs a set from normalized ranges, trimming the arrays to the used length.
+     *
+     * @param starts The first address of each range.
+     * @param ends   The last address of each range.
+     * @param count  The number of ranges.
+     */
+    private IpRangeSet(int[] starts, int[] ends, int count) {
+        this.starts = starts.length == count ? starts : Arrays.copyOf(starts, count);
+        this.ends = ends.length == count ? ends : Arrays.copyOf(ends, count);
+    }
+
+    /**
+     * Creates a set of all addresses in the given subnets.
+     *
+     * @param subnets The subnets.
+     * @return The set.
+     */
+    public static IpRangeSet of(Subnet... subnets) {
+        return of(Arrays.asList(subnets));
+    }
+
+    /**
+     * Creates a set of all addresses in the given subnets.
+     *
+     * @param subnets The subnets.
+     * @return The set.
+     */
+    public static IpRangeSet of(Collection<Subnet> subnets) {
+        long[] packed = new long[subnets.size()];
+        int i = 0;
+        for (Subnet subnet : subnets) {
+            packed[i++] = subnet.toPackedLong();
+        }
+        Arrays.sort(packed);
+        long[] ranges = SubnetAggregator.merge(packed, 0, packed.length);
+        int[] starts = new int[ranges.length / 2];
+        int[] ends = new int[ranges.length / 2];
+        for (int r = 0; r < starts.length; r++) {
+            starts[r] = (int) ranges[2 * r];
+            ends[r] = (int) ranges[2 * r + 1];
+        }
+        return new IpRangeSet(starts, ends, starts.length);
+    }
+
+    /**
+     * Creates a set of all addresses between two addresses.
+     *
+     * @param first The numerical representation of the first address.
+     * @param last  The numerical representation of the last address.
+     * @return The set.
+     * @throws IllegalArgumentException If the first address is greater than the last one.
+     */
+    public static IpRangeSet ofRange(int first, int last) {
+        if (Integer.compareUnsigned(first, last) > 0) {
+            throw new IllegalArgumentException("Invalid range");
+        }
+        return new IpRangeSet(new int[]{first}, new int[]{last}, 1);
+    }
+
+    /**
+     * Creates a set of all addresses between two addresses.
+     *
+     * @param first The first address.
+     * @param last  The last address.
+     * @return The set.
+     * @throws IllegalArgumentException If the first address is greater than the last one.
+     */
+    public static IpRangeSet ofRange(IpAddress first, IpAddress last) {
+        return ofRange(first.getAsInt(), last.getAsInt());
+    }
+
+    /**
+     * Checks if an address is in the set, in O(log n).
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is in the set.
+     */
+    public boolean contains(int ip) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(starts[mid], ip) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= 0 && Integer.compareUnsigned(ip, ends[hi]) <= 0;
+    }
+
+    /**
+     * Checks if an address is in the set, in O(log n).
+     *
+     * @param ip The IP address.
+     * @return True if the address is in the set.
+     */
+    public boolean contains(IpAddress ip) {
+        return contains(ip.getAsInt());
+    }
+
+    /**
+     * Calculates the union of this set and another one.
+     *
+     * @param other The other set.
+     * @return A set of the addresses in either set.
+     */
+    public IpRangeSet union(IpRangeSet other) {
+        int[] s = new int[starts.length + other.starts.length];
+        int[] e = new int[s.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < starts.length || j < other.starts.length) {
+            long first;
+            long last;
+            if (j == other.starts.length || (i < starts.length && Integer.compareUnsigned(starts[i], other.starts[j]) <= 0)) {
+                first = unsigned(starts[i]);
+                last = unsigned(ends[i++]);
+            } else {
+                first = unsigned(other.starts[j]);
+                last = unsigned(other.ends[j++]);
+            }
+            if (count > 0 && first <= unsigned(e[count - 1]) + 1) {
+                if (last > unsigned(e[count - 1])) {
+                    e[count - 1] = (int) last;
+                }
+            } else {
+                s[count] = (int) first;
+                e[count++] = (int) last;
+            }
+        }
+        return new IpRangeSet(s, e, count);
+    }
+
+    /**
+     * Calculates the intersection of this set and another one.
+     *
+     * @param other The other set.
+     * @return A set of the addresses in both sets.
+     */
+    public IpRangeSet intersection(IpRangeSet other) {
+        int[] s = new int[starts.length + other.starts.length];
+        int[] e = new int[s.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < starts.length && j < other.starts.length) {
+            long first = Math.max(unsigned(starts[i]), unsigned(other.starts[j]));
+            long last = Math.min(unsigned(ends[i]), unsigned(other.ends[j]));
+            if (first <= last) {
+                s[count] = (int) first;
+                e[count++] = (int) last;
+            }
+            if (Integer.compareUnsigned(ends[i], other.ends[j]) < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new IpRangeSet(s, e, count);
+    }
+
+    /**
+     * Calculates the difference of this set and another one.
+     *
+     * @param other The other set.
+     * @return A set of the addresses in this set but not in the other one.
+     */
+    public IpRangeSet difference(IpRangeSet other) {
+        int[] s = new int[starts.length + other.starts.length];
+        int[] e = new int[s.length];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < starts.length; i++) {
+            long first = unsigned(starts[i]);
+            long last = unsigned(ends[i]);
+            while (j < other.starts.length && unsigned(other.ends[j]) < first) {
+                j++;
+            }
+            int k = j;
+            while (first <= last && k < other.starts.length && unsigned(other.starts[k]) <= last) {
+                if (unsigned(other.starts[k]) > first) {
+                    s[count] = (int) first;
+                    e[count++] = (int) (unsigned(other.starts[k]) - 1);
+                }
+                first = unsigned(other.ends[k]) + 1;
+                k++;
+            }
+            if (first <= last) {
+                s[count] = (int) first;
+                e[count++] = (int) last;
+            }
+        }
+        return new IpRangeSet(s, e, count);
+    }
+
+    /**
+     * Covers the set with the minimal list of subnets.
+     *
+     * @return The subnets, ordered by network address.
+     */
+    public Subnet[] toSubnets() {
+        long[] ranges = new long[2 * starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            ranges[2 * i] = unsigned(starts[i]);
+            ranges[2 * i + 1] = unsigned(ends[i]);
+        }
+        long[] packed = SubnetAggregator.toSubnets(ranges, ranges.length);
+        Subnet[] subnets = new Subnet[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            subnets[i] = Subnet.fromPackedLong(packed[i]);
+        }
+        return subnets;
+    }
+
+    /**
+     * Gets the number of ranges of the set.
+     *
+     * @return The number of ranges.
+     */
+    public int getRangeCount() {
+        return starts.length;
+    }
+
+    /**
+     * Gets the first address of a range.
+     *
+     * @param index The index of the range, ranges are in ascending order.
+     * @return The numerical representation of the first address.
+     */
+    public int getRangeStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Gets the last address of a range.
+     *
+     * @param index The index of the range, ranges are in ascending order.
+     * @return The numerical representation of the last address.
+     */
+    public int getRangeEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Gets the number of addresses in the set.
+     *
+     * @return The number of addresses.
+     */
+    public long getNumberOfAddresses() {
+        long total = 0;
+        for (int i = 0; i < starts.length; i++) {
+            total += unsigned(ends[i]) - unsigned(starts[i]) + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return True if the set contains no address.
+     */
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * Converts an address to its unsigned value.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The address as a non-negative long.
+     */
+    private static long unsigned(int ip) {
+        return ip & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Checks if two sets contain the same addresses.
+     *
+     * @param o The other set.
+     * @return True if both sets contain the same addresses.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof IpRangeSet set && Arrays.equals(starts, set.starts) && Arrays.equals(ends, set.ends));
+    }
+
+    /**
+     * Calculates the hash code of the set, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    /**
+     * @return The ranges of the set as a String, e.g. "[10.0.0.0-10.0.0.255, 10.0.2.0-10.0.2.0]"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(IpAddress.toString(starts[i])).append('-').append(IpAddress.toString(ends[i]));
+        }
+        return sb.append(']').toString();
+    }
+}
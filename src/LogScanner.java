@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts IPv4 addresses from large text files, e.g. access logs, without creating a String per line.
+ * The file is memory-mapped in newline-aligned chunks and every run of digits and dots that forms exactly
+ * one address in dot-decimal notation is reported; a single trailing dot, as at the end of a sentence, is ignored.
+ * Chunks can be scanned in parallel.
+ */
+public final class LogScanner {
+    /**
+     * The nominal size of a chunk, chunks are extended to the next newline.
+     */
+    private static final long CHUNK_SIZE = 64L << 20;
+
+    /**
+     * Not instantiable.
+     */
+    private LogScanner() {
+    }
+
+    /**
+     * Scans a file sequentially and passes every address found to a consumer, in file order.
+     *
+     * @param file The file.
+     * @param sink Receives the numerical representation of each address.
+     * @return The number of addresses found.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long scan(Path file, IntConsumer sink) throws IOException {
+        return scan(file, sink, CHUNK_SIZE);
+    }
+
+    /**
+     * Scans a file sequentially in chunks of a given size and passes every address found to a consumer, in file order.
+     *
+     * @param file      The file.
+     * @param sink      Receives the numerical representation of each address.
+     * @param chunkSize The nominal size of a chunk, at least 1.
+     * @return The number of addresses found.
+     * @throws IOException if the file cannot be read.
+     */
+    static long scan(Path file, IntConsumer sink, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, chunkSize);
+            long count = 0;
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                count += scanChunk(channel, bounds[c], bounds[c + 1], sink);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Scans the chunks of a file in parallel and passes every address found to a consumer, in no particular order.
+     *
+     * @param file The file.
+     * @param sink Receives the numerical representation of each address, called concurrently so it must be thread-safe.
+     * @return The number of addresses found.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long scanParallel(Path file, IntConsumer sink) throws IOException {
+        return scanParallel(file, sink, CHUNK_SIZE);
+    }
+
+    /**
+     * Scans the chunks of a given size of a file in parallel and passes every address found to a consumer.
+     *
+     * @param file      The file.
+     * @param sink      Receives the numerical representation of each address, called concurrently.
+     * @param chunkSize The nominal size of a chunk, at least 1.
+     * @return The number of addresses found.
+     * @throws IOException if the file cannot be read.
+     */
+    static long scanParallel(Path file, IntConsumer sink, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, chunkSize);
+            try {
+                return IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToLong(c -> scanChunkUnchecked(channel, bounds[c], bounds[c + 1], sink))
+                        .sum();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Scans a file in parallel and counts the addresses per subnet. An address is counted for every subnet containing it.
+     *
+     * @param file    The file.
+     * @param subnets The subnets.
+     * @return The number of addresses found in each subnet, indexed like the subnets.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long[] countBySubnet(Path file, Subnet[] subnets) throws IOException {
+        return countBySubnet(file, subnets, CHUNK_SIZE);
+    }
+
+    /**
+     * Scans the chunks of a given size of a file in parallel and counts the addresses per subnet.
+     *
+     * @param file      The file.
+     * @param subnets   The subnets.
+     * @param chunkSize The nominal size of a chunk, at least 1.
+     * @return The number of addresses found in each subnet, indexed like the subnets.
+     * @throws IOException if the file cannot be read.
+     */
+    static long[] countBySubnet(Path file, Subnet[] subnets, long chunkSize) throws IOException {
+        int[] nets = new int[subnets.length];
+        int[] masks = new int[subnets.length];
+        for (int i = 0; i < subnets.length; i++) {
+            nets[i] = subnets[i].getNetAddressAsInt();
+            masks[i] = subnets[i].getNetMaskAsInt();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, chunkSize);
+            try {
+                return IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToObj(c -> {
+                            long[] counts = new long[nets.length];
+                            scanChunkUnchecked(channel, bounds[c], bounds[c + 1], ip -> {
+                                for (int i = 0; i < nets.length; i++) {
+                                    if (((ip ^ nets[i]) & masks[i]) == 0) {
+                                        counts[i]++;
+                                    }
+                                }
+                            });
+                            return counts;
+                        })
+                        .reduce(new long[nets.length], (a, b) -> {
+                            long[] sum = new long[a.length];
+                            for (int i = 0; i < sum.length; i++) {
+                                sum[i] = a[i] + b[i];
+                            }
+                            return sum;
+                        });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Finds the addresses in a part of a buffer, which must start and end at a token boundary (e.g. a newline).
+     *
+     * @param buf  The buffer, read with absolute gets.
+     * @param from Index of the first byte.
+     * @param to   Index after the last byte.
+     * @param sink Receives the numerical representation of each address.
+     * @return The number of addresses found.
+     */
+    static int scan(ByteBuffer buf, int from, int to, IntConsumer sink) {
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') {
+                i++;
+                continue;
+            }
+            int ip = 0;
+            int octet = 0;
+            int digits = 0;
+            int dots = 0;
+            boolean valid = true;
+            int end = i;
+            for (; end < to; end++) {
+                byte c = buf.get(end);
+                if (c >= '0' && c <= '9') {
+                    octet = octet * 10 + (c - '0');
+                    valid &= ++digits <= 3;
+                } else if (c == '.') {
+                    if (digits == 0) {
+                        break;
+                    }
+                    if (dots == 3) {
+                        if (end + 1 < to && isDigitOrDot(buf.get(end + 1))) {
+                            valid = false;
+                        }
+                        break;
+                    }
+                    valid &= octet <= 255;
+                    ip = (ip << 8) | octet;
+                    octet = 0;
+                    digits = 0;
+                    dots++;
+                } else {
+                    break;
+                }
+            }
+            if (valid && dots == 3 && digits > 0 && octet <= 255) {
+                sink.accept((ip << 8) | octet);
+                count++;
+            }
+            while (end < to && isDigitOrDot(buf.get(end))) {
+                end++;
+            }
+            i = end;
+        }
+        return count;
+    }
+
+    /**
+     * Checks if a byte is an ASCII digit or a dot.
+     *
+     * @param b The byte.
+     * @return True if the byte can be part of an address.
+     */
+    private static boolean isDigitOrDot(byte b) {
+        return (b >= '0' && b <= '9') || b == '.';
+    }
+
+    /**
+     * Splits a file into chunks of about the given size, each ending after a newline or at the end of the file.
+     *
+     * @param channel   The file.
+     * @param chunkSize The nominal size of a chunk, at least 1.
+     * @return The chunk boundaries, starting with 0 and ending with the file size.
+     * @throws IOException if the file cannot be read.
+     */
+    private static long[] chunkBounds(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        int n = 1;
+        for (int c = 1; c < chunks; c++) {
+            long pos = Math.max(c * chunkSize, bounds[n - 1]);
+            long boundary = size;
+            while (pos < size) {
+                probe.clear();
+                int read = channel.read(probe, pos);
+                if (read <= 0) {
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    boundary = pos + newline + 1;
+                    break;
+                }
+                pos += read;
+            }
+            if (boundary > bounds[n - 1] && boundary < size) {
+                bounds[n++] = boundary;
+            }
+        }
+        bounds[n++] = size;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /**
+     * Maps a chunk of a file and scans it.
+     *
+     * @param channel The file.
+     * @param start   The offset of the chunk.
+     * @param end     The offset after the chunk.
+     * @param sink    Receives the numerical representation of each address.
+     * @return The number of addresses found.
+     * @throws IOException if the file cannot be read.
+     */
+    private static int scanChunk(FileChannel channel, long start, long end, IntConsumer sink) throws IOException {
+        if (end <= start) {
+            return 0;
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return scan(buf, 0, buf.limit(), sink);
+    }
+
+    /**
+     * Maps a chunk of a file and scans it, for use in streams.
+     *
+     * @param channel The file.
+     * @param start   The offset of the chunk.
+     * @param end     The offset after the chunk.
+     * @param sink    Receives the numerical representation of each address.
+     * @return The number of addresses found.
+     * @throws UncheckedIOException if the file cannot be read.
+     */
+    private static int scanChunkUnchecked(FileChannel channel, long start, long end, IntConsumer sink) {
+        try {
+            return scanChunk(channel, start, end, sink);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
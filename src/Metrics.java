@@ -0,0 +1,358 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional instrumentation of the parse, validation and lookup paths: {@link LongAdder} counters, exposed through
+ * the {@link MetricsMXBean} named {@value #OBJECT_NAME}, and JDK Flight Recorder events for rejected input and
+ * address enumerations.
+ * <p>
+ * Instrumentation is enabled by starting the JVM with {@code -Dipsubnet.metrics=true}. The switch is a static final
+ * constant, so when it is off the JIT compiler removes the instrumentation and the hot paths cost nothing extra.
+ */
+public final class Metrics {
+    /**
+     * The system property enabling the instrumentation.
+     */
+    public static final String PROPERTY = "ipsubnet.metrics";
+    /**
+     * Whether the instrumentation is enabled, read once from {@value #PROPERTY}.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+    /**
+     * The name of the MXBean registered with the platform MBean server when enabled.
+     */
+    public static final String OBJECT_NAME = "ipsubnet:type=Metrics";
+    /**
+     * Number of addresses parsed from strings by {@link IpAddress}.
+     */
+    private static final LongAdder ADDRESS_PARSES = new LongAdder();
+    /**
+     * Number of subnets parsed from strings by {@link Subnet}.
+     */
+    private static final LongAdder SUBNET_PARSES = new LongAdder();
+    /**
+     * Number of rejected addresses by reason.
+     */
+    private static final LongAdder[] ADDRESS_FAILURES = newAdders();
+    /**
+     * Number of rejected subnets by reason.
+     */
+    private static final LongAdder[] SUBNET_FAILURES = newAdders();
+    /**
+     * Number of addresses checked by the isInNetwork methods of {@link Subnet}.
+     */
+    private static final LongAdder NETWORK_CHECKS = new LongAdder();
+    /**
+     * Number of calls of {@link Subnet#getAllIpsInNetwork()}.
+     */
+    private static final LongAdder ENUMERATIONS = new LongAdder();
+    /**
+     * Number of addresses returned by {@link Subnet#getAllIpsInNetwork()}.
+     */
+    private static final LongAdder ENUMERATED_ADDRESSES = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // Another class loader registered the name first, the counters are still readable through this class.
+            }
+        }
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * The management interface of the counters.
+     */
+    public interface MetricsMXBean {
+        /**
+         * Gets the number of addresses parsed from strings.
+         *
+         * @return The number of successfully parsed addresses.
+         */
+        long getAddressParses();
+
+        /**
+         * Gets the number of subnets parsed from strings.
+         *
+         * @return The number of successfully parsed subnets.
+         */
+        long getSubnetParses();
+
+        /**
+         * Gets the number of rejected addresses by reason.
+         *
+         * @return The counts, keyed by the names of the {@link ParseError} constants.
+         */
+        Map<String, Long> getAddressFailures();
+
+        /**
+         * Gets the number of rejected subnets by reason.
+         *
+         * @return The counts, keyed by the names of the {@link ParseError} constants.
+         */
+        Map<String, Long> getSubnetFailures();
+
+        /**
+         * Gets the number of addresses checked by the isInNetwork methods.
+         *
+         * @return The number of checked addresses.
+         */
+        long getNetworkChecks();
+
+        /**
+         * Gets the number of address enumerations of whole subnets.
+         *
+         * @return The number of enumerations.
+         */
+        long getEnumerations();
+
+        /**
+         * Gets the number of addresses returned by enumerations of whole subnets.
+         *
+         * @return The number of addresses.
+         */
+        long getEnumeratedAddresses();
+
+        /**
+         * Resets all counters to zero.
+         */
+        void reset();
+    }
+
+    /**
+     * Flight Recorder event of a rejected address or subnet.
+     */
+    @Name("ipsubnet.ParseFailure")
+    @Label("Parse Failure")
+    @Category("IP Subnet")
+    @Description("An address or subnet string was rejected")
+    static final class ParseFailureEvent extends Event {
+        /**
+         * Whether a subnet or an address was parsed.
+         */
+        @Label("Kind")
+        String kind;
+        /**
+         * The rejected input.
+         */
+        @Label("Input")
+        String input;
+        /**
+         * The name of the {@link ParseError}.
+         */
+        @Label("Reason")
+        String reason;
+    }
+
+    /**
+     * Flight Recorder event of an enumeration of all addresses of a subnet.
+     */
+    @Name("ipsubnet.AddressEnumeration")
+    @Label("Address Enumeration")
+    @Category("IP Subnet")
+    @Description("All addresses of a subnet were materialized")
+    static final class AddressEnumerationEvent extends Event {
+        /**
+         * The subnet in CIDR notation.
+         */
+        @Label("Subnet")
+        String subnet;
+        /**
+         * The number of returned addresses.
+         */
+        @Label("Addresses")
+        int addresses;
+    }
+
+    /**
+     * Counts an address parsed from a string.
+     */
+    static void addressParsed() {
+        if (ENABLED) {
+            ADDRESS_PARSES.increment();
+        }
+    }
+
+    /**
+     * Counts a subnet parsed from a string.
+     */
+    static void subnetParsed() {
+        if (ENABLED) {
+            SUBNET_PARSES.increment();
+        }
+    }
+
+    /**
+     * Counts a rejected address or subnet, emits a Flight Recorder event and creates the exception to throw.
+     *
+     * @param subnet Whether a subnet or an address was rejected.
+     * @param input  The rejected input.
+     * @param error  The reason.
+     * @return The exception, with the input and the reason in its message.
+     */
+    static IllegalArgumentException parseFailed(boolean subnet, Object input, ParseError error) {
+        String kind = subnet ? "subnet" : "IP address";
+        if (ENABLED) {
+            (subnet ? SUBNET_FAILURES : ADDRESS_FAILURES)[error.ordinal()].increment();
+            ParseFailureEvent event = new ParseFailureEvent();
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.input = String.valueOf(input);
+                event.reason = error.name();
+                event.commit();
+            }
+        }
+        return new IllegalArgumentException("Invalid " + kind + " \"" + input + "\": " + error.getDescription());
+    }
+
+    /**
+     * Counts addresses checked against a subnet.
+     *
+     * @param addresses The number of addresses.
+     */
+    static void networkChecked(int addresses) {
+        if (ENABLED) {
+            NETWORK_CHECKS.add(addresses);
+        }
+    }
+
+    /**
+     * Starts the Flight Recorder event of an address enumeration.
+     *
+     * @return The started event, or null if instrumentation is disabled.
+     */
+    static AddressEnumerationEvent beginEnumeration() {
+        if (!ENABLED) {
+            return null;
+        }
+        AddressEnumerationEvent event = new AddressEnumerationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Counts an address enumeration and commits its Flight Recorder event.
+     *
+     * @param event     The event returned by {@link #beginEnumeration()}.
+     * @param subnet    The enumerated subnet.
+     * @param addresses The number of returned addresses.
+     */
+    static void endEnumeration(AddressEnumerationEvent event, Subnet subnet, int addresses) {
+        if (ENABLED) {
+            ENUMERATIONS.increment();
+            ENUMERATED_ADDRESSES.add(addresses);
+            event.end();
+            if (event.shouldCommit()) {
+                event.subnet = subnet.toCidrString();
+                event.addresses = addresses;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Gets the management interface of the counters, also when it is not registered.
+     *
+     * @return The counters.
+     */
+    public static MetricsMXBean get() {
+        return new Bean();
+    }
+
+    /**
+     * Creates one counter per {@link ParseError}.
+     *
+     * @return The counters.
+     */
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[ParseError.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Reads counters per {@link ParseError}.
+     *
+     * @param adders The counters.
+     * @return The counts, keyed by reason name, in declaration order.
+     */
+    private static Map<String, Long> toMap(LongAdder[] adders) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ParseError error : ParseError.values()) {
+            result.put(error.name(), adders[error.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * Reads the static counters.
+     */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public long getAddressParses() {
+            return ADDRESS_PARSES.sum();
+        }
+
+        @Override
+        public long getSubnetParses() {
+            return SUBNET_PARSES.sum();
+        }
+
+        @Override
+        public Map<String, Long> getAddressFailures() {
+            return toMap(ADDRESS_FAILURES);
+        }
+
+        @Override
+        public Map<String, Long> getSubnetFailures() {
+            return toMap(SUBNET_FAILURES);
+        }
+
+        @Override
+        public long getNetworkChecks() {
+            return NETWORK_CHECKS.sum();
+        }
+
+        @Override
+        public long getEnumerations() {
+            return ENUMERATIONS.sum();
+        }
+
+        @Override
+        public long getEnumeratedAddresses() {
+            return ENUMERATED_ADDRESSES.sum();
+        }
+
+        @Override
+        public void reset() {
+            ADDRESS_PARSES.reset();
+            SUBNET_PARSES.reset();
+            for (int i = 0; i < ADDRESS_FAILURES.length; i++) {
+                ADDRESS_FAILURES[i].reset();
+                SUBNET_FAILURES[i].reset();
+            }
+            NETWORK_CHECKS.reset();
+            ENUMERATIONS.reset();
+            ENUMERATED_ADDRESSES.reset();
+        }
+    }
+}
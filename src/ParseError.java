@@ -0,0 +1,101 @@
+/**
+ * The reasons why an address or subnet is rejected, used in exception messages and counted by {@link Metrics}.
+ */
+public enum ParseError {
+    /**
+     * The input is empty.
+     */
+    EMPTY("is empty"),
+    /**
+     * The input contains a character other than a digit or a dot where an address is expected.
+     */
+    INVALID_CHARACTER("contains a character other than digits and dots"),
+    /**
+     * The input does not consist of four non-empty octets separated by dots.
+     */
+    OCTET_COUNT("does not consist of four dot-separated octets"),
+    /**
+     * An octet is greater than 255.
+     */
+    OCTET_RANGE("has an octet greater than 255"),
+    /**
+     * A subnet has no slash between the address and the mask.
+     */
+    MISSING_SLASH("has no '/' between address and mask"),
+    /**
+     * The prefix length is not a number from 0 to 32.
+     */
+    PREFIX_LENGTH("has a prefix length that is not a number from 0 to 32"),
+    /**
+     * The one bits of the subnet mask are not contiguous.
+     */
+    INVALID_MASK("has a subnet mask whose one bits are not contiguous"),
+    /**
+     * A classful prefix length was requested for an address of class D or E.
+     */
+    NOT_CLASSFUL("is not a class A, B or C address"),
+    /**
+     * The first address of a range is greater than the last one.
+     */
+    RANGE_ORDER("has a first address greater than its last address");
+
+    /**
+     * The description used in exception messages.
+     */
+    private final String description;
+
+    /**
+     * Constructs a reason.
+     *
+     * @param description The description used in exception messages.
+     */
+    ParseError(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Gets the description used in exception messages.
+     *
+     * @return The description, completing a sentence whose subject is the input.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Finds out why a part of a character sequence is not a valid address in dot-decimal notation.
+     * Only called after a parse method failed, so it may be slow.
+     *
+     * @param s      The characters.
+     * @param offset Index of the first character.
+     * @param length Number of characters.
+     * @return The reason, {@link #OCTET_COUNT} if the input is in fact valid.
+     */
+    static ParseError ofAddress(CharSequence s, int offset, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        int octets = 1;
+        int digits = 0;
+        int octet = 0;
+        boolean tooLarge = false;
+        for (int i = offset; i < offset + length; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = Math.min(octet * 10 + (c - '0'), 256);
+                tooLarge |= octet > 255;
+                digits++;
+            } else if (c == '.') {
+                if (digits == 0) {
+                    return OCTET_COUNT;
+                }
+                octets++;
+                octet = 0;
+                digits = 0;
+            } else {
+                return INVALID_CHARACTER;
+            }
+        }
+        return octets != 4 || digits == 0 || !tooLarge ? OCTET_COUNT : OCTET_RANGE;
+    }
+}
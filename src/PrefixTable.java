@@ -0,0 +1,363 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A routing table mapping subnets to values with longest prefix match lookup.
+ * The lookup structure is a multibit trie with a stride of 8 bits, so a lookup visits at most four nodes
+ * and does not allocate. Every node holds the expanded value of the longest prefix ending in it for each of
+ * its 256 slots.
+ * <p>
+ * Lookups read an immutable snapshot of the trie and never block. Writers are serialized, copy the nodes on
+ * the path to the changed prefix and publish a new snapshot, so readers always see a consistent table.
+ * {@link #putAll(Map)} instead builds the whole trie in place and publishes it once, which is much cheaper
+ * when loading many subnets.
+ *
+ * @param <V> The type of the values.
+ */
+public class PrefixTable<V> {
+    /**
+     * Number of address bits consumed per trie level.
+     */
+    private static final int STRIDE = 8;
+    /**
+     * Number of slots per trie node.
+     */
+    private static final int FANOUT = 1 << STRIDE;
+    /**
+     * Number of trie levels, the last level holds the prefixes of length 25 to 32.
+     */
+    private static final int LEVELS = 32 / STRIDE;
+    /**
+     * All prefixes of the table, keyed by {@link #key(int, int)}. Only accessed by writers.
+     */
+    private final Map<Long, V> prefixes = new HashMap<>();
+    /**
+     * The currently published state of the table.
+     */
+    private volatile Snapshot snapshot = new Snapshot(null, null, 0);
+
+    /**
+     * Calculates the subnet mask of a prefix length.
+     *
+     * @param prefixLength The prefix length (0-32).
+     * @return The subnet mask.
+     */
+    private static int mask(int prefixLength) {
+        return prefixLength == 0 ? 0 : ~0 << (32 - prefixLength);
+    }
+
+    /**
+     * Calculates the key of a prefix in the prefix map.
+     *
+     * @param network      The network address, with the host bits cleared.
+     * @param prefixLength The prefix length.
+     * @return The key.
+     */
+    private static long key(int network, int prefixLength) {
+        return ((long) prefixLength << 32) | (network & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Finds the value of the most specific subnet containing an address.
+     *
+     * @param addr The numerical representation of the IP address.
+     * @return The value of the longest matching prefix, or null if no prefix matches.
+     */
+    @SuppressWarnings("unchecked")
+    public V lookup(int addr) {
+        Snapshot s = snapshot;
+        Object best = s.defaultValue;
+        Node node = s.root;
+        for (int shift = 32 - STRIDE; node != null; shift -= STRIDE) {
+            int slot = (addr >>> shift) & (FANOUT - 1);
+            Object value = node.values[slot];
+            if (value != null) {
+                best = value;
+            }
+            if (node.children == null) {
+                break;
+            }
+            node = node.children[slot];
+        }
+        return (V) best;
+    }
+
+    /**
+     * Finds the value of the most specific subnet containing an address.
+     *
+     * @param addr The IP address.
+     * @return The value of the longest matching prefix, or null if no prefix matches.
+     */
+    public V lookup(IpAddress addr) {
+        return lookup(addr.getAsInt());
+    }
+
+    /**
+     * Gets the value stored for exactly this subnet.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     * @return The value, or null if the subnet is not in the table.
+     */
+    public synchronized V get(Subnet subnet) {
+        int prefixLength = subnet.getPrefixLength();
+        return prefixes.get(key(subnet.getNetAddressAsInt(), prefixLength));
+    }
+
+    /**
+     * Gets the number of subnets in the table.
+     *
+     * @return The number of subnets.
+     */
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * Adds a subnet to the table or replaces its value.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     * @param value  The value, not null.
+     * @return The previous value of the subnet, or null if it was not in the table.
+     */
+    public V put(Subnet subnet, V value) {
+        return put(subnet.getNetAddressAsInt(), subnet.getPrefixLength(), value);
+    }
+
+    /**
+     * Adds a prefix to the table or replaces its value.
+     *
+     * @param network      The network address, host bits are ignored.
+     * @param prefixLength The prefix length (0-32).
+     * @param value        The value, not null.
+     * @return The previous value of the prefix, or null if it was not in the table.
+     * @throws IllegalArgumentException if the prefix length is out of range.
+     */
+    public synchronized V put(int network, int prefixLength, V value) {
+        Objects.requireNonNull(value);
+        checkPrefixLength(prefixLength);
+        network &= mask(prefixLength);
+        V previous = prefixes.put(key(network, prefixLength), value);
+        publish(network, prefixLength);
+        return previous;
+    }
+
+    /**
+     * Adds many subnets to the table or replaces their values. The trie is rebuilt from all prefixes of the table
+     * without copying any node and published as one snapshot, so lookups see either none or all of the changes.
+     *
+     * @param entries The subnets, host bits of their addresses are ignored, and their values, not null.
+     */
+    public synchronized void putAll(Map<Subnet, ? extends V> entries) {
+        for (V value : entries.values()) {
+            Objects.requireNonNull(value);
+        }
+        for (Map.Entry<Subnet, ? extends V> entry : entries.entrySet()) {
+            Subnet subnet = entry.getKey();
+            prefixes.put(key(subnet.getNetAddressAsInt(), subnet.getPrefixLength()), entry.getValue());
+        }
+        long[] keys = new long[prefixes.size()];
+        int n = 0;
+        for (long key : prefixes.keySet()) {
+            keys[n++] = key;
+        }
+        Arrays.sort(keys);
+        Node root = null;
+        for (long key : keys) {
+            int prefixLength = (int) (key >>> 32);
+            if (prefixLength == 0) {
+                continue;
+            }
+            int network = (int) key;
+            if (root == null) {
+                root = new Node(0);
+            }
+            Node node = root;
+            int level = 0;
+            for (; prefixLength > STRIDE * (level + 1); level++) {
+                int slot = (network >>> (32 - STRIDE * (level + 1))) & (FANOUT - 1);
+                if (node.children[slot] == null) {
+                    node.children[slot] = new Node(level + 1);
+                }
+                node = node.children[slot];
+            }
+            // Keys are sorted by prefix length, so longer prefixes overwrite the slots of shorter ones.
+            int slot = (network >>> (32 - STRIDE * (level + 1))) & (FANOUT - 1);
+            Arrays.fill(node.values, slot, slot + (1 << (STRIDE * (level + 1) - prefixLength)), prefixes.get(key));
+        }
+        snapshot = new Snapshot(root, prefixes.get(key(0, 0)), prefixes.size());
+    }
+
+    /**
+     * Removes a subnet from the table.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     * @return The value of the subnet, or null if it was not in the table.
+     */
+    public V remove(Subnet subnet) {
+        return remove(subnet.getNetAddressAsInt(), subnet.getPrefixLength());
+    }
+
+    /**
+     * Removes a prefix from the table.
+     *
+     * @param network      The network address, host bits are ignored.
+     * @param prefixLength The prefix length (0-32).
+     * @return The value of the prefix, or null if it was not in the table.
+     * @throws IllegalArgumentException if the prefix length is out of range.
+     */
+    public synchronized V remove(int network, int prefixLength) {
+        checkPrefixLength(prefixLength);
+        network &= mask(prefixLength);
+        V previous = prefixes.remove(key(network, prefixLength));
+        if (previous != null) {
+            publish(network, prefixLength);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes all subnets from the table.
+     */
+    public synchronized void clear() {
+        prefixes.clear();
+        snapshot = new Snapshot(null, null, 0);
+    }
+
+    /**
+     * Checks if a prefix length is valid.
+     *
+     * @param prefixLength The prefix length.
+     * @throws IllegalArgumentException if the prefix length is out of range.
+     */
+    private static void checkPrefixLength(int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw new IllegalArgumentException("Invalid prefix length");
+        }
+    }
+
+    /**
+     * Publishes a new snapshot after a prefix was added, changed or removed.
+     *
+     * @param network      The network address of the changed prefix.
+     * @param prefixLength The prefix length of the changed prefix.
+     */
+    private void publish(int network, int prefixLength) {
+        Snapshot s = snapshot;
+        if (prefixLength == 0) {
+            snapshot = new Snapshot(s.root, prefixes.get(key(0, 0)), prefixes.size());
+        } else {
+            snapshot = new Snapshot(update(s.root, 0, network, prefixLength), s.defaultValue, prefixes.size());
+        }
+    }
+
+    /**
+     * Copies the nodes on the path to a changed prefix and recalculates the affected slots.
+     *
+     * @param node         The node of the current level, may be null.
+     * @param level        The current level.
+     * @param network      The network address of the changed prefix.
+     * @param prefixLength The prefix length of the changed prefix.
+     * @return The copied node, or null if it became empty.
+     */
+    private Node update(Node node, int level, int network, int prefixLength) {
+        Node copy = node == null ? new Node(level) : node.copy();
+        int shift = 32 - STRIDE * (level + 1);
+        int slot = (network >>> shift) & (FANOUT - 1);
+        if (prefixLength <= STRIDE * (level + 1)) {
+            int span = 1 << (STRIDE * (level + 1) - prefixLength);
+            int pathBits = network & mask(STRIDE * level);
+            for (int i = slot; i < slot + span; i++) {
+                copy.values[i] = bestMatch(pathBits | (i << shift), level);
+            }
+        } else {
+            copy.children[slot] = update(copy.children[slot], level + 1, network, prefixLength);
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    /**
+     * Finds the value of the longest prefix ending in a level which covers a slot.
+     *
+     * @param slotAddress The lowest address of the slot.
+     * @param level       The level of the slot.
+     * @return The value, or null if no prefix of the level covers the slot.
+     */
+    private V bestMatch(int slotAddress, int level) {
+        for (int prefixLength = STRIDE * (level + 1); prefixLength > STRIDE * level; prefixLength--) {
+            V value = prefixes.get(key(slotAddress & mask(prefixLength), prefixLength));
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * An immutable state of the table as seen by lookups.
+     *
+     * @param root         The root node of the trie, null if there are no prefixes longer than 0.
+     * @param defaultValue The value of the prefix 0.0.0.0/0, may be null.
+     * @param size         The number of prefixes.
+     */
+    private record Snapshot(Node root, Object defaultValue, int size) {
+    }
+
+    /**
+     * A trie node, never modified once it is part of a published snapshot.
+     */
+    private static final class Node {
+        /**
+         * The value of the longest prefix ending in this node for each slot.
+         */
+        final Object[] values;
+        /**
+         * The child nodes for each slot, null on the last level.
+         */
+        final Node[] children;
+
+        /**
+         * Constructs an empty node.
+         *
+         * @param level The level of the node.
+         */
+        Node(int level) {
+            this(new Object[FANOUT], level < LEVELS - 1 ? new Node[FANOUT] : null);
+        }
+
+        /**
+         * Constructs a node from its slots.
+         *
+         * @param values   The values.
+         * @param children The child nodes.
+         */
+        private Node(Object[] values, Node[] children) {
+            this.values = values;
+            this.children = children;
+        }
+
+        /**
+         * Copies the node, so it can be modified.
+         *
+         * @return The copy.
+         */
+        Node copy() {
+            return new Node(values.clone(), children == null ? null : children.clone());
+        }
+
+        /**
+         * Checks if the node has neither values nor children.
+         *
+         * @return True if the node is empty.
+         */
+        boolean isEmpty() {
+            for (int i = 0; i < FANOUT; i++) {
+                if (values[i] != null || (children != null && children[i] != null)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
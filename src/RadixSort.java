@@ -0,0 +1,430 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Unsigned LSD radix sorts for numerical IP addresses and packed subnets, with in-place dedupe and counting of
+ * sorted keys. Ints sort in the order of {@link IpAddress#compareTo(IpAddress)}, longs packed by
+ * {@link Subnet#toPackedLong()} in the order of {@link Subnet#NETWORK_PREFIX_ORDER}, which refines
+ * {@link Subnet#compareTo(Subnet)}.
+ * <p>
+ * The sorts make one counting pass per byte, skipping bytes equal in all keys, so packed subnets need at most five
+ * passes. They are stable and need a buffer as large as the range. The parallel variants count and scatter
+ * chunks of the range on the common fork-join pool.
+ */
+public final class RadixSort {
+    /**
+     * Ranges shorter than this are sorted by comparison.
+     */
+    private static final int SMALL = 1 << 10;
+    /**
+     * Minimum number of keys per chunk when sorting in parallel.
+     */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    /**
+     * Not instantiable.
+     */
+    private RadixSort() {
+    }
+
+    /**
+     * Sorts numerical IP addresses as unsigned values.
+     *
+     * @param a The addresses.
+     */
+    public static void sort(int[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a range of numerical IP addresses as unsigned values.
+     *
+     * @param a    The addresses.
+     * @param from Index of the first address.
+     * @param to   Index after the last address.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static void sort(int[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int n = to - from;
+        if (n < SMALL) {
+            sortSmall(a, from, to);
+            return;
+        }
+        int[][] counts = new int[4][256];
+        for (int i = from; i < to; i++) {
+            int x = a[i];
+            counts[0][x & 0xFF]++;
+            counts[1][(x >>> 8) & 0xFF]++;
+            counts[2][(x >>> 16) & 0xFF]++;
+            counts[3][x >>> 24]++;
+        }
+        int[] src = a;
+        int srcOff = from;
+        int[] dst = new int[n];
+        int dstOff = 0;
+        for (int pass = 0, shift = 0; pass < 4; pass++, shift += 8) {
+            int[] count = counts[pass];
+            if (count[(a[from] >>> shift) & 0xFF] == n) {
+                continue;
+            }
+            for (int d = 0, sum = dstOff; d < 256; d++) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+            for (int i = srcOff; i < srcOff + n; i++) {
+                int x = src[i];
+                dst[count[(x >>> shift) & 0xFF]++] = x;
+            }
+            int[] t = src;
+            src = dst;
+            dst = t;
+            int o = srcOff;
+            srcOff = dstOff;
+            dstOff = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcOff, a, from, n);
+        }
+    }
+
+    /**
+     * Sorts numerical IP addresses as unsigned values in parallel.
+     *
+     * @param a The addresses.
+     */
+    public static void parallelSort(int[] a) {
+        parallelSort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a range of numerical IP addresses as unsigned values in parallel.
+     *
+     * @param a    The addresses.
+     * @param from Index of the first address.
+     * @param to   Index after the last address.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static void parallelSort(int[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int n = to - from;
+        int chunks = Math.min(n / MIN_CHUNK, 4 * Runtime.getRuntime().availableProcessors());
+        if (chunks < 2) {
+            sort(a, from, to);
+            return;
+        }
+        int[] bounds = chunkBounds(n, chunks);
+        int[][] offsets = new int[chunks][256];
+        int[] src = a;
+        int srcOff = from;
+        int[] dst = new int[n];
+        int dstOff = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int[] s = src;
+            int so = srcOff;
+            int sh = shift;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] count = offsets[c];
+                Arrays.fill(count, 0);
+                for (int i = so + bounds[c]; i < so + bounds[c + 1]; i++) {
+                    count[(s[i] >>> sh) & 0xFF]++;
+                }
+            });
+            if (!toOffsets(offsets, (src[srcOff] >>> shift) & 0xFF, n, dstOff)) {
+                continue;
+            }
+            int[] d = dst;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] offset = offsets[c];
+                for (int i = so + bounds[c]; i < so + bounds[c + 1]; i++) {
+                    int x = s[i];
+                    d[offset[(x >>> sh) & 0xFF]++] = x;
+                }
+            });
+            dst = src;
+            src = d;
+            int o = srcOff;
+            srcOff = dstOff;
+            dstOff = o;
+        }
+        if (src != a) {
+            int[] s = src;
+            int so = srcOff;
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                    System.arraycopy(s, so + bounds[c], a, from + bounds[c], bounds[c + 1] - bounds[c]));
+        }
+    }
+
+    /**
+     * Sorts longs as unsigned values, e.g. subnets packed by {@link Subnet#toPackedLong()}.
+     *
+     * @param a The values.
+     */
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a range of longs as unsigned values, e.g. subnets packed by {@link Subnet#toPackedLong()}.
+     *
+     * @param a    The values.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static void sort(long[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int n = to - from;
+        if (n < SMALL) {
+            sortSmall(a, from, to);
+            return;
+        }
+        int[][] counts = new int[8][256];
+        for (int i = from; i < to; i++) {
+            long x = a[i];
+            for (int pass = 0; pass < 8; pass++) {
+                counts[pass][(int) (x >>> (8 * pass)) & 0xFF]++;
+            }
+        }
+        long[] src = a;
+        int srcOff = from;
+        long[] dst = new long[n];
+        int dstOff = 0;
+        for (int pass = 0, shift = 0; pass < 8; pass++, shift += 8) {
+            int[] count = counts[pass];
+            if (count[(int) (a[from] >>> shift) & 0xFF] == n) {
+                continue;
+            }
+            for (int d = 0, sum = dstOff; d < 256; d++) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+            for (int i = srcOff; i < srcOff + n; i++) {
+                long x = src[i];
+                dst[count[(int) (x >>> shift) & 0xFF]++] = x;
+            }
+            long[] t = src;
+            src = dst;
+            dst = t;
+            int o = srcOff;
+            srcOff = dstOff;
+            dstOff = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcOff, a, from, n);
+        }
+    }
+
+    /**
+     * Sorts longs as unsigned values in parallel, e.g. subnets packed by {@link Subnet#toPackedLong()}.
+     *
+     * @param a The values.
+     */
+    public static void parallelSort(long[] a) {
+        parallelSort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a range of longs as unsigned values in parallel, e.g. subnets packed by {@link Subnet#toPackedLong()}.
+     *
+     * @param a    The values.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static void parallelSort(long[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int n = to - from;
+        int chunks = Math.min(n / MIN_CHUNK, 4 * Runtime.getRuntime().availableProcessors());
+        if (chunks < 2) {
+            sort(a, from, to);
+            return;
+        }
+        int[] bounds = chunkBounds(n, chunks);
+        int[][] offsets = new int[chunks][256];
+        long[] src = a;
+        int srcOff = from;
+        long[] dst = new long[n];
+        int dstOff = 0;
+        for (int shift = 0; shift < 64; shift += 8) {
+            long[] s = src;
+            int so = srcOff;
+            int sh = shift;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] count = offsets[c];
+                Arrays.fill(count, 0);
+                for (int i = so + bounds[c]; i < so + bounds[c + 1]; i++) {
+                    count[(int) (s[i] >>> sh) & 0xFF]++;
+                }
+            });
+            if (!toOffsets(offsets, (int) (src[srcOff] >>> shift) & 0xFF, n, dstOff)) {
+                continue;
+            }
+            long[] d = dst;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] offset = offsets[c];
+                for (int i = so + bounds[c]; i < so + bounds[c + 1]; i++) {
+                    long x = s[i];
+                    d[offset[(int) (x >>> sh) & 0xFF]++] = x;
+                }
+            });
+            dst = src;
+            src = d;
+            int o = srcOff;
+            srcOff = dstOff;
+            dstOff = o;
+        }
+        if (src != a) {
+            long[] s = src;
+            int so = srcOff;
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                    System.arraycopy(s, so + bounds[c], a, from + bounds[c], bounds[c + 1] - bounds[c]));
+        }
+    }
+
+    /**
+     * Removes repeated values from a sorted range in place.
+     *
+     * @param a    The values, sorted so that equal values are adjacent.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     * @return The index after the last distinct value, the distinct values are moved to the start of the range.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static int dedupe(int[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int end = from;
+        for (int i = from; i < to; i++) {
+            if (end == from || a[i] != a[end - 1]) {
+                a[end++] = a[i];
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Removes repeated values from a sorted range in place.
+     *
+     * @param a    The values, sorted so that equal values are adjacent.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     * @return The index after the last distinct value, the distinct values are moved to the start of the range.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static int dedupe(long[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int end = from;
+        for (int i = from; i < to; i++) {
+            if (end == from || a[i] != a[end - 1]) {
+                a[end++] = a[i];
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Counts the occurrences of each value of a sorted range in place.
+     *
+     * @param a      The values, sorted so that equal values are adjacent.
+     * @param from   Index of the first value.
+     * @param to     Index after the last value.
+     * @param counts Receives the number of occurrences of the k-th distinct value at index k, needs room for the
+     *               number of distinct values.
+     * @return The number of distinct values, which are moved to the start of the range.
+     * @throws IndexOutOfBoundsException If the range is out of bounds.
+     */
+    public static int countByKey(int[] a, int from, int to, int[] counts) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int distinct = 0;
+        for (int i = from; i < to; i++) {
+            if (distinct == 0 || a[i] != a[from + distinct - 1]) {
+                a[from + distinct] = a[i];
+                counts[distinct++] = 1;
+            } else {
+                counts[distinct - 1]++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Sorts a short range of ints as unsigned values by flipping the sign bits around a comparison sort.
+     *
+     * @param a    The values.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     */
+    private static void sortSmall(int[] a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            a[i] ^= Integer.MIN_VALUE;
+        }
+        Arrays.sort(a, from, to);
+        for (int i = from; i < to; i++) {
+            a[i] ^= Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Sorts a short range of longs as unsigned values by flipping the sign bits around a comparison sort.
+     *
+     * @param a    The values.
+     * @param from Index of the first value.
+     * @param to   Index after the last value.
+     */
+    private static void sortSmall(long[] a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            a[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(a, from, to);
+        for (int i = from; i < to; i++) {
+            a[i] ^= Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Splits a range into chunks of about equal size.
+     *
+     * @param n      The length of the range.
+     * @param chunks The number of chunks.
+     * @return The chunk bounds relative to the range start, chunk c covers bounds[c] to bounds[c + 1].
+     */
+    private static int[] chunkBounds(int n, int chunks) {
+        int[] bounds = new int[chunks + 1];
+        for (int c = 0; c <= chunks; c++) {
+            bounds[c] = (int) ((long) n * c / chunks);
+        }
+        return bounds;
+    }
+
+    /**
+     * Turns per-chunk digit counts into the positions where each chunk writes its first key of each digit,
+     * digit by digit and chunk by chunk so the scatter is stable.
+     *
+     * @param counts The counts per chunk and digit, replaced by the positions.
+     * @param digit  The digit of any key of the range.
+     * @param n      The number of keys.
+     * @param start  The position of the first key in the destination.
+     * @return False if all keys have the same digit, so the pass can be skipped.
+     */
+    private static boolean toOffsets(int[][] counts, int digit, int n, int start) {
+        int same = 0;
+        for (int[] count : counts) {
+            same += count[digit];
+        }
+        if (same == n) {
+            return false;
+        }
+        int sum = start;
+        for (int d = 0; d < 256; d++) {
+            for (int[] count : counts) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,482 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only database of disjoint address ranges mapped to values, like a GeoIP or ASN table.
+ * The ranges are stored as columns of primitive ints outside the heap, either in a direct buffer or in a
+ * memory-mapped file, and a lookup is an allocation-free binary search over the first addresses.
+ * Values are strings stored once in a dictionary, the ranges refer to them by id.
+ * <p>
+ * File format, big-endian: a 20 byte header with the magic number {@code "RNGD"}, the format version, the number
+ * of ranges n, the number of values m and the CRC32 of the rest of the file, followed by n first addresses,
+ * n last addresses and n value ids as ints, and m values as UTF-8 strings prefixed with their length as unsigned short.
+ * Ranges are sorted by first address and do not overlap.
+ */
+public final class RangeDatabase {
+    /**
+     * Returned by the lookup methods if no range contains the address.
+     */
+    public static final int NO_VALUE = -1;
+    /**
+     * The magic number at the start of every database file, "RNGD" in ASCII.
+     */
+    private static final int MAGIC = 0x524E4744;
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 20;
+    /**
+     * The whole database in the file format.
+     */
+    private final ByteBuffer buf;
+    /**
+     * The first addresses of the ranges.
+     */
+    private final IntBuffer firsts;
+    /**
+     * The last addresses of the ranges.
+     */
+    private final IntBuffer lasts;
+    /**
+     * The value ids of the ranges.
+     */
+    private final IntBuffer ids;
+    /**
+     * The values by id.
+     */
+    private final String[] values;
+    /**
+     * The number of ranges.
+     */
+    private final int size;
+
+    /**
+     * Constructs a database from a validated buffer.
+     *
+     * @param buf    The database in the file format.
+     * @param size   The number of ranges.
+     * @param values The decoded values.
+     */
+    private RangeDatabase(ByteBuffer buf, int size, String[] values) {
+        this.buf = buf;
+        this.size = size;
+        this.values = values;
+        firsts = buf.slice(HEADER_SIZE, 4 * size).asIntBuffer();
+        lasts = buf.slice(HEADER_SIZE + 4 * size, 4 * size).asIntBuffer();
+        ids = buf.slice(HEADER_SIZE + 8 * size, 4 * size).asIntBuffer();
+    }
+
+    /**
+     * Collects ranges and builds a database from them.
+     */
+    public static final class Builder {
+        /**
+         * The first addresses of the ranges, in insertion order.
+         */
+        private int[] firsts = new int[64];
+        /**
+         * The last addresses of the ranges, in insertion order.
+         */
+        private int[] lasts = new int[64];
+        /**
+         * The value ids of the ranges, in insertion order.
+         */
+        private int[] ids = new int[64];
+        /**
+         * The number of ranges.
+         */
+        private int count;
+        /**
+         * The ids of the values.
+         */
+        private final Map<String, Integer> valueIds = new HashMap<>();
+        /**
+         * The values by id.
+         */
+        private final List<String> values = new ArrayList<>();
+
+        /**
+         * Adds a range.
+         *
+         * @param first The numerical representation of the first address.
+         * @param last  The numerical representation of the last address.
+         * @param value The value of the addresses of the range.
+         * @return This builder.
+         * @throws IllegalArgumentException If the first address is greater than the last one or the value
+         *                                  is longer than 65535 bytes in UTF-8.
+         */
+        public Builder add(int first, int last, String value) {
+            if (Integer.compareUnsigned(first, last) > 0) {
+                throw new IllegalArgumentException("Invalid range " + IpAddress.toString(first) + "-" + IpAddress.toString(last));
+            }
+            Integer id = valueIds.get(value);
+            if (id == null) {
+                if (value.getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+                    throw new IllegalArgumentException("Value too long: " + value.substring(0, 32) + "...");
+                }
+                id = values.size();
+                valueIds.put(value, id);
+                values.add(value);
+            }
+            if (count == firsts.length) {
+                firsts = Arrays.copyOf(firsts, 2 * count);
+                lasts = Arrays.copyOf(lasts, 2 * count);
+                ids = Arrays.copyOf(ids, 2 * count);
+            }
+            firsts[count] = first;
+            lasts[count] = last;
+            ids[count++] = id;
+            return this;
+        }
+
+        /**
+         * Adds the addresses of a subnet as a range.
+         *
+         * @param subnet The subnet.
+         * @param value  The value of the addresses of the subnet.
+         * @return This builder.
+         */
+        public Builder add(Subnet subnet, String value) {
+            return add(subnet.getNetAddressAsInt(), subnet.getBroadcastAddressAsInt(), value);
+        }
+
+        /**
+         * Builds a database in a direct buffer. Adjacent ranges with the same value are merged.
+         *
+         * @return The database.
+         * @throws IllegalArgumentException If ranges overlap.
+         */
+        public RangeDatabase build() {
+            long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = (long) (firsts[i] ^ Integer.MIN_VALUE) << 32 | i;
+            }
+            Arrays.parallelSort(order);
+            int[] sortedFirsts = new int[count];
+            int[] sortedLasts = new int[count];
+            int[] sortedIds = new int[count];
+            int n = 0;
+            for (long key : order) {
+                int i = (int) key;
+                if (n > 0 && Integer.compareUnsigned(firsts[i], sortedLasts[n - 1]) <= 0) {
+                    throw new IllegalArgumentException("Overlapping ranges " + IpAddress.toString(sortedFirsts[n - 1]) + "-"
+                            + IpAddress.toString(sortedLasts[n - 1]) + " and " + IpAddress.toString(firsts[i]) + "-"
+                            + IpAddress.toString(lasts[i]));
+                }
+                if (n > 0 && sortedIds[n - 1] == ids[i] && sortedLasts[n - 1] + 1 == firsts[i]) {
+                    sortedLasts[n - 1] = lasts[i];
+                } else {
+                    sortedFirsts[n] = firsts[i];
+                    sortedLasts[n] = lasts[i];
+                    sortedIds[n++] = ids[i];
+                }
+            }
+            byte[][] encoded = new byte[values.size()][];
+            int valueBytes = 0;
+            for (int v = 0; v < encoded.length; v++) {
+                encoded[v] = values.get(v).getBytes(StandardCharsets.UTF_8);
+                valueBytes += 2 + encoded[v].length;
+            }
+            ByteBuffer out = ByteBuffer.allocateDirect(HEADER_SIZE + 12 * n + valueBytes);
+            out.position(HEADER_SIZE);
+            out.asIntBuffer().put(sortedFirsts, 0, n).put(sortedLasts, 0, n).put(sortedIds, 0, n);
+            out.position(HEADER_SIZE + 12 * n);
+            for (byte[] value : encoded) {
+                out.putShort((short) value.length).put(value);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(out.slice(HEADER_SIZE, out.capacity() - HEADER_SIZE));
+            out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, n).putInt(12, encoded.length).putInt(16, (int) crc.getValue());
+            out.position(0);
+            return new RangeDatabase(out, n, values.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Builds a database from a CSV file in one streaming pass. Every line holds the first address, the last address
+     * and the value, separated by commas. Addresses are in dot-decimal notation or unsigned decimal numbers, the value
+     * is the rest of the line without surrounding whitespace. Empty lines and lines starting with '#' are skipped.
+     *
+     * @param csv    The CSV file, in UTF-8.
+     * @param header Whether the first line is a header to skip.
+     * @return The database, in a direct buffer.
+     * @throws IOException              if the file cannot be read or a line is malformed.
+     * @throws IllegalArgumentException If ranges overlap.
+     */
+    public static RangeDatabase loadCsv(Path csv, boolean header) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineNumber++;
+                if ((header && lineNumber == 1) || line.isBlank() || line.charAt(0) == '#') {
+                    continue;
+                }
+                int comma1 = line.indexOf(',');
+                int comma2 = comma1 < 0 ? -1 : line.indexOf(',', comma1 + 1);
+                long first = comma2 < 0 ? IpAddress.INVALID : parseAddress(line, 0, comma1);
+                long last = comma2 < 0 ? IpAddress.INVALID : parseAddress(line, comma1 + 1, comma2);
+                if (first == IpAddress.INVALID || last == IpAddress.INVALID || first > last) {
+                    throw new IOException("Invalid range in line " + lineNumber + " of " + csv + ": " + line);
+                }
+                builder.add((int) first, (int) last, line.substring(comma2 + 1).strip());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses an address in dot-decimal notation or as unsigned decimal number, ignoring surrounding whitespace.
+     *
+     * @param s    The characters.
+     * @param from Index of the first character.
+     * @param to   Index after the last character.
+     * @return The address in the low 32 bits, or {@link IpAddress#INVALID}.
+     */
+    private static long parseAddress(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        long ip = IpAddress.parse(s, from, to - from);
+        if (ip != IpAddress.INVALID || from == to || to - from > 10) {
+            return ip;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return IpAddress.INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value <= 0xFFFFFFFFL ? value : IpAddress.INVALID;
+    }
+
+    /**
+     * Writes the database to a file, replacing the file if it exists. The database is written to a temporary file
+     * in the same directory first and then moved over the file, so databases mapped from the old file stay valid,
+     * including this one.
+     *
+     * @param file The file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer out = buf.duplicate();
+        out.clear();
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a database file by mapping it into memory and verifying its header, checksum, ranges and values.
+     *
+     * @param file The file.
+     * @return The database.
+     * @throws IOException if the file cannot be read or is not a valid database.
+     */
+    public static RangeDatabase open(Path file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid range database size " + length + ": " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a range database: " + file);
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("Unsupported range database version " + buf.getInt(4) + ": " + file);
+        }
+        int size = buf.getInt(8);
+        int valueCount = buf.getInt(12);
+        if (size < 0 || valueCount < 0 || (long) HEADER_SIZE + 12L * size + 2L * valueCount > buf.limit()) {
+            throw new IOException("Truncated range database: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_SIZE, buf.limit() - HEADER_SIZE));
+        if ((int) crc.getValue() != buf.getInt(16)) {
+            throw new IOException("Corrupt range database, checksum mismatch: " + file);
+        }
+        IntBuffer columns = buf.slice(HEADER_SIZE, 12 * size).asIntBuffer();
+        for (int i = 0; i < size; i++) {
+            int first = columns.get(i) ^ Integer.MIN_VALUE;
+            int last = columns.get(size + i) ^ Integer.MIN_VALUE;
+            int id = columns.get(2 * size + i);
+            if (first > last || (i > 0 && first <= (columns.get(size + i - 1) ^ Integer.MIN_VALUE))) {
+                throw new IOException("Invalid range database, range " + i + " is empty or not sorted: " + file);
+            }
+            if (id < 0 || id >= valueCount) {
+                throw new IOException("Invalid range database, value id " + id + " of range " + i + ": " + file);
+            }
+        }
+        String[] values = new String[valueCount];
+        int position = HEADER_SIZE + 12 * size;
+        for (int v = 0; v < valueCount; v++) {
+            int length = position + 2 <= buf.limit() ? buf.getShort(position) & 0xFFFF : -1;
+            if (length < 0 || position + 2 + length > buf.limit()) {
+                throw new IOException("Truncated range database: " + file);
+            }
+            byte[] bytes = new byte[length];
+            buf.get(position + 2, bytes);
+            values[v] = new String(bytes, StandardCharsets.UTF_8);
+            position += 2 + length;
+        }
+        return new RangeDatabase(buf, size, values);
+    }
+
+    /**
+     * Finds the range containing an address by a branch-free binary search over the first addresses.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The index of the range, or -1 if no range contains the address.
+     */
+    public int indexOf(int ip) {
+        if (size == 0) {
+            return -1;
+        }
+        int key = ip ^ Integer.MIN_VALUE;
+        IntBuffer f = firsts;
+        int base = 0;
+        for (int length = size; length > 1; ) {
+            int half = length >>> 1;
+            base = (f.get(base + half) ^ Integer.MIN_VALUE) <= key ? base + half : base;
+            length -= half;
+        }
+        return (f.get(base) ^ Integer.MIN_VALUE) <= key && key <= (lasts.get(base) ^ Integer.MIN_VALUE) ? base : -1;
+    }
+
+    /**
+     * Looks up the value id of an address.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The value id, or {@link #NO_VALUE} if no range contains the address.
+     */
+    public int lookupId(int ip) {
+        int index = indexOf(ip);
+        return index < 0 ? NO_VALUE : ids.get(index);
+    }
+
+    /**
+     * Looks up the value of an address.
+     *
+     * @param ip The IP address.
+     * @return The value, or null if no range contains the address.
+     */
+    public String lookup(IpAddress ip) {
+        int id = lookupId(ip.getAsInt());
+        return id == NO_VALUE ? null : values[id];
+    }
+
+    /**
+     * Looks up the value ids of a batch of addresses.
+     *
+     * @param ips       The numerical representations of the IP addresses.
+     * @param offset    Index of the first address.
+     * @param length    Number of addresses.
+     * @param dst       Receives the value id of each address, or {@link #NO_VALUE}.
+     * @param dstOffset Index of the result of the first address.
+     */
+    public void lookupIds(int[] ips, int offset, int length, int[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = lookupId(ips[offset + i]);
+        }
+    }
+
+    /**
+     * Gets the number of ranges.
+     *
+     * @return The number of ranges.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the first address of a range.
+     *
+     * @param index The index of the range.
+     * @return The numerical representation of the first address.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int getFirst(int index) {
+        return firsts.get(Objects.checkIndex(index, size));
+    }
+
+    /**
+     * Gets the last address of a range.
+     *
+     * @param index The index of the range.
+     * @return The numerical representation of the last address.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int getLast(int index) {
+        return lasts.get(Objects.checkIndex(index, size));
+    }
+
+    /**
+     * Gets the value id of a range.
+     *
+     * @param index The index of the range.
+     * @return The value id.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int getValueId(int index) {
+        return ids.get(Objects.checkIndex(index, size));
+    }
+
+    /**
+     * Gets the number of distinct values.
+     *
+     * @return The number of values, ids range from 0 to this number minus one.
+     */
+    public int getValueCount() {
+        return values.length;
+    }
+
+    /**
+     * Gets a value by id.
+     *
+     * @param id The value id.
+     * @return The value.
+     * @throws IndexOutOfBoundsException if the id is out of range.
+     */
+    public String getValue(int id) {
+        return values[Objects.checkIndex(id, values.length)];
+    }
+}
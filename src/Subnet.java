@@ -1,14 +1,35 @@
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 
 /**
  * Represents an IPv4 subnet and provides methods for subnet manipulation.
  * Implements the Comparable interface for natural ordering based on the network address.
+ * Instances are immutable and store the address and prefix length as primitives.
  */
 public class Subnet implements Comparable<Subnet> {
 
+    /**
+     * The subnet masks of all prefix lengths, indexed by prefix length.
+     */
+    private static final int[] MASKS = new int[33];
+
+    static {
+        for (int i = 1; i <= 32; i++) {
+            MASKS[i] = ~0 << (32 - i);
+        }
+    }
+
     /**
      * Represents the local network subnet (127.0.0.1/255.0.0.0).
      */
@@ -18,17 +39,26 @@ public class Subnet implements Comparable<Subnet> {
      */
     public static final Subnet PRIVATENET10 = new Subnet(new IpAddress(10, 0, 0, 0), new IpAddress(255, 0, 0, 0));
     /**
-     * Exception thrown when an invalid subnet is encountered.
+     * Orders subnets by network address and then by prefix length, without allocating.
+     * Consistent with {@link #compareTo(Subnet)} for subnets of different networks and with the order of {@link #toPackedLong()}.
      */
-    private static final IllegalArgumentException invalidSubnet = new IllegalArgumentException("Invalid Subnet");
+    public static final Comparator<Subnet> NETWORK_PREFIX_ORDER = (a, b) -> compare(a.network, a.prefix, b.network, b.prefix);
     /**
-     * The network address of the subnet.
+     * Maximum length of a subnet with a dot-decimal subnet mask.
      */
-    private IpAddress addr;
+    public static final int MAX_LENGTH = 2 * IpAddress.MAX_LENGTH + 1;
     /**
-     * The subnet mask.
+     * The numerical representation of the address of the subnet, as it was given.
      */
-    private IpAddress mask;
+    private final int addr;
+    /**
+     * The numerical representation of the network address, i.e. the address with the host bits cleared.
+     */
+    private final int network;
+    /**
+     * The prefix length (0-32).
+     */
+    private final int prefix;
 
     /**
      * Constructs a subnet from a string representation (e.g., "192.168.1.0/24").
@@ -36,7 +66,7 @@ public class Subnet implements Comparable<Subnet> {
      * @param subnet A string representing the subnet.
      */
     public Subnet(String subnet) {
-        set(subnet.split("/"));
+        this(parse(subnet, subnet.indexOf('/')));
     }
 
     /**
@@ -46,7 +76,7 @@ public class Subnet implements Comparable<Subnet> {
      * @param suffix The suffix indicating the subnet size.
      */
     public Subnet(IpAddress addr, int suffix) {
-        set(new String[]{addr.toString(), String.valueOf(suffix)});
+        this(addr.getAsInt(), suffix);
     }
 
     /**
@@ -56,7 +86,7 @@ public class Subnet implements Comparable<Subnet> {
      * @param mask The subnet mask.
      */
     public Subnet(IpAddress addr, IpAddress mask) {
-        set(new String[]{addr.toString(), mask.toString()});
+        this(addr.getAsInt(), prefixOf(addr, mask));
     }
 
     /**
@@ -66,7 +96,7 @@ public class Subnet implements Comparable<Subnet> {
      * @param mask The subnet mask.
      */
     public Subnet(String addr, String mask) {
-        set(new String[]{addr, mask});
+        this(parse(addr, addr.length(), mask, 0));
     }
 
     /**
@@ -75,25 +105,80 @@ public class Subnet implements Comparable<Subnet> {
      * @param addr The IP address.
      */
     public Subnet(IpAddress addr) {
-        String[] subnet = {addr.toString(), getClassPrefix(addr)};
-        set(subnet);
+        this(addr.getAsInt(), getClassPrefix(addr));
     }
 
     /**
-     * Helper method to check if a subnet mask is valid.
+     * Constructs a subnet from the numerical representation of an address and a prefix length.
      *
-     * @param addr snm, which gets checked
-     * @return true, if addr is a valid subnetmask
+     * @param addr         The numerical representation of the network address.
+     * @param prefixLength The prefix length (0-32).
+     * @throws IllegalArgumentException If the prefix length is out of range.
      */
-    private static boolean isValidSnm(IpAddress addr) {
-        IpAddress compareValue = new IpAddress();
-        for (int i = 0; i < 32; i++) {
-            compareValue.set(~0 << (32 - i));
-            if (addr.equals(compareValue)) {
-                return true;
-            }
+    public Subnet(int addr, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw invalidSubnet(IpAddress.toString(addr) + "/" + prefixLength, ParseError.PREFIX_LENGTH);
+        }
+        this.addr = addr;
+        this.prefix = prefixLength;
+        this.network = addr & MASKS[prefixLength];
+    }
+
+    /**
+     * Constructs a subnet from an address and prefix length packed by {@link #parse(String, int)}.
+     *
+     * @param parsed The address in bits 8 to 39 and the prefix length in the lowest 8 bits.
+     */
+    private Subnet(long parsed) {
+        this((int) (parsed >>> 8), (int) parsed & 0xFF);
+    }
+
+    /**
+     * Gets the subnet mask of a prefix length.
+     *
+     * @param prefixLength The prefix length (0-32).
+     * @return The numerical representation of the subnet mask.
+     */
+    public static int maskOf(int prefixLength) {
+        return MASKS[prefixLength];
+    }
+
+    /**
+     * Helper method to check if a subnet mask is valid, i.e. its one bits are contiguous.
+     *
+     * @param mask snm, which gets checked
+     * @return true, if mask is a valid subnetmask
+     */
+    private static boolean isValidSnm(int mask) {
+        int inverted = ~mask;
+        return (inverted & (inverted + 1)) == 0;
+    }
+
+    /**
+     * Helper method to get the prefix length of a subnet mask, building the exception message only for invalid masks.
+     *
+     * @param addr The network address of the subnet being constructed, for the exception message.
+     * @param mask The subnet mask.
+     * @return the prefix length
+     * @throws IllegalArgumentException If the mask is not a valid subnet mask.
+     */
+    private static int prefixOf(IpAddress addr, IpAddress mask) {
+        int snm = mask.getAsInt();
+        if (!isValidSnm(snm)) {
+            throw invalidSubnet(addr + "/" + mask, ParseError.INVALID_MASK);
         }
-        return false;
+        return Integer.bitCount(snm);
+    }
+
+    /**
+     * Creates the exception for an invalid subnet and counts it in the {@link Metrics}.
+     *
+     * @param input The rejected input.
+     * @param error The reason.
+     * @return The exception, naming the input and the reason.
+     */
+    private static IllegalArgumentException invalidSubnet(Object input, ParseError error) {
+        return Metrics.parseFailed(true, input, error);
     }
 
     /**
@@ -112,16 +197,79 @@ public class Subnet implements Comparable<Subnet> {
      * Helper method to determine the class prefix based on the IP address.
      *
      * @param addr The Ip Address
-     * @return prefix based on class
+     * @return prefix length based on class
      */
-    private String getClassPrefix(IpAddress addr) {
+    private static int getClassPrefix(IpAddress addr) {
         int netClass = getClass(addr) - 'A';
-        IpAddress[] a = {new IpAddress(255, 0, 0, 0), new IpAddress(255, 255, 0, 0), new IpAddress(255, 255, 255, 0)};
-        try {
-            return a[netClass].toString();
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw invalidSubnet;
+        if (netClass > 2) {
+            throw invalidSubnet(addr, ParseError.NOT_CLASSFUL);
         }
+        return 8 * (netClass + 1);
+    }
+
+    /**
+     * Compares two subnets given as primitives, by network address and then by prefix length.
+     *
+     * @param network1 The numerical representation of the first network address.
+     * @param prefix1  The prefix length of the first subnet.
+     * @param network2 The numerical representation of the second network address.
+     * @param prefix2  The prefix length of the second subnet.
+     * @return A negative integer, zero, or a positive integer as the first subnet is less than, equal to, or greater than the second.
+     */
+    public static int compare(int network1, int prefix1, int network2, int prefix2) {
+        int c = Integer.compareUnsigned(network1, network2);
+        return c != 0 ? c : Integer.compare(prefix1, prefix2);
+    }
+
+    /**
+     * Packs the network address and prefix length into a long, so that the natural order of the packed values
+     * is the order of {@link #NETWORK_PREFIX_ORDER}. Arrays of packed subnets can be sorted with {@link java.util.Arrays#sort(long[])}.
+     *
+     * @return The network address in bits 8 to 39 and the prefix length in the lowest 8 bits.
+     */
+    public long toPackedLong() {
+        return pack(network, prefix);
+    }
+
+    /**
+     * Packs a network address and prefix length like {@link #toPackedLong()}.
+     *
+     * @param network      The numerical representation of the network address.
+     * @param prefixLength The prefix length.
+     * @return The packed subnet.
+     */
+    public static long pack(int network, int prefixLength) {
+        return (network & 0xFFFFFFFFL) << 8 | prefixLength;
+    }
+
+    /**
+     * Creates a subnet from a value packed by {@link #toPackedLong()}.
+     *
+     * @param packed The packed subnet.
+     * @return The subnet.
+     */
+    public static Subnet fromPackedLong(long packed) {
+        return new Subnet((int) (packed >>> 8), (int) packed & 0xFF);
+    }
+
+    /**
+     * Covers a range of addresses with the minimal list of subnets.
+     *
+     * @param first The first address of the range.
+     * @param last  The last address of the range.
+     * @return The subnets, ordered by network address.
+     * @throws IllegalArgumentException If the first address is greater than the last one.
+     */
+    public static Subnet[] fromRange(IpAddress first, IpAddress last) {
+        if (first.compareTo(last) > 0) {
+            throw invalidSubnet(first + "-" + last, ParseError.RANGE_ORDER);
+        }
+        long[] packed = SubnetAggregator.toSubnets(new long[]{first.getAsInt() & 0xFFFFFFFFL, last.getAsInt() & 0xFFFFFFFFL}, 2);
+        Subnet[] subnets = new Subnet[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            subnets[i] = fromPackedLong(packed[i]);
+        }
+        return subnets;
     }
 
     /**
@@ -130,7 +278,25 @@ public class Subnet implements Comparable<Subnet> {
      * @return The subnet mask.
      */
     public IpAddress getNetMask() {
-        return mask;
+        return IpAddress.valueOf(MASKS[prefix]);
+    }
+
+    /**
+     * Gets the numerical representation of the subnet mask.
+     *
+     * @return The subnet mask.
+     */
+    public int getNetMaskAsInt() {
+        return MASKS[prefix];
+    }
+
+    /**
+     * Gets the prefix length of the subnet, i.e. the number of leading one bits of the subnet mask.
+     *
+     * @return The prefix length (0-32).
+     */
+    public int getPrefixLength() {
+        return prefix;
     }
 
     /**
@@ -139,9 +305,16 @@ public class Subnet implements Comparable<Subnet> {
      * @return The network address.
      */
     public IpAddress getNetAddress() {
-        IpAddress a = new IpAddress();
-        a.set(this.addr.getAsInt() & this.mask.getAsInt());
-        return a;
+        return IpAddress.valueOf(network);
+    }
+
+    /**
+     * Gets the numerical representation of the network address of the subnet.
+     *
+     * @return The network address.
+     */
+    public int getNetAddressAsInt() {
+        return network;
     }
 
     /**
@@ -150,7 +323,7 @@ public class Subnet implements Comparable<Subnet> {
      * @return The number of hosts.
      */
     public int getNumberOfHosts() {
-        return ~this.mask.getAsInt() - 1;
+        return ~MASKS[prefix] - 1;
     }
 
     /**
@@ -161,7 +334,17 @@ public class Subnet implements Comparable<Subnet> {
      */
     @Override
     public boolean equals(Object o) {
-        return this == o || (o instanceof Subnet && Objects.equals(addr, ((Subnet) o).addr) && Objects.equals(mask, ((Subnet) o).mask));
+        return this == o || (o instanceof Subnet && addr == ((Subnet) o).addr && prefix == ((Subnet) o).prefix);
+    }
+
+    /**
+     * Calculates the hash code of the subnet, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * addr + prefix;
     }
 
     /**
@@ -169,7 +352,64 @@ public class Subnet implements Comparable<Subnet> {
      */
     @Override
     public String toString() {
-        return addr.toString() + "/" + mask.toString();
+        byte[] buf = new byte[MAX_LENGTH];
+        return new String(buf, 0, format(buf, 0, false), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns the subnet in CIDR notation, e.g. "192.168.1.0/24".
+     *
+     * @return The subnet in CIDR notation.
+     */
+    public String toCidrString() {
+        byte[] buf = new byte[MAX_LENGTH];
+        return new String(buf, 0, format(buf, 0, true), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes the subnet as ASCII bytes into an array, either in CIDR notation or with a dot-decimal subnet mask.
+     *
+     * @param dst    The array, needs room for up to {@link #MAX_LENGTH} bytes.
+     * @param offset Index of the first byte to write.
+     * @param cidr   Whether to write the prefix length instead of the subnet mask.
+     * @return The index after the last written byte.
+     */
+    public int format(byte[] dst, int offset, boolean cidr) {
+        offset = IpAddress.format(addr, dst, offset);
+        dst[offset++] = '/';
+        return cidr ? IpAddress.formatOctet(prefix, dst, offset) : IpAddress.format(MASKS[prefix], dst, offset);
+    }
+
+    /**
+     * Appends the subnet to a StringBuilder, either in CIDR notation or with a dot-decimal subnet mask.
+     *
+     * @param sb   The StringBuilder.
+     * @param cidr Whether to append the prefix length instead of the subnet mask.
+     * @return The StringBuilder.
+     */
+    public StringBuilder format(StringBuilder sb, boolean cidr) {
+        IpAddress.format(addr, sb).append('/');
+        return cidr ? sb.append(prefix) : IpAddress.format(MASKS[prefix], sb);
+    }
+
+    /**
+     * Appends the subnet to an Appendable, e.g. a Writer, either in CIDR notation or with a dot-decimal subnet mask.
+     *
+     * @param out  The Appendable.
+     * @param cidr Whether to append the prefix length instead of the subnet mask.
+     * @throws IOException if the Appendable fails.
+     */
+    public void format(Appendable out, boolean cidr) throws IOException {
+        IpAddress.format(addr, out);
+        out.append('/');
+        if (cidr) {
+            if (prefix >= 10) {
+                out.append((char) ('0' + prefix / 10));
+            }
+            out.append((char) ('0' + prefix % 10));
+        } else {
+            IpAddress.format(MASKS[prefix], out);
+        }
     }
 
     /**
@@ -179,7 +419,141 @@ public class Subnet implements Comparable<Subnet> {
      * @return True if the IP address is in the subnet, false otherwise.
      */
     public boolean isInNetwork(IpAddress ip) {
-        return new Subnet(this.getNetAddress(), this.mask).getNetAddress().equals(new Subnet(ip, this.mask).getNetAddress());
+        return isInNetwork(ip.getAsInt());
+    }
+
+    /**
+     * Checks if a given IP address is in the subnet.
+     *
+     * @param ip The numerical representation of the IP address to check.
+     * @return True if the IP address is in the subnet, false otherwise.
+     */
+    public boolean isInNetwork(int ip) {
+        Metrics.networkChecked(1);
+        return ((ip ^ network) & MASKS[prefix]) == 0;
+    }
+
+    /**
+     * Checks a batch of IP addresses and stores the results as a bit mask, bit i of the mask
+     * ({@code result[i >>> 6] & (1L << i)}) is set if the i-th address is in the subnet.
+     * The layout matches {@link BitSet#valueOf(long[])}.
+     *
+     * @param ips    The numerical representations of the IP addresses.
+     * @param offset Index of the first address.
+     * @param length Number of addresses to check.
+     * @param result The bit mask, needs room for {@code (length + 63) / 64} words which get overwritten.
+     * @return The number of addresses in the subnet.
+     */
+    public int isInNetwork(int[] ips, int offset, int length, long[] result) {
+        Metrics.networkChecked(length);
+        int net = network;
+        int m = MASKS[prefix];
+        int matches = 0;
+        for (int base = 0; base < length; base += 64) {
+            int n = Math.min(64, length - base);
+            long word = 0;
+            for (int j = 0, i = offset + base; j < n; j++, i++) {
+                int x = (ips[i] ^ net) & m;
+                word |= (long) (((x | -x) >>> 31) ^ 1) << j;
+            }
+            result[base >>> 6] = word;
+            matches += Long.bitCount(word);
+        }
+        return matches;
+    }
+
+    /**
+     * Checks the remaining IP addresses of a buffer and stores the results as a bit mask, like
+     * {@link #isInNetwork(int[], int, int, long[])}. The position of the buffer is not changed.
+     *
+     * @param ips    The numerical representations of the IP addresses, from position to limit.
+     * @param result The bit mask, needs room for {@code (ips.remaining() + 63) / 64} words which get overwritten.
+     * @return The number of addresses in the subnet.
+     */
+    public int isInNetwork(IntBuffer ips, long[] result) {
+        if (ips.hasArray()) {
+            return isInNetwork(ips.array(), ips.arrayOffset() + ips.position(), ips.remaining(), result);
+        }
+        Metrics.networkChecked(ips.remaining());
+        int net = network;
+        int m = MASKS[prefix];
+        int start = ips.position();
+        int length = ips.remaining();
+        int matches = 0;
+        for (int base = 0; base < length; base += 64) {
+            int n = Math.min(64, length - base);
+            long word = 0;
+            for (int j = 0, i = start + base; j < n; j++, i++) {
+                int x = (ips.get(i) ^ net) & m;
+                word |= (long) (((x | -x) >>> 31) ^ 1) << j;
+            }
+            result[base >>> 6] = word;
+            matches += Long.bitCount(word);
+        }
+        return matches;
+    }
+
+    /**
+     * Checks a batch of IP addresses and sets bit i of a BitSet if the i-th address is in the subnet.
+     * Other bits are left unchanged.
+     *
+     * @param ips    The numerical representations of the IP addresses.
+     * @param offset Index of the first address.
+     * @param length Number of addresses to check.
+     * @param result The BitSet receiving the results.
+     * @return The number of addresses in the subnet.
+     */
+    public int isInNetwork(int[] ips, int offset, int length, BitSet result) {
+        Metrics.networkChecked(length);
+        int net = network;
+        int m = MASKS[prefix];
+        int matches = 0;
+        for (int i = 0; i < length; i++) {
+            if (((ips[offset + i] ^ net) & m) == 0) {
+                result.set(i);
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Checks a batch of IP addresses against several subnets and stores the results as a bit mask,
+     * bit i is set if the i-th address is in any of the subnets. The layout is the same as in
+     * {@link #isInNetwork(int[], int, int, long[])}.
+     *
+     * @param subnets The subnets.
+     * @param ips     The numerical representations of the IP addresses.
+     * @param offset  Index of the first address.
+     * @param length  Number of addresses to check.
+     * @param result  The bit mask, needs room for {@code (length + 63) / 64} words which get overwritten.
+     * @return The number of addresses in any of the subnets.
+     */
+    public static int isInAnyNetwork(Subnet[] subnets, int[] ips, int offset, int length, long[] result) {
+        Metrics.networkChecked(length);
+        int[] nets = new int[subnets.length];
+        int[] masks = new int[subnets.length];
+        for (int k = 0; k < subnets.length; k++) {
+            nets[k] = subnets[k].network;
+            masks[k] = MASKS[subnets[k].prefix];
+        }
+        int matches = 0;
+        for (int base = 0; base < length; base += 64) {
+            int n = Math.min(64, length - base);
+            long word = 0;
+            for (int j = 0, i = offset + base; j < n; j++, i++) {
+                int ip = ips[i];
+                int hit = 0;
+                for (int k = 0; k < nets.length; k++) {
+                    int x = (ip ^ nets[k]) & masks[k];
+                    hit |= ((x | -x) >>> 31) ^ 1;
+                }
+                word |= (long) hit << j;
+            }
+            result[base >>> 6] = word;
+            matches += Long.bitCount(word);
+        }
+        return matches;
     }
 
     /**
@@ -188,9 +562,16 @@ public class Subnet implements Comparable<Subnet> {
      * @return The broadcast address.
      */
     public IpAddress getBroadcastAddress() {
-        IpAddress a = new IpAddress();
-        a.set(this.getNetAddress().getAsInt() | (~this.mask.getAsInt()));
-        return a;
+        return IpAddress.valueOf(getBroadcastAddressAsInt());
+    }
+
+    /**
+     * Gets the numerical representation of the broadcast address of the subnet.
+     *
+     * @return The broadcast address.
+     */
+    public int getBroadcastAddressAsInt() {
+        return network | ~MASKS[prefix];
     }
 
     /**
@@ -199,9 +580,7 @@ public class Subnet implements Comparable<Subnet> {
      * @return The first IP address.
      */
     public IpAddress getFirstIp() {
-        IpAddress a = new IpAddress();
-        a.set(this.getNetAddress().getAsInt() | 1);
-        return a;
+        return IpAddress.valueOf(network | 1);
     }
 
     /**
@@ -210,9 +589,7 @@ public class Subnet implements Comparable<Subnet> {
      * @return The last IP address.
      */
     public IpAddress getLastIp() {
-        IpAddress a = new IpAddress();
-        a.set(getBroadcastAddress().getAsInt() & (~1));
-        return a;
+        return IpAddress.valueOf(getBroadcastAddressAsInt() & (~1));
     }
 
     /**
@@ -221,40 +598,84 @@ public class Subnet implements Comparable<Subnet> {
      * @return An array of IP addresses.
      */
     public IpAddress[] getAllIpsInNetwork() {
+        Metrics.AddressEnumerationEvent event = Metrics.beginEnumeration();
         List<IpAddress> ipList = new ArrayList<>();
-        IpAddress networkAddress = getNetAddress();
-        IpAddress lastIpAddress = getLastIp();
-        while (Integer.compareUnsigned(networkAddress.getAsInt(), lastIpAddress.getAsInt()) != 0) {
-            ipList.add(new IpAddress(networkAddress.toString()));
-            int currentIpInt = networkAddress.getAsInt() + 1;
-            networkAddress.set(currentIpInt);
+        int networkAddress = network;
+        int lastIpAddress = getBroadcastAddressAsInt() & (~1);
+        while (Integer.compareUnsigned(networkAddress, lastIpAddress) != 0) {
+            ipList.add(IpAddress.valueOf(networkAddress));
+            networkAddress++;
         }
         IpAddress[] ipsArray = new IpAddress[ipList.size()];
         ipList.toArray(ipsArray);
+        Metrics.endEnumeration(event, this, ipsArray.length);
         return ipsArray;
     }
 
+    /**
+     * Lazily streams the numerical representations of all addresses in the subnet, in ascending order.
+     * The stream splits the range evenly, so it can be processed in parallel.
+     *
+     * @param includeNetwork   Whether to include the network address.
+     * @param includeBroadcast Whether to include the broadcast address.
+     * @return A stream of the addresses.
+     */
+    public IntStream addresses(boolean includeNetwork, boolean includeBroadcast) {
+        return StreamSupport.intStream(addressSpliterator(includeNetwork, includeBroadcast), false);
+    }
+
+    /**
+     * Lazily iterates over the numerical representations of all addresses in the subnet, in ascending order.
+     *
+     * @param includeNetwork   Whether to include the network address.
+     * @param includeBroadcast Whether to include the broadcast address.
+     * @return An iterator over the addresses.
+     */
+    public PrimitiveIterator.OfInt addressIterator(boolean includeNetwork, boolean includeBroadcast) {
+        return Spliterators.iterator(addressSpliterator(includeNetwork, includeBroadcast));
+    }
+
+    /**
+     * Creates a spliterator over the numerical representations of all addresses in the subnet.
+     *
+     * @param includeNetwork   Whether to include the network address.
+     * @param includeBroadcast Whether to include the broadcast address.
+     * @return A spliterator over the addresses, splitting the range in halves.
+     */
+    public Spliterator.OfInt addressSpliterator(boolean includeNetwork, boolean includeBroadcast) {
+        long first = network & 0xFFFFFFFFL;
+        long last = getBroadcastAddressAsInt() & 0xFFFFFFFFL;
+        return new AddressSpliterator(includeNetwork ? first : first + 1, includeBroadcast ? last + 1 : last);
+    }
+
     /**
      * Gets the next subnet.
      *
      * @return The next subnet.
      */
     public Subnet getNextSubnet() {
-        IpAddress a = getNetAddress();
-        a.set(this.getBroadcastAddress().getAsInt() + 1);
-        return new Subnet(a, this.mask);
+        return new Subnet(getBroadcastAddressAsInt() + 1, prefix);
     }
 
     /**
-     * Splits the subnet into a specified number of smaller subnets.
+     * Splits the subnet into a specified number of smaller subnets of equal size. The prefix length grows by
+     * the number of bits needed to count n subnets, so if n is not a power of two the remaining part of the
+     * subnet is not returned.
      *
      * @param n The number of subnets to create.
      * @return An array of new subnets.
+     * @throws IllegalArgumentException If n is not positive or the subnet is too small to be split into n subnets.
      */
     public Subnet[] splitNet(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid number of subnets: " + n);
+        }
+        int newMask = prefix + 32 - Integer.numberOfLeadingZeros(n - 1);
+        if (newMask > 32) {
+            throw new IllegalArgumentException("Subnet " + toCidrString() + " cannot be split into " + n + " subnets");
+        }
         Subnet[] newNets = new Subnet[n];
-        int newMask = 32 - (int) Math.ceil(Math.log((double) getNumberOfHosts() / n) / Math.log(n));
-        Subnet current = new Subnet(getNetAddress(), newMask);
+        Subnet current = new Subnet(network, newMask);
         for (int i = 0; i < n; i++, current = current.getNextSubnet()) {
             newNets[i] = current;
         }
@@ -262,37 +683,71 @@ public class Subnet implements Comparable<Subnet> {
     }
 
     /**
-     * Sets the subnet based on a string array representation.
+     * Parses the string representation of a subnet, with either a prefix length or a subnet mask after the slash.
      *
-     * @param subnet The string array representing the subnet.
+     * @param subnet The string representing the subnet.
+     * @param slash  The index of the slash separating address and mask.
+     * @return The address in bits 8 to 39 and the prefix length in the lowest 8 bits.
      * @throws IllegalArgumentException If the subnet is invalid.
      */
-    private void set(String[] subnet) {
-        try {
-            IpAddress addr = new IpAddress(subnet[0]);
-            IpAddress mask;
+    private static long parse(String subnet, int slash) {
+        if (slash < 0) {
+            throw invalidSubnet(subnet, ParseError.MISSING_SLASH);
+        }
+        return parse(subnet, slash, subnet, slash + 1);
+    }
 
-            if (subnet[1].contains(".")) {
-                mask = new IpAddress(subnet[1]);
-                if (!isValidSnm(mask)) {
-                    throw invalidSubnet;
-                }
-            } else {
-                int suffix = Integer.parseInt(subnet[1]);
-                if (suffix < 0 || suffix > 32) {
-                    throw invalidSubnet;
+    /**
+     * Parses a subnet from an address and either a prefix length or a subnet mask, which may be parts of the
+     * same string. The representation of the subnet for the exception message is only built on failure.
+     *
+     * @param addr      The string containing the address, starting at index 0.
+     * @param addrEnd   The index after the address.
+     * @param mask      The string containing the prefix length or subnet mask, up to its end.
+     * @param maskStart The index of the first character of the prefix length or subnet mask.
+     * @return The address in bits 8 to 39 and the prefix length in the lowest 8 bits.
+     * @throws IllegalArgumentException If the subnet is invalid.
+     */
+    private static long parse(String addr, int addrEnd, String mask, int maskStart) {
+        long ip = IpAddress.parse(addr, 0, addrEnd);
+        if (ip == IpAddress.INVALID) {
+            throw invalidSubnet(inputOf(addr, mask), ParseError.ofAddress(addr, 0, addrEnd));
+        }
+        int prefixLength;
+        if (mask.indexOf('.', maskStart) >= 0) {
+            long snm = IpAddress.parse(mask, maskStart, mask.length() - maskStart);
+            if (snm == IpAddress.INVALID) {
+                throw invalidSubnet(inputOf(addr, mask), ParseError.ofAddress(mask, maskStart, mask.length() - maskStart));
+            }
+            if (!isValidSnm((int) snm)) {
+                throw invalidSubnet(inputOf(addr, mask), ParseError.INVALID_MASK);
+            }
+            prefixLength = Integer.bitCount((int) snm);
+        } else {
+            prefixLength = 0;
+            if (maskStart == mask.length()) {
+                throw invalidSubnet(inputOf(addr, mask), ParseError.PREFIX_LENGTH);
+            }
+            for (int i = maskStart; i < mask.length(); i++) {
+                char c = mask.charAt(i);
+                if (c < '0' || c > '9' || (prefixLength = prefixLength * 10 + (c - '0')) > 32) {
+                    throw invalidSubnet(inputOf(addr, mask), ParseError.PREFIX_LENGTH);
                 }
-                IpAddress temp = new IpAddress();
-                temp.set(~0 << (32 - suffix));
-                mask = temp;
             }
-
-            this.addr = addr;
-            this.mask = mask;
-
-        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
-            throw invalidSubnet;
         }
+        Metrics.subnetParsed();
+        return ip << 8 | prefixLength;
+    }
+
+    /**
+     * Gets the representation of a rejected subnet for an exception message.
+     *
+     * @param addr The string containing the address.
+     * @param mask The string containing the prefix length or subnet mask, the same string if the subnet was one string.
+     * @return The subnet as one string.
+     */
+    private static String inputOf(String addr, String mask) {
+        return addr == mask ? addr : addr + "/" + mask;
     }
 
     /**
@@ -304,6 +759,6 @@ public class Subnet implements Comparable<Subnet> {
 
     @Override
     public int compareTo(Subnet o) {
-        return this.getNetAddress().compareTo(o.getNetAddress());
+        return Integer.compareUnsigned(network, o.network);
     }
 }
@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents an IPv6 subnet as two longs and a prefix length, the IPv6 counterpart of {@link Subnet}.
+ * Subnets are written in CIDR notation, e.g. "2001:db8::/32", and membership checks do not allocate.
+ */
+public class Subnet6 implements Comparable<Subnet6> {
+    /**
+     * The upper 64 bits of the subnet masks of all prefix lengths, indexed by prefix length.
+     */
+    private static final long[] MASKS_HIGH = new long[129];
+    /**
+     * The lower 64 bits of the subnet masks of all prefix lengths, indexed by prefix length.
+     */
+    private static final long[] MASKS_LOW = new long[129];
+
+    static {
+        for (int i = 1; i <= 128; i++) {
+            MASKS_HIGH[i] = i >= 64 ? ~0L : ~0L << (64 - i);
+            MASKS_LOW[i] = i <= 64 ? 0 : ~0L << (128 - i);
+        }
+    }
+
+    /**
+     * Maximum length of a subnet in CIDR notation.
+     */
+    public static final int MAX_LENGTH = IpAddress6.MAX_LENGTH + 4;
+    /**
+     * The upper 64 bits of the network address, with the host bits cleared.
+     */
+    private final long high;
+    /**
+     * The lower 64 bits of the network address, with the host bits cleared.
+     */
+    private final long low;
+    /**
+     * The prefix length (0-128).
+     */
+    private final int prefix;
+
+    /**
+     * Constructs a subnet from its CIDR notation (e.g., "2001:db8::/32").
+     *
+     * @param subnet A string representing the subnet.
+     * @throws IllegalArgumentException If the string is not a valid subnet.
+     */
+    public Subnet6(String subnet) {
+        long[] parsed = new long[2];
+        int prefixLength = parse(subnet, 0, subnet.length(), parsed, 0);
+        if (prefixLength < 0) {
+            throw new IllegalArgumentException("Invalid IPv6 subnet: " + subnet);
+        }
+        this.high = parsed[0];
+        this.low = parsed[1];
+        this.prefix = prefixLength;
+    }
+
+    /**
+     * Constructs a subnet from an address and a prefix length, host bits of the address are cleared.
+     *
+     * @param addr         The address.
+     * @param prefixLength The prefix length (0-128).
+     * @throws IllegalArgumentException If the prefix length is out of range.
+     */
+    public Subnet6(IpAddress6 addr, int prefixLength) {
+        this(addr.getHigh(), addr.getLow(), prefixLength);
+    }
+
+    /**
+     * Constructs a subnet from a numerical address and a prefix length, host bits of the address are cleared.
+     *
+     * @param high         The upper 64 bits of the address.
+     * @param low          The lower 64 bits of the address.
+     * @param prefixLength The prefix length (0-128).
+     * @throws IllegalArgumentException If the prefix length is out of range.
+     */
+    public Subnet6(long high, long low, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 128) {
+            throw new IllegalArgumentException("Invalid IPv6 prefix length: " + prefixLength);
+        }
+        this.high = high & MASKS_HIGH[prefixLength];
+        this.low = low & MASKS_LOW[prefixLength];
+        this.prefix = prefixLength;
+    }
+
+    /**
+     * Parses a subnet in CIDR notation from a part of a character sequence without allocating.
+     *
+     * @param s         The characters to parse.
+     * @param offset    Index of the first character.
+     * @param length    Number of characters to parse.
+     * @param dst       The array receiving the upper and the lower 64 bits of the network address, with the host bits cleared.
+     * @param dstOffset Index of the upper 64 bits in the array.
+     * @return The prefix length, or -1 if the input is not a valid subnet and the array is unchanged.
+     */
+    public static int parse(CharSequence s, int offset, int length, long[] dst, int dstOffset) {
+        int end = offset + length;
+        int slash = end - 1;
+        while (slash >= offset && s.charAt(slash) != '/') {
+            slash--;
+        }
+        if (slash < offset || slash + 1 == end || end - slash > 4) {
+            return -1;
+        }
+        int prefixLength = 0;
+        for (int i = slash + 1; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9' || (prefixLength = prefixLength * 10 + (c - '0')) > 128) {
+                return -1;
+            }
+        }
+        if (!IpAddress6.parse(s, offset, slash - offset, dst, dstOffset)) {
+            return -1;
+        }
+        dst[dstOffset] &= MASKS_HIGH[prefixLength];
+        dst[dstOffset + 1] &= MASKS_LOW[prefixLength];
+        return prefixLength;
+    }
+
+    /**
+     * Gets the upper 64 bits of the subnet mask of a prefix length.
+     *
+     * @param prefixLength The prefix length (0-128).
+     * @return The upper 64 bits of the subnet mask.
+     */
+    public static long maskHigh(int prefixLength) {
+        return MASKS_HIGH[prefixLength];
+    }
+
+    /**
+     * Gets the lower 64 bits of the subnet mask of a prefix length.
+     *
+     * @param prefixLength The prefix length (0-128).
+     * @return The lower 64 bits of the subnet mask.
+     */
+    public static long maskLow(int prefixLength) {
+        return MASKS_LOW[prefixLength];
+    }
+
+    /**
+     * Gets the prefix length of the subnet.
+     *
+     * @return The prefix length (0-128).
+     */
+    public int getPrefixLength() {
+        return prefix;
+    }
+
+    /**
+     * Gets the network address of the subnet.
+     *
+     * @return The network address.
+     */
+    public IpAddress6 getNetAddress() {
+        return new IpAddress6(high, low);
+    }
+
+    /**
+     * Gets the upper 64 bits of the network address.
+     *
+     * @return The upper 64 bits of the network address.
+     */
+    public long getNetAddressHigh() {
+        return high;
+    }
+
+    /**
+     * Gets the lower 64 bits of the network address.
+     *
+     * @return The lower 64 bits of the network address.
+     */
+    public long getNetAddressLow() {
+        return low;
+    }
+
+    /**
+     * Gets the last address of the subnet.
+     *
+     * @return The last address.
+     */
+    public IpAddress6 getLastAddress() {
+        return new IpAddress6(high | ~MASKS_HIGH[prefix], low | ~MASKS_LOW[prefix]);
+    }
+
+    /**
+     * Gets the subnet of the same size following this one, wrapping around at the end of the address space.
+     *
+     * @return The next subnet.
+     */
+    public Subnet6 getNextSubnet() {
+        if (prefix == 0) {
+            return this;
+        }
+        if (prefix <= 64) {
+            return new Subnet6(high + (1L << (64 - prefix)), 0, prefix);
+        }
+        long nextLow = low + (1L << (128 - prefix));
+        return new Subnet6(nextLow == 0 ? high + 1 : high, nextLow, prefix);
+    }
+
+    /**
+     * Checks if a given address is in the subnet.
+     *
+     * @param ip The address to check.
+     * @return True if the address is in the subnet, false otherwise.
+     */
+    public boolean isInNetwork(IpAddress6 ip) {
+        return isInNetwork(ip.getHigh(), ip.getLow());
+    }
+
+    /**
+     * Checks if a given address is in the subnet.
+     *
+     * @param ipHigh The upper 64 bits of the address.
+     * @param ipLow  The lower 64 bits of the address.
+     * @return True if the address is in the subnet, false otherwise.
+     */
+    public boolean isInNetwork(long ipHigh, long ipLow) {
+        return (((ipHigh ^ high) & MASKS_HIGH[prefix]) | ((ipLow ^ low) & MASKS_LOW[prefix])) == 0;
+    }
+
+    /**
+     * Checks a batch of addresses and stores the results as a bit mask, like {@link Subnet#isInNetwork(int[], int, int, long[])}.
+     *
+     * @param ips    The addresses, the upper 64 bits of each address followed by its lower 64 bits.
+     * @param offset Index of the first address, i.e. its upper 64 bits are at {@code ips[2 * offset]}.
+     * @param length Number of addresses to check.
+     * @param result The bit mask, needs room for {@code (length + 63) / 64} words which get overwritten.
+     * @return The number of addresses in the subnet.
+     */
+    public int isInNetwork(long[] ips, int offset, int length, long[] result) {
+        long mh = MASKS_HIGH[prefix];
+        long ml = MASKS_LOW[prefix];
+        int matches = 0;
+        for (int base = 0; base < length; base += 64) {
+            int n = Math.min(64, length - base);
+            long word = 0;
+            for (int j = 0, i = 2 * (offset + base); j < n; j++, i += 2) {
+                long x = ((ips[i] ^ high) & mh) | ((ips[i + 1] ^ low) & ml);
+                word |= (((x | -x) >>> 63) ^ 1) << j;
+            }
+            result[base >>> 6] = word;
+            matches += Long.bitCount(word);
+        }
+        return matches;
+    }
+
+    /**
+     * Compares two subnets given as primitives, by network address and then by prefix length.
+     *
+     * @param high1   The upper 64 bits of the first network address.
+     * @param low1    The lower 64 bits of the first network address.
+     * @param prefix1 The prefix length of the first subnet.
+     * @param high2   The upper 64 bits of the second network address.
+     * @param low2    The lower 64 bits of the second network address.
+     * @param prefix2 The prefix length of the second subnet.
+     * @return A negative integer, zero, or a positive integer as the first subnet is less than, equal to, or greater than the second.
+     */
+    public static int compare(long high1, long low1, int prefix1, long high2, long low2, int prefix2) {
+        int c = IpAddress6.compare(high1, low1, high2, low2);
+        return c != 0 ? c : Integer.compare(prefix1, prefix2);
+    }
+
+    /**
+     * Writes the subnet in CIDR notation as ASCII bytes into an array.
+     *
+     * @param dst    The array, needs room for up to {@link #MAX_LENGTH} bytes.
+     * @param offset Index of the first byte to write.
+     * @return The index after the last written byte.
+     */
+    public int format(byte[] dst, int offset) {
+        offset = IpAddress6.format(high, low, dst, offset);
+        dst[offset++] = '/';
+        if (prefix >= 100) {
+            dst[offset++] = '1';
+        }
+        if (prefix >= 10) {
+            dst[offset++] = (byte) ('0' + prefix / 10 % 10);
+        }
+        dst[offset++] = (byte) ('0' + prefix % 10);
+        return offset;
+    }
+
+    /**
+     * Appends the subnet in CIDR notation to a StringBuilder.
+     *
+     * @param sb The StringBuilder.
+     * @return The StringBuilder.
+     */
+    public StringBuilder format(StringBuilder sb) {
+        return IpAddress6.format(high, low, sb).append('/').append(prefix);
+    }
+
+    /**
+     * Appends the subnet in CIDR notation to an Appendable, e.g. a Writer.
+     *
+     * @param out The Appendable.
+     * @throws IOException if the Appendable fails.
+     */
+    public void format(Appendable out) throws IOException {
+        IpAddress6.format(high, low, out);
+        out.append('/').append(Integer.toString(prefix));
+    }
+
+    /**
+     * @return Subnet in CIDR notation, e.g. "2001:db8::/32"
+     */
+    @Override
+    public String toString() {
+        byte[] buf = new byte[MAX_LENGTH];
+        return new String(buf, 0, format(buf, 0), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Compares two subnets for equality.
+     *
+     * @param o The other subnet.
+     * @return True if both network addresses and prefix lengths are the same.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Subnet6 s && high == s.high && low == s.low && prefix == s.prefix);
+    }
+
+    /**
+     * Calculates the hash code of the subnet, consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(high) + Long.hashCode(low)) + prefix;
+    }
+
+    /**
+     * Compares this subnet to another subnet by network address and then by prefix length.
+     *
+     * @param o The subnet to compare.
+     * @return A negative integer, zero, or a positive integer as this subnet is less than, equal to, or greater than the specified subnet.
+     */
+    @Override
+    public int compareTo(Subnet6 o) {
+        return compare(high, low, prefix, o.high, o.low, o.prefix);
+    }
+}
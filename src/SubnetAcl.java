@@ -0,0 +1,266 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * An ordered list of allow and deny rules on subnets, compiled for first-match evaluation in O(log n).
+ * The address space is cut at every rule boundary into elementary intervals, and each interval stores the
+ * first rule containing it, so a lookup is a binary search over the interval starts with the same result as
+ * checking the rules one by one. Compiled lists are immutable, {@link SubnetFilter} swaps them atomically.
+ */
+public final class SubnetAcl {
+    /**
+     * Minimum number of addresses per task when evaluating in parallel.
+     */
+    private static final int MIN_CHUNK = 1 << 14;
+    /**
+     * Maximum number of rules, rule indexes are packed into 21 bits while compiling.
+     */
+    private static final int MAX_RULES = 1 << 21;
+    /**
+     * The rules, in their original order.
+     */
+    private final Rule[] rules;
+    /**
+     * Whether addresses matching no rule are allowed.
+     */
+    private final boolean defaultAllow;
+    /**
+     * The first address of each interval with the sign bit flipped, so signed comparison orders them as unsigned.
+     * The first interval starts at 0.0.0.0.
+     */
+    private final int[] starts;
+    /**
+     * The index of the first matching rule of each interval, or -1 if no rule matches.
+     */
+    private final int[] matches;
+    /**
+     * Whether each interval is allowed, the action of its first matching rule or the default.
+     */
+    private final boolean[] allowed;
+
+    /**
+     * A rule of an access control list.
+     *
+     * @param subnet The subnet the rule applies to.
+     * @param allow  Whether addresses of the subnet are allowed or denied.
+     */
+    public record Rule(Subnet subnet, boolean allow) {
+    }
+
+    /**
+     * Constructs a compiled list.
+     *
+     * @param rules        The rules.
+     * @param defaultAllow Whether addresses matching no rule are allowed.
+     * @param starts       The interval starts with flipped sign bits.
+     * @param matches      The first matching rule of each interval.
+     */
+    private SubnetAcl(Rule[] rules, boolean defaultAllow, int[] starts, int[] matches) {
+        this.rules = rules;
+        this.defaultAllow = defaultAllow;
+        this.starts = starts;
+        this.matches = matches;
+        this.allowed = new boolean[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            allowed[i] = matches[i] < 0 ? defaultAllow : rules[matches[i]].allow();
+        }
+    }
+
+    /**
+     * Compiles an ordered rule list, in O(n log n).
+     *
+     * @param rules        The rules, the first rule containing an address decides.
+     * @param defaultAllow Whether addresses matching no rule are allowed.
+     * @return The compiled list.
+     * @throws IllegalArgumentException If there are more than 2^21 rules.
+     */
+    public static SubnetAcl compile(List<Rule> rules, boolean defaultAllow) {
+        Rule[] ruleArray = rules.toArray(new Rule[0]);
+        int n = ruleArray.length;
+        if (n > MAX_RULES) {
+            throw new IllegalArgumentException("Too many rules: " + n);
+        }
+        long[] events = new long[2 * n];
+        for (int r = 0; r < n; r++) {
+            Subnet subnet = ruleArray[r].subnet();
+            long first = subnet.getNetAddressAsInt() & 0xFFFFFFFFL;
+            long end = (subnet.getBroadcastAddressAsInt() & 0xFFFFFFFFL) + 1;
+            events[2 * r] = first << 21 | r;
+            events[2 * r + 1] = end << 21 | r;
+        }
+        Arrays.sort(events);
+        int[] starts = new int[2 * n + 1];
+        int[] matches = new int[2 * n + 1];
+        int count = 0;
+        starts[count] = Integer.MIN_VALUE;
+        matches[count++] = -1;
+        boolean[] active = new boolean[n];
+        PriorityQueue<Integer> open = new PriorityQueue<>();
+        for (int e = 0; e < events.length; ) {
+            long position = events[e] >>> 21;
+            for (; e < events.length && events[e] >>> 21 == position; e++) {
+                int r = (int) (events[e] & 0x1FFFFF);
+                if (active[r]) {
+                    active[r] = false;
+                } else {
+                    active[r] = true;
+                    open.add(r);
+                }
+            }
+            while (!open.isEmpty() && !active[open.peek()]) {
+                open.poll();
+            }
+            if (position > 0xFFFFFFFFL) {
+                break;
+            }
+            int match = open.isEmpty() ? -1 : open.peek();
+            if (match == matches[count - 1]) {
+                continue;
+            }
+            if ((starts[count - 1] ^ Integer.MIN_VALUE) == (int) position) {
+                count--;
+                if (count > 0 && matches[count - 1] == match) {
+                    continue;
+                }
+            }
+            starts[count] = (int) position ^ Integer.MIN_VALUE;
+            matches[count++] = match;
+        }
+        return new SubnetAcl(ruleArray, defaultAllow, Arrays.copyOf(starts, count), Arrays.copyOf(matches, count));
+    }
+
+    /**
+     * Finds the interval containing an address with a branch-free binary search.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The index of the interval.
+     */
+    private int interval(int ip) {
+        int key = ip ^ Integer.MIN_VALUE;
+        int[] s = starts;
+        int base = 0;
+        for (int length = s.length; length > 1; ) {
+            int half = length >>> 1;
+            base = s[base + half] <= key ? base + half : base;
+            length -= half;
+        }
+        return base;
+    }
+
+    /**
+     * Finds the first rule containing an address.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return The index of the rule, or -1 if no rule contains the address.
+     */
+    public int match(int ip) {
+        return matches[interval(ip)];
+    }
+
+    /**
+     * Checks if an address is allowed by the first rule containing it, or by default.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is allowed.
+     */
+    public boolean isAllowed(int ip) {
+        return allowed[interval(ip)];
+    }
+
+    /**
+     * Checks if an address is allowed by the first rule containing it, or by default.
+     *
+     * @param ip The IP address.
+     * @return True if the address is allowed.
+     */
+    public boolean isAllowed(IpAddress ip) {
+        return isAllowed(ip.getAsInt());
+    }
+
+    /**
+     * Finds the first matching rule of a batch of addresses.
+     *
+     * @param ips       The numerical representations of the IP addresses.
+     * @param offset    Index of the first address.
+     * @param length    Number of addresses.
+     * @param dst       Receives the index of the first matching rule of each address, or -1.
+     * @param dstOffset Index of the result of the first address.
+     */
+    public void match(int[] ips, int offset, int length, int[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = matches[interval(ips[offset + i])];
+        }
+    }
+
+    /**
+     * Finds the first matching rule of a batch of addresses, splitting large batches over the common pool.
+     *
+     * @param ips       The numerical representations of the IP addresses.
+     * @param offset    Index of the first address.
+     * @param length    Number of addresses.
+     * @param dst       Receives the index of the first matching rule of each address, or -1.
+     * @param dstOffset Index of the result of the first address.
+     */
+    public void matchParallel(int[] ips, int offset, int length, int[] dst, int dstOffset) {
+        int chunks = Math.max(1, Math.min(length / MIN_CHUNK, 4 * Runtime.getRuntime().availableProcessors()));
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = (int) ((long) length * c / chunks);
+            int to = (int) ((long) length * (c + 1) / chunks);
+            match(ips, offset + from, to - from, dst, dstOffset + from);
+        });
+    }
+
+    /**
+     * Checks a batch of addresses and stores the results as a bit mask like {@link Subnet#isInNetwork(int[], int, int, long[])},
+     * bit i is set if the i-th address is allowed.
+     *
+     * @param ips    The numerical representations of the IP addresses.
+     * @param offset Index of the first address.
+     * @param length Number of addresses.
+     * @param result The bit mask, needs room for {@code (length + 63) / 64} words which get overwritten.
+     * @return The number of allowed addresses.
+     */
+    public int isAllowed(int[] ips, int offset, int length, long[] result) {
+        int count = 0;
+        for (int base = 0; base < length; base += 64) {
+            int n = Math.min(64, length - base);
+            long word = 0;
+            for (int j = 0; j < n; j++) {
+                word |= (allowed[interval(ips[offset + base + j])] ? 1L : 0L) << j;
+            }
+            result[base >>> 6] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the rules.
+     *
+     * @return A copy of the rules, in their original order.
+     */
+    public List<Rule> getRules() {
+        return new ArrayList<>(Arrays.asList(rules));
+    }
+
+    /**
+     * Gets the action for addresses matching no rule.
+     *
+     * @return True if addresses matching no rule are allowed.
+     */
+    public boolean isDefaultAllow() {
+        return defaultAllow;
+    }
+
+    /**
+     * Gets the number of elementary intervals of the compiled list.
+     *
+     * @return The number of intervals.
+     */
+    public int getIntervalCount() {
+        return starts.length;
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Summarises subnet lists into the minimal equivalent set of CIDR blocks.
+ * Duplicates and nested subnets are dropped and adjacent or overlapping subnets are merged, in O(n log n).
+ * Subnets are handled in the packed form of {@link Subnet#toPackedLong()}, whose order matches {@link Subnet#compareTo(Subnet)}.
+ */
+public final class SubnetAggregator {
+    /**
+     * Minimum number of subnets per chunk when merging in parallel.
+     */
+    private static final int MIN_CHUNK = 1 << 14;
+
+    /**
+     * Not instantiable.
+     */
+    private SubnetAggregator() {
+    }
+
+    /**
+     * Aggregates subnets into the minimal list of subnets covering exactly the same addresses.
+     *
+     * @param subnets The subnets, host bits of their addresses are ignored.
+     * @return The aggregated subnets, ordered by network address.
+     */
+    public static List<Subnet> aggregate(Collection<Subnet> subnets) {
+        return aggregate(subnets, false);
+    }
+
+    /**
+     * Aggregates subnets into the minimal list of subnets covering exactly the same addresses.
+     *
+     * @param subnets  The subnets, host bits of their addresses are ignored.
+     * @param parallel Whether to sort and merge in parallel, worthwhile for very large inputs.
+     * @return The aggregated subnets, ordered by network address.
+     */
+    public static List<Subnet> aggregate(Collection<Subnet> subnets, boolean parallel) {
+        long[] packed = new long[subnets.size()];
+        int i = 0;
+        for (Subnet subnet : subnets) {
+            packed[i++] = subnet.toPackedLong();
+        }
+        long[] aggregated = aggregatePacked(packed, parallel);
+        List<Subnet> result = new ArrayList<>(aggregated.length);
+        for (long p : aggregated) {
+            result.add(Subnet.fromPackedLong(p));
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates packed subnets into the minimal set of packed subnets covering exactly the same addresses.
+     * The input array is not modified.
+     *
+     * @param packed   The subnets, packed by {@link Subnet#pack(int, int)} with the host bits cleared.
+     * @param parallel Whether to sort and merge in parallel, worthwhile for very large inputs.
+     * @return The aggregated packed subnets, in ascending order.
+     */
+    public static long[] aggregatePacked(long[] packed, boolean parallel) {
+        long[] sorted = packed.clone();
+        long[] ranges;
+        if (parallel && sorted.length >= 2 * MIN_CHUNK) {
+            Arrays.parallelSort(sorted);
+            ranges = mergeParallel(sorted);
+        } else {
+            Arrays.sort(sorted);
+            ranges = merge(sorted, 0, sorted.length);
+        }
+        return toSubnets(ranges, ranges.length);
+    }
+
+    /**
+     * Merges sorted packed subnets into disjoint, non-adjacent address ranges.
+     *
+     * @param sorted The packed subnets in ascending order.
+     * @param from   Index of the first subnet.
+     * @param to     Index after the last subnet.
+     * @return Pairs of the first and last address of each range, as unsigned values.
+     */
+    static long[] merge(long[] sorted, int from, int to) {
+        long[] ranges = new long[16];
+        int count = 0;
+        long start = -1;
+        long end = -2;
+        for (int i = from; i < to; i++) {
+            long first = sorted[i] >>> 8;
+            long last = first + (1L << (32 - (int) (sorted[i] & 0xFF))) - 1;
+            if (first <= end + 1) {
+                end = Math.max(end, last);
+            } else {
+                if (start >= 0) {
+                    ranges = append(ranges, count, start, end);
+                    count += 2;
+                }
+                start = first;
+                end = last;
+            }
+        }
+        if (start >= 0) {
+            ranges = append(ranges, count, start, end);
+            count += 2;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Merges sorted packed subnets into disjoint, non-adjacent address ranges, merging chunks in parallel.
+     *
+     * @param sorted The packed subnets in ascending order.
+     * @return Pairs of the first and last address of each range, as unsigned values.
+     */
+    private static long[] mergeParallel(long[] sorted) {
+        int chunks = Math.max(1, Math.min(sorted.length / MIN_CHUNK, 4 * Runtime.getRuntime().availableProcessors()));
+        long[][] parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> merge(sorted, (int) ((long) sorted.length * c / chunks), (int) ((long) sorted.length * (c + 1) / chunks)))
+                .toArray(long[][]::new);
+        long[] ranges = new long[Arrays.stream(parts).mapToInt(p -> p.length).sum()];
+        int count = 0;
+        for (long[] part : parts) {
+            int i = 0;
+            while (count > 0 && i < part.length && part[i] <= ranges[count - 1] + 1) {
+                ranges[count - 1] = Math.max(ranges[count - 1], part[i + 1]);
+                i += 2;
+            }
+            System.arraycopy(part, i, ranges, count, part.length - i);
+            count += part.length - i;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Covers address ranges with the minimal list of subnets.
+     *
+     * @param ranges Pairs of the first and last address of disjoint ranges in ascending order, as unsigned values.
+     * @param length Number of used entries of the ranges array.
+     * @return The packed subnets, in ascending order.
+     */
+    static long[] toSubnets(long[] ranges, int length) {
+        long[] result = new long[Math.max(16, length)];
+        int count = 0;
+        for (int i = 0; i < length; i += 2) {
+            long first = ranges[i];
+            long last = ranges[i + 1];
+            while (first <= last) {
+                int hostBits = first == 0 ? 32 : Long.numberOfTrailingZeros(first);
+                while (first + (1L << hostBits) - 1 > last) {
+                    hostBits--;
+                }
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = Subnet.pack((int) first, 32 - hostBits);
+                first += 1L << hostBits;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Appends a range to an array of ranges, growing it if needed.
+     *
+     * @param ranges The ranges.
+     * @param count  Number of used entries.
+     * @param first  The first address of the range.
+     * @param last   The last address of the range.
+     * @return The ranges array, possibly a larger copy.
+     */
+    private static long[] append(long[] ranges, int count, long first, long last) {
+        if (count + 2 > ranges.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        }
+        ranges[count] = first;
+        ranges[count + 1] = last;
+        return ranges;
+    }
+}
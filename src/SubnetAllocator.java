@@ -0,0 +1,248 @@
+/**
+ * Hands out subnets and single addresses from a pool subnet and takes them back, a buddy allocator.
+ * For every prefix length from the pool's to 32 a bitmap marks the free blocks of that size. An allocation
+ * takes the smallest free block that fits and splits it, a release merges the block with its free buddy
+ * as long as possible, so the pool does not fragment. A hint per bitmap remembers the first word that may
+ * contain a free block, which makes repeated allocations of one size O(1) amortized.
+ * <p>
+ * All methods are synchronized, so an allocator can be shared between threads.
+ */
+public class SubnetAllocator {
+    /**
+     * The smallest supported pool prefix length, larger pools would need very large bitmaps.
+     */
+    public static final int MIN_POOL_PREFIX = 8;
+    /**
+     * The numerical representation of the network address of the pool.
+     */
+    private final int poolNetwork;
+    /**
+     * The prefix length of the pool.
+     */
+    private final int poolPrefix;
+    /**
+     * The free blocks per depth (prefix length minus pool prefix length), bit b is set if block b is free.
+     */
+    private final long[][] free;
+    /**
+     * The allocated blocks per depth, bit b is set if block b was handed out at exactly that size.
+     */
+    private final long[][] allocated;
+    /**
+     * The number of free blocks per depth.
+     */
+    private final int[] freeCounts;
+    /**
+     * Per depth, the index of the first word of the free bitmap that may have a bit set.
+     */
+    private final int[] hints;
+    /**
+     * The number of addresses not allocated.
+     */
+    private long freeAddresses;
+
+    /**
+     * Constructs an allocator with all addresses of a pool free.
+     *
+     * @param pool The pool, host bits of its address are ignored.
+     * @throws IllegalArgumentException If the pool's prefix length is less than {@link #MIN_POOL_PREFIX}.
+     */
+    public SubnetAllocator(Subnet pool) {
+        poolPrefix = pool.getPrefixLength();
+        if (poolPrefix < MIN_POOL_PREFIX) {
+            throw new IllegalArgumentException("Pool " + pool.toCidrString() + " is larger than /" + MIN_POOL_PREFIX);
+        }
+        poolNetwork = pool.getNetAddressAsInt();
+        int depths = 33 - poolPrefix;
+        free = new long[depths][];
+        allocated = new long[depths][];
+        for (int d = 0; d < depths; d++) {
+            free[d] = new long[((1 << d) + 63) >>> 6];
+            allocated[d] = new long[free[d].length];
+        }
+        freeCounts = new int[depths];
+        hints = new int[depths];
+        free[0][0] = 1;
+        freeCounts[0] = 1;
+        freeAddresses = 1L << (32 - poolPrefix);
+    }
+
+    /**
+     * Allocates the smallest subnet with at least the given number of usable hosts, as counted by {@link Subnet#getNumberOfHosts()}.
+     *
+     * @param hosts The number of hosts.
+     * @return The subnet, or null if the pool has no free block of that size.
+     * @throws IllegalArgumentException If the number of hosts is not positive or does not fit in the pool.
+     */
+    public Subnet allocateForHosts(int hosts) {
+        if (hosts <= 0 || hosts > Integer.MAX_VALUE - 2) {
+            throw new IllegalArgumentException("Invalid number of hosts: " + hosts);
+        }
+        int hostBits = 32 - Integer.numberOfLeadingZeros(hosts + 1);
+        if (32 - hostBits < poolPrefix) {
+            throw new IllegalArgumentException(hosts + " hosts do not fit in a /" + poolPrefix);
+        }
+        return allocatePrefix(32 - hostBits);
+    }
+
+    /**
+     * Allocates a subnet of a prefix length.
+     *
+     * @param prefixLength The prefix length, from the pool's prefix length to 32.
+     * @return The subnet, or null if the pool has no free block of that size.
+     * @throws IllegalArgumentException If the prefix length is out of range.
+     */
+    public synchronized Subnet allocatePrefix(int prefixLength) {
+        if (prefixLength < poolPrefix || prefixLength > 32) {
+            throw new IllegalArgumentException("Invalid prefix length " + prefixLength + " for a /" + poolPrefix + " pool");
+        }
+        int depth = prefixLength - poolPrefix;
+        int d = depth;
+        int block = -1;
+        while (d >= 0 && (block = findFree(d)) < 0) {
+            d--;
+        }
+        if (block < 0) {
+            return null;
+        }
+        clearBit(free[d], block);
+        freeCounts[d]--;
+        while (d < depth) {
+            block <<= 1;
+            d++;
+            markFree(d, block | 1);
+        }
+        setBit(allocated[depth], block);
+        freeAddresses -= 1L << (32 - prefixLength);
+        return new Subnet(poolNetwork + (block << (32 - prefixLength)), prefixLength);
+    }
+
+    /**
+     * Allocates a single address.
+     *
+     * @return The numerical representation of the address, or {@link IpAddress#INVALID} if the pool is exhausted.
+     */
+    public synchronized long allocateAddress() {
+        Subnet host = allocatePrefix(32);
+        return host == null ? IpAddress.INVALID : host.getNetAddressAsInt() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns an allocated subnet to the pool, merging it with its free buddies.
+     *
+     * @param subnet A subnet returned by an allocate method, host bits of its address are ignored.
+     * @throws IllegalArgumentException If the subnet is not currently allocated from this pool.
+     */
+    public synchronized void release(Subnet subnet) {
+        int prefixLength = subnet.getPrefixLength();
+        int network = subnet.getNetAddressAsInt();
+        if (prefixLength < poolPrefix || ((network ^ poolNetwork) & Subnet.maskOf(poolPrefix)) != 0) {
+            throw new IllegalArgumentException("Subnet " + subnet.toCidrString() + " is not in the pool");
+        }
+        int d = prefixLength - poolPrefix;
+        int block = (network - poolNetwork) >>> (32 - prefixLength);
+        if (!testBit(allocated[d], block)) {
+            throw new IllegalArgumentException("Subnet " + subnet.toCidrString() + " is not allocated");
+        }
+        clearBit(allocated[d], block);
+        freeAddresses += 1L << (32 - prefixLength);
+        while (d > 0 && testBit(free[d], block ^ 1)) {
+            clearBit(free[d], block ^ 1);
+            freeCounts[d]--;
+            block >>>= 1;
+            d--;
+        }
+        markFree(d, block);
+    }
+
+    /**
+     * Returns an allocated single address to the pool.
+     *
+     * @param ip The numerical representation of an address returned by {@link #allocateAddress()}.
+     * @throws IllegalArgumentException If the address is not currently allocated from this pool.
+     */
+    public void releaseAddress(int ip) {
+        release(new Subnet(ip, 32));
+    }
+
+    /**
+     * Gets the number of addresses not allocated.
+     *
+     * @return The number of free addresses.
+     */
+    public synchronized long getFreeAddresses() {
+        return freeAddresses;
+    }
+
+    /**
+     * Gets the pool.
+     *
+     * @return The pool subnet.
+     */
+    public Subnet getPool() {
+        return new Subnet(poolNetwork, poolPrefix);
+    }
+
+    /**
+     * Finds a free block of a depth, starting at the hint.
+     *
+     * @param d The depth.
+     * @return The index of the first free block, or -1 if there is none.
+     */
+    private int findFree(int d) {
+        if (freeCounts[d] == 0) {
+            return -1;
+        }
+        long[] bits = free[d];
+        for (int w = hints[d]; w < bits.length; w++) {
+            if (bits[w] != 0) {
+                hints[d] = w;
+                return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+            }
+        }
+        throw new IllegalStateException("Free count and bitmap disagree");
+    }
+
+    /**
+     * Marks a block as free and moves the hint back if needed.
+     *
+     * @param d     The depth.
+     * @param block The index of the block.
+     */
+    private void markFree(int d, int block) {
+        setBit(free[d], block);
+        freeCounts[d]++;
+        hints[d] = Math.min(hints[d], block >>> 6);
+    }
+
+    /**
+     * Sets a bit of a bitmap.
+     *
+     * @param bits  The bitmap.
+     * @param index The index of the bit.
+     */
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Clears a bit of a bitmap.
+     *
+     * @param bits  The bitmap.
+     * @param index The index of the bit.
+     */
+    private static void clearBit(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Checks a bit of a bitmap.
+     *
+     * @param bits  The bitmap.
+     * @param index The index of the bit.
+     * @return True if the bit is set.
+     */
+    private static boolean testBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
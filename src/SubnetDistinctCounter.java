@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the number of distinct addresses per subnet with one {@link AddressHyperLogLog} per registered subnet.
+ * Every added address is counted in the sketch of the most specific registered subnet containing it,
+ * found by a lock-free lookup in a {@link PrefixTable} mapping the subnets to their index in an array of sketches.
+ * Adding is safe from several threads, and {@link #rotate()} replaces all sketches at once by swapping the array.
+ */
+public class SubnetDistinctCounter {
+    /**
+     * The precision of the sketches.
+     */
+    private final int precision;
+    /**
+     * The indexes of the subnets in {@link #subnets} and {@link #sketches}, for lookups.
+     */
+    private final PrefixTable<Integer> indexes = new PrefixTable<>();
+    /**
+     * The registered subnets in registration order, with their network addresses normalized. Only accessed by writers.
+     */
+    private final List<Subnet> subnets = new ArrayList<>();
+    /**
+     * The sketches of the subnets in registration order, replaced as a whole and never modified once published.
+     */
+    private volatile AddressHyperLogLog[] sketches = new AddressHyperLogLog[0];
+
+    /**
+     * Constructs an empty registry using sketches of the default precision.
+     */
+    public SubnetDistinctCounter() {
+        this(AddressHyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param precision The precision of the sketches, see {@link AddressHyperLogLog#AddressHyperLogLog(int)}.
+     * @throws IllegalArgumentException If the precision is out of range.
+     */
+    public SubnetDistinctCounter(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Invalid precision: " + precision);
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Registers a subnet with an empty sketch, a registered subnet keeps its sketch.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     */
+    public synchronized void register(Subnet subnet) {
+        Subnet key = normalize(subnet);
+        if (indexes.get(key) == null) {
+            grow(List.of(key));
+            indexes.put(key, subnets.size() - 1);
+        }
+    }
+
+    /**
+     * Registers subnets with empty sketches, registered subnets keep their sketches. The lookup table is built
+     * once for all new subnets.
+     *
+     * @param subnets The subnets, host bits of their addresses are ignored.
+     */
+    public synchronized void registerAll(Collection<Subnet> subnets) {
+        Map<Subnet, Integer> added = new LinkedHashMap<>();
+        for (Subnet subnet : subnets) {
+            Subnet key = normalize(subnet);
+            if (indexes.get(key) == null && !added.containsKey(key)) {
+                added.put(key, this.subnets.size() + added.size());
+            }
+        }
+        if (!added.isEmpty()) {
+            grow(added.keySet());
+            indexes.putAll(added);
+        }
+    }
+
+    /**
+     * Appends new subnets with empty sketches. The sketches are published before the indexes of the subnets,
+     * so every index a lookup can find is within the array.
+     *
+     * @param added The normalized subnets, not registered yet.
+     */
+    private void grow(Collection<Subnet> added) {
+        AddressHyperLogLog[] grown = Arrays.copyOf(sketches, subnets.size() + added.size());
+        for (int i = subnets.size(); i < grown.length; i++) {
+            grown[i] = new AddressHyperLogLog(precision);
+        }
+        sketches = grown;
+        subnets.addAll(added);
+    }
+
+    /**
+     * Counts an address in the sketch of the most specific registered subnet containing it.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if a registered subnet contains the address.
+     */
+    public boolean add(int ip) {
+        Integer index = indexes.lookup(ip);
+        if (index == null) {
+            return false;
+        }
+        sketches[index].add(ip);
+        return true;
+    }
+
+    /**
+     * Counts an address in the sketch of the most specific registered subnet containing it.
+     *
+     * @param ip The IP address.
+     * @return True if a registered subnet contains the address.
+     */
+    public boolean add(IpAddress ip) {
+        return add(ip.getAsInt());
+    }
+
+    /**
+     * Counts a batch of addresses.
+     *
+     * @param ips    The numerical representations of the IP addresses.
+     * @param offset Index of the first address.
+     * @param length Number of addresses.
+     * @return The number of addresses contained in a registered subnet.
+     */
+    public int addAll(int[] ips, int offset, int length) {
+        int matches = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (add(ips[i])) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimates the number of distinct addresses counted for a subnet.
+     *
+     * @param subnet The registered subnet, host bits of its address are ignored.
+     * @return The estimated number of distinct addresses.
+     * @throws IllegalArgumentException If the subnet is not registered.
+     */
+    public long estimate(Subnet subnet) {
+        Integer index = indexes.get(subnet);
+        if (index == null) {
+            throw new IllegalArgumentException("Subnet not registered: " + subnet.toCidrString());
+        }
+        return sketches[index].estimate();
+    }
+
+    /**
+     * Estimates the number of distinct addresses counted for every registered subnet.
+     *
+     * @return The estimates, in registration order.
+     */
+    public synchronized Map<Subnet, Long> estimates() {
+        AddressHyperLogLog[] current = sketches;
+        Map<Subnet, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < subnets.size(); i++) {
+            result.put(subnets.get(i), current[i].estimate());
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the sketches of all subnets by empty ones at once and returns the previous sketches, e.g. to close
+     * a time window. Every add sees either all previous or all new sketches, but adds racing with the call may
+     * still reach the returned sketches.
+     *
+     * @return The previous sketches, in registration order.
+     */
+    public synchronized Map<Subnet, AddressHyperLogLog> rotate() {
+        AddressHyperLogLog[] fresh = new AddressHyperLogLog[subnets.size()];
+        for (int i = 0; i < fresh.length; i++) {
+            fresh[i] = new AddressHyperLogLog(precision);
+        }
+        AddressHyperLogLog[] previous = sketches;
+        sketches = fresh;
+        Map<Subnet, AddressHyperLogLog> result = new LinkedHashMap<>();
+        for (int i = 0; i < previous.length; i++) {
+            result.put(subnets.get(i), previous[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of registered subnets.
+     *
+     * @return The number of subnets.
+     */
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Creates a subnet with the host bits of the address cleared, so equal networks are equal keys.
+     *
+     * @param subnet The subnet.
+     * @return The normalized subnet.
+     */
+    private static Subnet normalize(Subnet subnet) {
+        return new Subnet(subnet.getNetAddressAsInt(), subnet.getPrefixLength());
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.List;
+
+/**
+ * Holds the current compiled {@link SubnetAcl} of a filter. Lookups read the current list without locking,
+ * a recompiled rule list replaces it atomically, so every lookup sees either the old or the new rules.
+ */
+public class SubnetFilter {
+    /**
+     * The current compiled rule list.
+     */
+    private volatile SubnetAcl acl;
+
+    /**
+     * Constructs a filter from an ordered rule list.
+     *
+     * @param rules        The rules, the first rule containing an address decides.
+     * @param defaultAllow Whether addresses matching no rule are allowed.
+     */
+    public SubnetFilter(List<SubnetAcl.Rule> rules, boolean defaultAllow) {
+        this.acl = SubnetAcl.compile(rules, defaultAllow);
+    }
+
+    /**
+     * Checks if an address is allowed by the current rules.
+     *
+     * @param ip The numerical representation of the IP address.
+     * @return True if the address is allowed.
+     */
+    public boolean isAllowed(int ip) {
+        return acl.isAllowed(ip);
+    }
+
+    /**
+     * Checks if an address is allowed by the current rules.
+     *
+     * @param ip The IP address.
+     * @return True if the address is allowed.
+     */
+    public boolean isAllowed(IpAddress ip) {
+        return acl.isAllowed(ip.getAsInt());
+    }
+
+    /**
+     * Gets the current compiled rule list, e.g. to evaluate a batch against one consistent version.
+     *
+     * @return The compiled rule list.
+     */
+    public SubnetAcl get() {
+        return acl;
+    }
+
+    /**
+     * Compiles a new rule list and replaces the current one. Compiling happens before the swap, so lookups
+     * are not delayed.
+     *
+     * @param rules        The rules, the first rule containing an address decides.
+     * @param defaultAllow Whether addresses matching no rule are allowed.
+     * @return The previous compiled rule list.
+     */
+    public synchronized SubnetAcl update(List<SubnetAcl.Rule> rules, boolean defaultAllow) {
+        SubnetAcl previous = acl;
+        acl = SubnetAcl.compile(rules, defaultAllow);
+        return previous;
+    }
+}
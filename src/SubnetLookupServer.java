@@ -0,0 +1,380 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small embeddable server answering subnet membership and longest-prefix-match queries over a binary protocol,
+ * so services in other languages can classify addresses without reimplementing {@link Subnet}. It listens on a
+ * TCP address, normally loopback, or a Unix domain socket, and serves every connection with blocking NIO on its
+ * own virtual thread. Lookups go to a {@link PrefixTable}, whose subnets can be replaced while serving.
+ * <p>
+ * Protocol, big-endian: a request frame is an op code byte, the number of addresses n (at most {@link #MAX_BATCH})
+ * as int and n addresses as ints. The response frame repeats op code and n, followed by
+ * <ul>
+ * <li>for {@link #OP_CONTAINS}: a bit mask of {@code (n + 7) / 8} bytes, bit {@code i % 8} (least significant first)
+ * of byte {@code i / 8} is set if the i-th address is in any subnet;</li>
+ * <li>for {@link #OP_LOOKUP}: per address the network address of the most specific containing subnet as int and
+ * its prefix length as byte, or 0 and {@link #NO_MATCH} if no subnet contains it.</li>
+ * </ul>
+ * Clients may pipeline any number of requests, responses come in request order. Requests are processed as their
+ * bytes arrive, so a connection only needs small buffers regardless of the batch size. Responses to a large batch
+ * are therefore sent while the batch is still being received, a client has to read them concurrently or keep the
+ * unread responses within its socket buffer. An unknown op code or a too large batch closes the connection.
+ */
+public class SubnetLookupServer implements Closeable {
+    /**
+     * Op code of membership queries.
+     */
+    public static final byte OP_CONTAINS = 1;
+    /**
+     * Op code of longest-prefix-match queries.
+     */
+    public static final byte OP_LOOKUP = 2;
+    /**
+     * The prefix length byte of a lookup response for an address contained in no subnet.
+     */
+    public static final int NO_MATCH = 0xFF;
+    /**
+     * Maximum number of addresses per request frame.
+     */
+    public static final int MAX_BATCH = 1 << 20;
+    /**
+     * Size of the read and write buffers of a connection.
+     */
+    private static final int BUFFER_SIZE = 8 << 10;
+    /**
+     * Maximum pause in milliseconds after repeated failures to accept a connection.
+     */
+    private static final long MAX_ACCEPT_BACKOFF = 100;
+    /**
+     * The listening channel.
+     */
+    private final ServerSocketChannel server;
+    /**
+     * The open client connections, closed with the server.
+     */
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    /**
+     * The subnets, mapped to themselves in the packed form of {@link Subnet#toPackedLong()}.
+     */
+    private volatile PrefixTable<Long> table;
+
+    /**
+     * Constructs a server on a bound channel.
+     *
+     * @param server  The listening channel.
+     * @param subnets The subnets to serve.
+     */
+    private SubnetLookupServer(ServerSocketChannel server, Collection<Subnet> subnets) {
+        this.server = server;
+        this.table = toTable(subnets);
+    }
+
+    /**
+     * Starts a server on an ephemeral loopback TCP port.
+     *
+     * @param subnets The subnets to serve.
+     * @return The running server.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static SubnetLookupServer start(Collection<Subnet> subnets) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), subnets);
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param address An {@link InetSocketAddress} or a {@link UnixDomainSocketAddress} to listen on.
+     * @param subnets The subnets to serve.
+     * @return The running server.
+     * @throws IOException If the address cannot be bound.
+     */
+    public static SubnetLookupServer start(SocketAddress address, Collection<Subnet> subnets) throws IOException {
+        ServerSocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            channel.bind(address, 4096);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        SubnetLookupServer lookupServer = new SubnetLookupServer(channel, subnets);
+        Thread.ofVirtual().name("subnet-lookup-acceptor").start(lookupServer::acceptLoop);
+        return lookupServer;
+    }
+
+    /**
+     * Replaces the served subnets. Requests in progress finish with either the old or the new subnets per address.
+     *
+     * @param subnets The new subnets.
+     */
+    public void setSubnets(Collection<Subnet> subnets) {
+        table = toTable(subnets);
+    }
+
+    /**
+     * Gets the address the server listens on, e.g. to find out an ephemeral port.
+     *
+     * @return The local address.
+     * @throws IOException If the server is closed.
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Gets the number of open client connections.
+     *
+     * @return The number of connections.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops accepting connections and closes all open connections.
+     *
+     * @throws IOException If the listening channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a virtual thread for each. After repeated failures,
+     * e.g. when the process runs out of file descriptors, it pauses with growing delays instead of spinning.
+     */
+    private void acceptLoop() {
+        int failures = 0;
+        while (server.isOpen()) {
+            try {
+                SocketChannel connection = server.accept();
+                failures = 0;
+                connections.add(connection);
+                if (server.isOpen()) {
+                    Thread.ofVirtual().start(() -> serve(connection));
+                } else {
+                    closeQuietly(connection);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Accepting a single connection failed, e.g. because the client reset it, keep serving.
+                if (++failures > 1) {
+                    try {
+                        Thread.sleep(Math.min(MAX_ACCEPT_BACKOFF, 1L << Math.min(failures, 16)));
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves one connection until the client closes it or sends an invalid frame.
+     *
+     * @param connection The connection.
+     */
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            new Session(connection).run();
+        } catch (IOException e) {
+            // The client went away or sent an invalid frame, either way the connection is done.
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * The protocol state of one connection. Frames are decoded incrementally, so an address may be processed
+     * before the rest of its frame has arrived.
+     */
+    private final class Session {
+        /**
+         * The connection.
+         */
+        private final SocketChannel channel;
+        /**
+         * Received bytes not processed yet, in read mode.
+         */
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        /**
+         * Response bytes not sent yet, in write mode.
+         */
+        private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        /**
+         * The op code of the current frame, or 0 between frames.
+         */
+        private byte op;
+        /**
+         * The number of addresses of the current frame not processed yet.
+         */
+        private int remaining;
+        /**
+         * The membership bits of the current frame not written yet.
+         */
+        private int bits;
+        /**
+         * The number of bits in {@link #bits}.
+         */
+        private int bitCount;
+
+        /**
+         * Constructs the state of a new connection.
+         *
+         * @param channel The connection.
+         */
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Processes frames until the client closes the connection. Responses are sent whenever all received bytes
+         * are processed, so pipelined requests arriving together are answered with one write.
+         *
+         * @throws IOException If the connection fails or a frame is invalid.
+         */
+        void run() throws IOException {
+            while (true) {
+                process();
+                if (out.position() > 0) {
+                    flush();
+                }
+                in.compact();
+                int read = channel.read(in);
+                in.flip();
+                if (read < 0) {
+                    if (op != 0 || in.hasRemaining()) {
+                        throw new IOException("Truncated frame");
+                    }
+                    flush();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Processes all complete headers and addresses in the input buffer.
+         *
+         * @throws IOException If a frame is invalid or the connection fails while flushing.
+         */
+        private void process() throws IOException {
+            PrefixTable<Long> t = table;
+            while (true) {
+                if (op == 0) {
+                    if (in.remaining() < 5) {
+                        return;
+                    }
+                    op = in.get();
+                    remaining = in.getInt();
+                    if ((op != OP_CONTAINS && op != OP_LOOKUP) || remaining < 0 || remaining > MAX_BATCH) {
+                        throw new IOException("Invalid frame header");
+                    }
+                    reserve(5);
+                    out.put(op).putInt(remaining);
+                } else if (remaining == 0) {
+                    if (bitCount > 0) {
+                        reserve(1);
+                        out.put((byte) bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                    op = 0;
+                } else if (in.remaining() < 4) {
+                    return;
+                } else if (op == OP_CONTAINS) {
+                    bits |= (t.lookup(in.getInt()) != null ? 1 : 0) << bitCount;
+                    remaining--;
+                    if (++bitCount == 8) {
+                        reserve(1);
+                        out.put((byte) bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                } else {
+                    Long match = t.lookup(in.getInt());
+                    remaining--;
+                    reserve(5);
+                    if (match == null) {
+                        out.putInt(0).put((byte) NO_MATCH);
+                    } else {
+                        out.putInt((int) (match >>> 8)).put((byte) (long) match);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Makes room in the output buffer, sending it if needed.
+         *
+         * @param bytes The number of bytes about to be written.
+         * @throws IOException If the connection fails.
+         */
+        private void reserve(int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Sends all buffered response bytes.
+         *
+         * @throws IOException If the connection fails.
+         */
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+
+    /**
+     * Builds the lookup table of a list of subnets.
+     *
+     * @param subnets The subnets.
+     * @return The table, mapping every subnet to its packed form.
+     */
+    private static PrefixTable<Long> toTable(Collection<Subnet> subnets) {
+        Map<Subnet, Long> entries = new HashMap<>(2 * subnets.size());
+        for (Subnet subnet : subnets) {
+            entries.put(subnet, subnet.toPackedLong());
+        }
+        PrefixTable<Long> t = new PrefixTable<>();
+        t.putAll(entries);
+        return t;
+    }
+
+    /**
+     * Closes a channel, ignoring failures.
+     *
+     * @param channel The channel.
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with a channel that cannot be closed.
+        }
+    }
+}
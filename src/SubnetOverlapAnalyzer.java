@@ -0,0 +1,197 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Finds duplicate and nested subnets and the gaps between them in large subnet inventories, in O(n log n).
+ * Two subnets overlap exactly if one contains the other, so after sorting the inventory by network address
+ * and prefix length a single sweep with a stack of the open enclosing subnets finds every relation.
+ * Results are passed to a {@link Listener} as they are found, so memory use does not depend on their number.
+ * <p>
+ * The parallel variant sorts in parallel and sweeps independent parts of the sorted inventory concurrently,
+ * each part starting at a subnet not contained in any other. The parts are found in one linear pass, a subnet
+ * starts a part if its first address lies beyond the last addresses of all subnets before it.
+ */
+public final class SubnetOverlapAnalyzer {
+    /**
+     * Maximum number of subnets, entry indexes are packed into the low 24 bits of the sort keys.
+     */
+    private static final int MAX_SUBNETS = 1 << 24;
+    /**
+     * Minimum number of subnets per part when sweeping in parallel.
+     */
+    private static final int MIN_CHUNK = 1 << 14;
+
+    /**
+     * Not instantiable.
+     */
+    private SubnetOverlapAnalyzer() {
+    }
+
+    /**
+     * Receives the results of an analysis. Subnets are passed in the packed form of {@link Subnet#toPackedLong()}
+     * together with their index in the inventory. When analyzing in parallel the methods are called concurrently.
+     */
+    public interface Listener {
+        /**
+         * Receives a subnet which occurs more than once. Duplicates are reported against the first occurrence
+         * in sort order and are not reported as children of the enclosing subnets again.
+         *
+         * @param packed         The subnet.
+         * @param index          The index of the first occurrence.
+         * @param duplicateIndex The index of the duplicate.
+         */
+        default void duplicate(long packed, int index, int duplicateIndex) {
+        }
+
+        /**
+         * Receives a subnet contained in a larger subnet, once for every enclosing subnet.
+         *
+         * @param parent      The larger subnet.
+         * @param parentIndex The index of the larger subnet.
+         * @param child       The contained subnet.
+         * @param childIndex  The index of the contained subnet.
+         */
+        default void containment(long parent, int parentIndex, long child, int childIndex) {
+        }
+
+        /**
+         * Receives a range of addresses between the first and the last address of the inventory which is
+         * not covered by any subnet.
+         *
+         * @param first The numerical representation of the first address of the gap.
+         * @param last  The numerical representation of the last address of the gap.
+         */
+        default void gap(int first, int last) {
+        }
+    }
+
+    /**
+     * Analyzes an inventory of subnets.
+     *
+     * @param subnets  The subnets, indexes passed to the listener are positions in iteration order.
+     * @param listener Receives the results.
+     * @param parallel Whether to sort and sweep in parallel, then the listener must be thread-safe.
+     * @throws IllegalArgumentException If there are more than 2^24 subnets.
+     */
+    public static void analyze(Collection<Subnet> subnets, Listener listener, boolean parallel) {
+        long[] packed = new long[subnets.size()];
+        int i = 0;
+        for (Subnet subnet : subnets) {
+            packed[i++] = subnet.toPackedLong();
+        }
+        analyzePacked(packed, listener, parallel);
+    }
+
+    /**
+     * Analyzes an inventory of packed subnets. The input array is not modified.
+     *
+     * @param packed   The subnets, packed by {@link Subnet#pack(int, int)} with the host bits cleared.
+     * @param listener Receives the results.
+     * @param parallel Whether to sort and sweep in parallel, then the listener must be thread-safe.
+     * @throws IllegalArgumentException If there are more than 2^24 subnets.
+     */
+    public static void analyzePacked(long[] packed, Listener listener, boolean parallel) {
+        if (packed.length > MAX_SUBNETS) {
+            throw new IllegalArgumentException("Too many subnets: " + packed.length);
+        }
+        long[] keys = new long[packed.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (packed[i] << 24 | i) ^ Long.MIN_VALUE;
+        }
+        if (parallel && keys.length >= 2 * MIN_CHUNK) {
+            Arrays.parallelSort(keys);
+            sweepParallel(keys, listener);
+        } else {
+            Arrays.sort(keys);
+            sweep(keys, 0, keys.length, listener);
+        }
+    }
+
+    /**
+     * Sweeps independent parts of the sorted keys in parallel and reports the gaps between the parts.
+     *
+     * @param keys     The sort keys in ascending order.
+     * @param listener Receives the results.
+     */
+    private static void sweepParallel(long[] keys, Listener listener) {
+        int chunks = Math.max(1, Math.min(keys.length / MIN_CHUNK, 4 * Runtime.getRuntime().availableProcessors()));
+        int[] bounds = new int[chunks + 1];
+        int n = 1;
+        long maxLast = -1;
+        for (int i = 0; i < keys.length && n < chunks; i++) {
+            long packed = packedOf(keys[i]);
+            long start = packed >>> 8;
+            if (start > maxLast && i > 0 && i >= (int) ((long) keys.length * n / chunks)) {
+                bounds[n++] = i;
+            }
+            maxLast = Math.max(maxLast, start + (1L << (32 - (int) (packed & 0xFF))) - 1);
+        }
+        bounds[n] = keys.length;
+        int parts = n;
+        long[][] ranges = IntStream.range(0, parts).parallel()
+                .mapToObj(c -> sweep(keys, bounds[c], bounds[c + 1], listener))
+                .toArray(long[][]::new);
+        for (int c = 1; c < parts; c++) {
+            if (ranges[c][0] > ranges[c - 1][1] + 1) {
+                listener.gap((int) (ranges[c - 1][1] + 1), (int) (ranges[c][0] - 1));
+            }
+        }
+    }
+
+    /**
+     * Sweeps a part of the sorted keys which starts with a subnet contained in no earlier subnet.
+     *
+     * @param keys     The sort keys in ascending order.
+     * @param from     Index of the first entry.
+     * @param to       Index after the last entry.
+     * @param listener Receives the results.
+     * @return The first and the last address covered by the part, as unsigned values.
+     */
+    private static long[] sweep(long[] keys, int from, int to, Listener listener) {
+        long[] stackPacked = new long[33];
+        int[] stackIndex = new int[33];
+        long[] stackLast = new long[33];
+        int depth = 0;
+        long first = -1;
+        long coveredEnd = -1;
+        for (int i = from; i < to; i++) {
+            long packed = packedOf(keys[i]);
+            int index = (int) keys[i] & (MAX_SUBNETS - 1);
+            long start = packed >>> 8;
+            long last = start + (1L << (32 - (int) (packed & 0xFF))) - 1;
+            while (depth > 0 && stackLast[depth - 1] < start) {
+                depth--;
+            }
+            if (depth > 0 && stackPacked[depth - 1] == packed) {
+                listener.duplicate(packed, stackIndex[depth - 1], index);
+                continue;
+            }
+            if (depth == 0) {
+                if (first < 0) {
+                    first = start;
+                } else if (start > coveredEnd + 1) {
+                    listener.gap((int) (coveredEnd + 1), (int) (start - 1));
+                }
+                coveredEnd = last;
+            }
+            for (int s = 0; s < depth; s++) {
+                listener.containment(stackPacked[s], stackIndex[s], packed, index);
+            }
+            stackPacked[depth] = packed;
+            stackIndex[depth] = index;
+            stackLast[depth++] = last;
+        }
+        return new long[]{first, coveredEnd};
+    }
+
+    /**
+     * Extracts the packed subnet from a sort key.
+     *
+     * @param key The sort key.
+     * @return The packed subnet.
+     */
+    private static long packedOf(long key) {
+        return (key ^ Long.MIN_VALUE) >>> 24;
+    }
+}
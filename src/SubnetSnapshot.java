@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only list of subnets stored in a compact binary file, which loads without parsing.
+ * The file is memory-mapped and entries are read on access, {@link Subnet} objects are only created by {@link #get(int)}.
+ * <p>
+ * File format, big-endian: a 16 byte header with the magic number {@code "SNET"}, the format version, the number
+ * of entries n and the CRC32 of the rest of the file, followed by n network addresses as ints and n prefix lengths
+ * as bytes. Entries are distinct, have their host bits cleared and are sorted like {@link Subnet#toPackedLong()}.
+ */
+public final class SubnetSnapshot {
+    /**
+     * The magic number at the start of every snapshot file, "SNET" in ASCII.
+     */
+    private static final int MAGIC = 0x534E4554;
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buf;
+    /**
+     * The number of entries.
+     */
+    private final int size;
+
+    /**
+     * Constructs a snapshot from a validated buffer.
+     *
+     * @param buf  The file contents.
+     * @param size The number of entries.
+     */
+    private SubnetSnapshot(ByteBuffer buf, int size) {
+        this.buf = buf;
+        this.size = size;
+    }
+
+    /**
+     * Writes subnets to a snapshot file, replacing the file if it exists.
+     *
+     * @param file    The file.
+     * @param subnets The subnets, host bits of their addresses are ignored and duplicates are dropped.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, Collection<Subnet> subnets) throws IOException {
+        long[] packed = new long[subnets.size()];
+        int i = 0;
+        for (Subnet subnet : subnets) {
+            packed[i++] = subnet.toPackedLong();
+        }
+        writePacked(file, packed);
+    }
+
+    /**
+     * Writes packed subnets to a snapshot file, replacing the file if it exists. The input array is not modified.
+     * The snapshot is written to a temporary file in the same directory first and then moved over the file, so
+     * snapshots mapped from the old file stay valid.
+     *
+     * @param file   The file.
+     * @param packed The subnets, packed by {@link Subnet#pack(int, int)} with the host bits cleared.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException If an entry is not a valid packed subnet or has host bits set.
+     */
+    public static void writePacked(Path file, long[] packed) throws IOException {
+        long[] sorted = packed.clone();
+        Arrays.parallelSort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            int network = (int) (sorted[i] >>> 8);
+            int prefixLength = (int) sorted[i] & 0xFF;
+            if (sorted[i] >>> 40 != 0 || prefixLength > 32 || (network & ~Subnet.maskOf(prefixLength)) != 0) {
+                throw new IllegalArgumentException("Invalid packed subnet: " + Long.toHexString(sorted[i]));
+            }
+            if (n == 0 || sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + 5 * n);
+        out.position(HEADER_SIZE);
+        for (int i = 0; i < n; i++) {
+            out.putInt((int) (sorted[i] >>> 8));
+        }
+        for (int i = 0; i < n; i++) {
+            out.put((byte) sorted[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HEADER_SIZE, 5 * n);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, n).putInt(12, (int) crc.getValue());
+        out.position(0);
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a snapshot file by mapping it into memory and verifying its header, checksum and entries.
+     *
+     * @param file The file.
+     * @return The snapshot.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static SubnetSnapshot open(Path file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid subnet snapshot size " + length + ": " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a subnet snapshot: " + file);
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("Unsupported subnet snapshot version " + buf.getInt(4) + ": " + file);
+        }
+        int size = buf.getInt(8);
+        if (size < 0 || (long) HEADER_SIZE + 5L * size != buf.limit()) {
+            throw new IOException("Truncated subnet snapshot: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_SIZE, 5 * size));
+        if ((int) crc.getValue() != buf.getInt(12)) {
+            throw new IOException("Corrupt subnet snapshot, checksum mismatch: " + file);
+        }
+        long previous = -1;
+        for (int i = 0; i < size; i++) {
+            int network = buf.getInt(HEADER_SIZE + 4 * i);
+            int prefixLength = buf.get(HEADER_SIZE + 4 * size + i) & 0xFF;
+            if (prefixLength > 32 || (prefixLength < 32 && network << prefixLength != 0)) {
+                throw new IOException("Invalid subnet snapshot, bad entry " + i + ": " + file);
+            }
+            long packed = Subnet.pack(network, prefixLength);
+            if (packed <= previous) {
+                throw new IOException("Invalid subnet snapshot, entry " + i + " is not sorted: " + file);
+            }
+            previous = packed;
+        }
+        return new SubnetSnapshot(buf, size);
+    }
+
+    /**
+     * Gets the number of subnets in the snapshot.
+     *
+     * @return The number of subnets.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the network address of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The numerical representation of the network address.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int getNetAddressAsInt(int index) {
+        return buf.getInt(HEADER_SIZE + 4 * checkIndex(index));
+    }
+
+    /**
+     * Gets the prefix length of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The prefix length.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public int getPrefixLength(int index) {
+        return buf.get(HEADER_SIZE + 4 * size + checkIndex(index)) & 0xFF;
+    }
+
+    /**
+     * Gets an entry in the packed form of {@link Subnet#toPackedLong()}.
+     *
+     * @param index The index of the entry.
+     * @return The packed subnet.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public long getPackedLong(int index) {
+        return Subnet.pack(getNetAddressAsInt(index), getPrefixLength(index));
+    }
+
+    /**
+     * Gets an entry as a subnet object.
+     *
+     * @param index The index of the entry.
+     * @return The subnet.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public Subnet get(int index) {
+        return new Subnet(getNetAddressAsInt(index), getPrefixLength(index));
+    }
+
+    /**
+     * Finds the entry of a subnet by binary search.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     * @return The index of the entry, or -1 if the subnet is not in the snapshot.
+     */
+    public int indexOf(Subnet subnet) {
+        long key = subnet.toPackedLong();
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long value = getPackedLong(mid);
+            if (value < key) {
+                lo = mid + 1;
+            } else if (value > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a subnet is in the snapshot.
+     *
+     * @param subnet The subnet, host bits of its address are ignored.
+     * @return True if the subnet is in the snapshot.
+     */
+    public boolean contains(Subnet subnet) {
+        return indexOf(subnet) >= 0;
+    }
+
+    /**
+     * Copies all entries into an array.
+     *
+     * @return The packed subnets, in ascending order.
+     */
+    public long[] toPackedArray() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = getPackedLong(i);
+        }
+        return packed;
+    }
+
+    /**
+     * Checks if an entry index is valid.
+     *
+     * @param index The index.
+     * @return The index.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+}
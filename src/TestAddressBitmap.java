@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the AddressBitmap class.
+ */
+public class TestAddressBitmap {
+    /**
+     * Creates random addresses, dense in 10.0.0.0/16, sparse elsewhere and with duplicates.
+     *
+     * @param random The random generator.
+     * @param n      The number of addresses.
+     * @return The addresses.
+     */
+    private static int[] randomAddresses(Random random, int n) {
+        int[] ips = new int[n];
+        for (int i = 0; i < n; i++) {
+            ips[i] = switch (random.nextInt(3)) {
+                case 0 -> 0x0A000000 | random.nextInt(1 << 16);
+                case 1 -> 0xC0A80000 | random.nextInt(1 << 12);
+                default -> random.nextInt();
+            };
+        }
+        return ips;
+    }
+
+    /**
+     * Converts addresses to a set.
+     *
+     * @param ips The addresses.
+     * @return The set.
+     */
+    private static Set<Integer> toSet(int[] ips) {
+        Set<Integer> set = new HashSet<>();
+        for (int ip : ips) {
+            set.add(ip);
+        }
+        return set;
+    }
+
+    /**
+     * Compares adding, contains, set operations and serialization against HashSets.
+     */
+    @Test
+    void randomSetTests() {
+        Random random = new Random(18);
+        int[] a = randomAddresses(random, 40_000);
+        int[] b = randomAddresses(random, 40_000);
+        AddressBitmap setA = AddressBitmap.of(a);
+        AddressBitmap setB = new AddressBitmap();
+        for (int ip : b) {
+            setB.add(ip);
+        }
+        assertEquals(setB, AddressBitmap.of(b));
+        Set<Integer> expectedA = toSet(a);
+        Set<Integer> expectedB = toSet(b);
+        assertEquals(setA.getCardinality(), expectedA.size());
+        for (int i = 0; i < 10_000; i++) {
+            int ip = i < 5000 ? a[i] : 0x0A000000 | random.nextInt(1 << 16);
+            assertEquals(setA.contains(ip), expectedA.contains(ip));
+        }
+        Set<Integer> union = new HashSet<>(expectedA);
+        union.addAll(expectedB);
+        Set<Integer> intersection = new HashSet<>(expectedA);
+        intersection.retainAll(expectedB);
+        Set<Integer> difference = new HashSet<>(expectedA);
+        difference.removeAll(expectedB);
+        assertEquals(toSet(setA.union(setB).toArray()), union);
+        assertEquals(toSet(setA.intersection(setB).toArray()), intersection);
+        assertEquals(toSet(setA.andNot(setB).toArray()), difference);
+        int[] sorted = setA.toArray();
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(Integer.compareUnsigned(sorted[i - 1], sorted[i]) < 0);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(setA.serializedSize());
+        setA.serialize(buf);
+        assertFalse(buf.hasRemaining());
+        assertEquals(AddressBitmap.deserialize(buf.flip()), setA);
+        assertThrows(IllegalArgumentException.class, () -> AddressBitmap.deserialize(ByteBuffer.wrap(new byte[]{0, 0, 0, 2, 0, 1, 0, 0, 0, 0})));
+    }
+
+    /**
+     * Tests counting the addresses in subnets.
+     */
+    @Test
+    void subnetCardinalityTests() {
+        int[] ips = new int[10_000];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = 0x0A000000 + i * 3;
+        }
+        AddressBitmap set = AddressBitmap.of(ips);
+        set.add(new IpAddress("192.168.1.1").getAsInt());
+        assertEquals(set.getCardinality(new Subnet("10.0.0.0/8")), 10_000);
+        assertEquals(set.getCardinality(new Subnet("10.0.0.0/24")), 86);
+        assertEquals(set.getCardinality(new Subnet("10.0.1.0/25")), 42);
+        assertEquals(set.getCardinality(new Subnet("10.0.0.3/32")), 1);
+        assertEquals(set.getCardinality(new Subnet("10.0.0.4/32")), 0);
+        assertEquals(set.getCardinality(new Subnet("0.0.0.0/0")), 10_001);
+        assertEquals(set.getCardinality(new Subnet("192.168.0.0/16")), 1);
+        AddressBitmap sparse = AddressBitmap.of(Arrays.copyOf(ips, 100));
+        assertEquals(sparse.getCardinality(new Subnet("10.0.0.128/25")), 43);
+        assertTrue(set.andNot(set).isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the AddressHyperLogLog and SubnetDistinctCounter classes.
+ */
+public class TestAddressHyperLogLog {
+    /**
+     * Tests the accuracy of estimates and merging.
+     */
+    @Test
+    void estimateTests() {
+        AddressHyperLogLog empty = new AddressHyperLogLog();
+        assertEquals(empty.estimate(), 0);
+        for (int n : new int[]{10, 1000, 50_000, 1_000_000}) {
+            AddressHyperLogLog sketch = new AddressHyperLogLog();
+            for (int i = 0; i < n; i++) {
+                sketch.add(0x0A000000 + i);
+                sketch.add(0x0A000000 + i);
+            }
+            assertEquals(sketch.estimate(), n, n * 0.05 + 1, "n=" + n);
+        }
+        AddressHyperLogLog a = new AddressHyperLogLog(14);
+        AddressHyperLogLog b = new AddressHyperLogLog(14);
+        IntStream.range(0, 300_000).parallel().forEach(i -> a.add(i * 7));
+        IntStream.range(200_000, 500_000).forEach(i -> b.add(i * 7));
+        a.merge(b);
+        assertEquals(a.estimate(), 500_000, 500_000 * 0.03);
+        a.clear();
+        assertEquals(a.estimate(), 0);
+        assertThrows(IllegalArgumentException.class, () -> a.merge(new AddressHyperLogLog()));
+        assertThrows(IllegalArgumentException.class, () -> new AddressHyperLogLog(3));
+    }
+
+    /**
+     * Tests distinct counts per subnet.
+     */
+    @Test
+    void subnetTests() {
+        SubnetDistinctCounter counter = new SubnetDistinctCounter();
+        counter.register(new Subnet("10.0.0.0/8"));
+        counter.register(new Subnet("10.1.0.0/16"));
+        counter.register(new Subnet("192.168.1.7/24"));
+        assertEquals(counter.size(), 3);
+        for (int i = 0; i < 20_000; i++) {
+            counter.add(0x0A000000 + i * 800);
+            counter.add(0x0A010000 + (i & 0xFFF));
+        }
+        assertTrue(counter.add(new IpAddress("192.168.1.1")));
+        assertFalse(counter.add(new IpAddress("192.168.2.1")));
+        Map<Subnet, Long> estimates = counter.estimates();
+        assertEquals(estimates.get(new Subnet("10.0.0.0/8")), 20_000, 20_000 * 0.05);
+        assertEquals(estimates.get(new Subnet("10.1.0.0/16")), 4096, 4096 * 0.05);
+        assertEquals(counter.estimate(new Subnet("192.168.1.0/24")), 1);
+        assertEquals(counter.rotate().get(new Subnet("192.168.1.0/24")).estimate(), 1);
+        assertEquals(counter.estimate(new Subnet("192.168.1.0/24")), 0);
+        assertThrows(IllegalArgumentException.class, () -> counter.estimate(new Subnet("172.16.0.0/12")));
+    }
+
+    /**
+     * Tests registering many subnets at once and rotating all sketches.
+     */
+    @Test
+    void registerAllAndRotateTests() {
+        SubnetDistinctCounter counter = new SubnetDistinctCounter(10);
+        counter.register(new Subnet("10.0.0.0/8"));
+        List<Subnet> subnets = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            subnets.add(new Subnet(0x0A000000 | i << 8 | 7, 24));
+        }
+        subnets.add(new Subnet("10.0.0.0/8"));
+        counter.registerAll(subnets);
+        counter.registerAll(subnets);
+        assertEquals(counter.size(), 1001);
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(counter.add(0x0A000000 | i << 8 | 1));
+        }
+        Map<Subnet, AddressHyperLogLog> previous = counter.rotate();
+        assertEquals(previous.keySet().iterator().next(), new Subnet("10.0.0.0/8"));
+        assertEquals(previous.get(new Subnet("10.0.0.0/8")).estimate(), 1000, 1000 * 0.1);
+        assertEquals(previous.get(new Subnet("10.0.3.0/24")).estimate(), 1);
+        assertTrue(counter.estimates().values().stream().allMatch(estimate -> estimate == 0));
+        counter.add(0x0A000301);
+        assertEquals(counter.estimate(new Subnet("10.0.3.0/24")), 1);
+        assertEquals(previous.get(new Subnet("10.0.3.0/24")).estimate(), 1);
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ConcurrentAddressCounter class.
+ */
+public class TestConcurrentAddressCounter {
+    /**
+     * Tests counting, rolling up and draining from a single thread.
+     */
+    @Test
+    void counterTests() {
+        ConcurrentAddressCounter counter = new ConcurrentAddressCounter(4);
+        counter.increment(new IpAddress("192.168.1.1"));
+        counter.increment(new IpAddress("192.168.1.2"));
+        counter.add(new IpAddress("192.168.2.1").getAsInt(), 5);
+        counter.increment(0);
+        for (int i = 0; i < 10000; i++) {
+            counter.increment(0x0A000000 + i);
+        }
+        assertEquals(counter.get(new IpAddress("192.168.2.1").getAsInt()), 5);
+        assertEquals(counter.get(0), 1);
+        assertEquals(counter.get(0x0B000000), 0);
+        assertEquals(counter.size(), 10004);
+        IpAddressLongMap perNet = counter.rollup(24);
+        assertEquals(perNet.get(new IpAddress("192.168.1.0").getAsInt()), 2);
+        assertEquals(perNet.get(new IpAddress("192.168.2.0").getAsInt()), 5);
+        assertEquals(perNet.get(0x0A000000), 256);
+        assertEquals(counter.rollup(0).get(0), 10008);
+        assertEquals(counter.snapshot().size(), 10004);
+        assertEquals(counter.drain().get(0x0A000000 + 9999), 1);
+        assertEquals(counter.size(), 0);
+        assertEquals(counter.get(0x0A000000), 0);
+        assertThrows(IllegalArgumentException.class, () -> counter.rollup(33));
+    }
+
+    /**
+     * Tests that concurrent increments are neither lost nor counted twice by concurrent drains.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writers.
+     */
+    @Test
+    void concurrentTests() throws InterruptedException {
+        ConcurrentAddressCounter counter = new ConcurrentAddressCounter();
+        int threads = 8;
+        int perThread = 200_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counter.increment((i * 31 + seed) & 0x3FFF);
+                }
+            }));
+        }
+        AtomicLong drained = new AtomicLong();
+        while (writers.stream().anyMatch(Thread::isAlive)) {
+            counter.drain().forEach((ip, count) -> drained.addAndGet(count));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        counter.forEach((ip, count) -> drained.addAndGet(count));
+        assertEquals(drained.get(), (long) threads * perThread);
+    }
+}
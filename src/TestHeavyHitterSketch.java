@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the HeavyHitterSketch class.
+ */
+public class TestHeavyHitterSketch {
+    /**
+     * Tests that a hot host, a hot /24 of many hosts and a hot /8 show up at their levels with discounted counts,
+     * while concurrent threads add background traffic.
+     */
+    @Test
+    void hierarchicalTests() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch();
+        int host = new IpAddress("203.0.113.7").getAsInt();
+        int net24 = new IpAddress("198.51.100.0").getAsInt();
+        int net8 = new IpAddress("45.0.0.0").getAsInt();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            Random random = new Random(t);
+            for (int i = 0; i < 100000; i++) {
+                sketch.add(random.nextInt());
+                if (i % 4 == 0) {
+                    sketch.add(host);
+                }
+                if (i % 4 == 1) {
+                    sketch.add(net24 | random.nextInt(256));
+                }
+                if (i % 4 == 2) {
+                    sketch.add(net8 | random.nextInt(1 << 24));
+                }
+            }
+        });
+        assertEquals(sketch.getTotal(), 8 * 175000);
+        List<HeavyHitterSketch.HeavyHitter> heavy = sketch.heavyHitters(0.05);
+        assertEquals(heavy.stream().map(h -> h.subnet().toCidrString()).toList(),
+                List.of("45.0.0.0/8", "198.51.100.0/24", "203.0.113.7/32"));
+        assertTrue(heavy.get(0).count() >= 200000 && heavy.get(0).count() < 210000);
+        assertEquals(heavy.get(0).discountedCount(), heavy.get(0).count());
+        assertTrue(heavy.get(2).count() >= 200000 && heavy.get(2).count() < 201000);
+        assertTrue(sketch.estimate(new Subnet("203.0.0.0/8")) >= 200000);
+        assertTrue(sketch.estimate(new Subnet("198.51.100.0/24")) >= 200000);
+        assertEquals(sketch.top(24, 1).get(0).subnet(), new Subnet("198.51.100.0/24"));
+        assertEquals(sketch.top(32, 1).get(0).subnet(), new Subnet("203.0.113.7/32"));
+
+        List<HeavyHitterSketch.HeavyHitter> previous = sketch.rotate(0.05);
+        assertEquals(previous, heavy);
+        assertEquals(sketch.getTotal(), 0);
+        assertTrue(sketch.heavyHitters(0.05).isEmpty());
+    }
+
+    /**
+     * Tests the discount of nested heavy prefixes and the argument checks.
+     */
+    @Test
+    void discountTests() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(new int[]{16, 24, 32}, 1 << 10, 64);
+        int a = new IpAddress("10.1.1.1").getAsInt();
+        int b = new IpAddress("10.1.2.1").getAsInt();
+        sketch.add(a, 40);
+        sketch.add(b, 40);
+        sketch.add(new IpAddress("10.1.3.1").getAsInt(), 10);
+        sketch.add(new IpAddress("10.1.4.1").getAsInt(), 10);
+        List<HeavyHitterSketch.HeavyHitter> heavy = sketch.heavyHitters(0.15);
+        assertEquals(heavy.size(), 3);
+        assertEquals(heavy.get(0), new HeavyHitterSketch.HeavyHitter(new Subnet("10.1.0.0/16"), 100, 20));
+        assertEquals(Set.copyOf(heavy.subList(1, 3)), Set.of(
+                new HeavyHitterSketch.HeavyHitter(new Subnet(a, 32), 40, 40),
+                new HeavyHitterSketch.HeavyHitter(new Subnet(b, 32), 40, 40)));
+        assertTrue(sketch.heavyHitters(0.3).stream().noneMatch(h -> h.subnet().getPrefixLength() == 16));
+        assertThrows(IllegalArgumentException.class, () -> sketch.heavyHitters(0));
+        assertThrows(IllegalArgumentException.class, () -> sketch.top(8, 1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(a, -1));
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitterSketch(new int[]{24, 16}, 16, 16));
+    }
+
+    /**
+     * Tests that prefixes offered concurrently by several threads are reported once.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writers.
+     */
+    @Test
+    void concurrentTests() throws InterruptedException {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(new int[]{24, 32}, 1 << 12, 16);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    sketch.add(0x0A000000 | random.nextInt(i % 4 == 0 ? 1 << 16 : 64));
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (int prefixLength : new int[]{24, 32}) {
+            List<HeavyHitterSketch.HeavyHitter> top = sketch.top(prefixLength, 16);
+            assertEquals(top.stream().map(HeavyHitterSketch.HeavyHitter::subnet).distinct().count(), (long) top.size());
+        }
+        List<HeavyHitterSketch.HeavyHitter> heavy = sketch.heavyHitters(0.01);
+        assertFalse(heavy.isEmpty());
+        assertEquals(heavy.stream().map(HeavyHitterSketch.HeavyHitter::subnet).distinct().count(), (long) heavy.size());
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the IpAddress6 and Subnet6 classes.
+ */
+public class TestIpAddress6 {
+    /**
+     * Tests parsing and RFC 5952 formatting of IPv6 addresses.
+     */
+    @Test
+    void parseAndFormatTests() {
+        assertEquals(new IpAddress6("::"), IpAddress6.UNSPECIFIED);
+        assertEquals(new IpAddress6("0:0:0:0:0:0:0:1"), IpAddress6.LOCALHOST);
+        assertEquals(IpAddress6.LOCALHOST.toString(), "::1");
+        assertEquals(new IpAddress6("2001:DB8:0:0:1:0:0:1").toString(), "2001:db8::1:0:0:1");
+        assertEquals(new IpAddress6("2001:db8:0:1:1:1:1:1").toString(), "2001:db8:0:1:1:1:1:1");
+        assertEquals(new IpAddress6("fe80::").toString(), "fe80::");
+        assertEquals(new IpAddress6("1:0:0:2::3").toString(), "1:0:0:2::3");
+        IpAddress6 mapped = new IpAddress6("::ffff:192.168.0.1");
+        assertEquals(mapped.getHigh(), 0);
+        assertEquals(mapped.getLow(), 0xFFFFC0A80001L);
+        assertEquals(mapped.getGroup(5), 0xFFFF);
+        assertEquals(new IpAddress6("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff").toString().length(), IpAddress6.MAX_LENGTH);
+        String[] invalid = {"", ":", ":::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::", "1:", ":1::",
+                "::g", "1:2:3:4:5:6:7::8", "::1.2.3.256", "::1.2.3.4:5", "1:2:3:4:5:6:7:1.2.3.4"};
+        long[] dst = {7, 7};
+        for (String s : invalid) {
+            assertFalse(IpAddress6.parse(s, dst, 0), s);
+            assertThrows(IllegalArgumentException.class, () -> new IpAddress6(s));
+        }
+        assertArrayEquals(dst, new long[]{7, 7});
+        byte[] bytes = "x2001:db8::8a2e:370:7334x".getBytes();
+        assertTrue(IpAddress6.parse(bytes, 1, bytes.length - 2, dst, 0));
+        assertEquals(IpAddress6.toString(dst[0], dst[1]), "2001:db8::8a2e:370:7334");
+    }
+
+    /**
+     * Compares formatting of random addresses with mostly zero groups against the JDK.
+     *
+     * @throws UnknownHostException never, the addresses are numeric.
+     */
+    @Test
+    void randomRoundTripTests() throws UnknownHostException {
+        Random random = new Random(14);
+        for (int round = 0; round < 2000; round++) {
+            long high = 0;
+            long low = 0;
+            for (int g = 0; g < 8; g++) {
+                long group = random.nextInt(3) == 0 ? random.nextInt(0x10000) : 0;
+                if (g < 4) {
+                    high = high << 16 | group;
+                } else {
+                    low = low << 16 | group;
+                }
+            }
+            String s = IpAddress6.toString(high, low);
+            byte[] raw = ByteBuffer.allocate(16).putLong(high).putLong(low).array();
+            assertEquals(new IpAddress6(InetAddress.getByAddress(raw).getHostAddress()), new IpAddress6(high, low));
+            assertEquals(new IpAddress6(s), new IpAddress6(high, low));
+            assertEquals(IpAddress6.format(high, low, new StringBuilder()).toString(), s);
+        }
+        assertTrue(new IpAddress6("::1").compareTo(new IpAddress6("8000::")) < 0);
+        assertTrue(new IpAddress6("ffff::").compareTo(new IpAddress6("8000::ffff")) > 0);
+    }
+
+    /**
+     * Tests IPv6 subnets.
+     */
+    @Test
+    void subnetTests() {
+        Subnet6 net = new Subnet6("2001:db8:abcd:12::1/60");
+        assertEquals(net.toString(), "2001:db8:abcd:10::/60");
+        assertEquals(net.getPrefixLength(), 60);
+        assertTrue(net.isInNetwork(new IpAddress6("2001:db8:abcd:1f:ffff::")));
+        assertFalse(net.isInNetwork(new IpAddress6("2001:db8:abcd:20::")));
+        assertEquals(net.getLastAddress().toString(), "2001:db8:abcd:1f:ffff:ffff:ffff:ffff");
+        assertEquals(net.getNextSubnet(), new Subnet6("2001:db8:abcd:20::/60"));
+        assertEquals(new Subnet6("::ffff:ffff:ffff:ff00/120").getNextSubnet(), new Subnet6("0:0:0:1::/120"));
+        Subnet6 host = new Subnet6("fe80::1/128");
+        assertTrue(host.isInNetwork(new IpAddress6("fe80::1")));
+        assertFalse(host.isInNetwork(new IpAddress6("fe80::")));
+        assertEquals(host.toString(), "fe80::1/128");
+        assertTrue(new Subnet6("::/0").isInNetwork(new IpAddress6("abcd::1")));
+        long[] ips = {0x20010DB8ABCD0010L, 0, 0x20010DB8ABCD0020L, 0, 0x20010DB8ABCD001FL, -1L};
+        long[] result = new long[1];
+        assertEquals(net.isInNetwork(ips, 0, 3, result), 2);
+        assertEquals(result[0], 0b101);
+        for (String s : new String[]{"2001:db8::", "2001:db8::/129", "2001:db8::/", "2001:db8::/1a", "1.2.3.4/8"}) {
+            assertThrows(IllegalArgumentException.class, () -> new Subnet6(s), s);
+        }
+        assertTrue(new Subnet6("2001:db8::/32").compareTo(new Subnet6("2001:db8::/48")) < 0);
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the primitive IP address collections.
+ */
+public class TestIpAddressCollections {
+    /**
+     * Tests adding, finding and removing addresses of an IpAddressSet.
+     */
+    @Test
+    void setTests() {
+        IpAddressSet set = new IpAddressSet(2);
+        assertTrue(set.add(new IpAddress("10.0.0.1")));
+        assertFalse(set.add(new IpAddress("10.0.0.1")));
+        assertTrue(set.add(0));
+        assertTrue(set.contains(0));
+        assertFalse(set.contains(IpAddress.MODEM));
+        for (int i = 1; i <= 1000; i++) {
+            set.add(i << 8);
+        }
+        assertEquals(set.size(), 1002);
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        for (int i = 1; i <= 1000; i += 2) {
+            assertTrue(set.remove(i << 8));
+        }
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(set.contains(i << 8), i % 2 == 0);
+        }
+        assertEquals(set.toArray().length, 501);
+    }
+
+    /**
+     * Compares random operations on the primitive maps against a HashMap.
+     */
+    @Test
+    void mapTests() {
+        Random random = new Random(42);
+        IpAddressLongMap longMap = new IpAddressLongMap();
+        IpAddressIntMap intMap = new IpAddressIntMap();
+        Map<IpAddress, Long> reference = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int ip = random.nextInt(4096) - 2048;
+            if (random.nextInt(4) == 0) {
+                Long removed = reference.remove(IpAddress.valueOf(ip));
+                assertEquals(longMap.remove(ip), removed == null ? 0 : removed);
+                intMap.remove(ip);
+            } else {
+                reference.merge(IpAddress.valueOf(ip), 1L, Long::sum);
+                longMap.addTo(ip, 1);
+                intMap.putIfAbsent(ip, ip);
+            }
+        }
+        assertEquals(longMap.size(), reference.size());
+        assertEquals(intMap.size(), reference.size());
+        reference.forEach((ip, count) -> {
+            assertEquals(longMap.get(ip.getAsInt()), count);
+            assertEquals(intMap.get(ip.getAsInt()), ip.getAsInt());
+        });
+        longMap.forEach((ip, count) -> assertEquals(reference.get(IpAddress.valueOf(ip)), count));
+    }
+}
@@ -1,6 +1,13 @@
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.BitSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,23 +31,23 @@ public class TestIpAndSubnet {
     }
 
     /**
-     * Tests the set methods of the IpAddress class.
+     * Tests the valueOf factories of the IpAddress class.
      */
     @Test
-    void ipSetterTests() {
-        IpAddress a = new IpAddress();
+    void ipValueOfTests() {
         IpAddress compare1 = new IpAddress("123.45.67.89");
         IpAddress compare2 = new IpAddress("10.0.0.1");
-        IpAddress compare3 = new IpAddress("192.168.0.1");
-        IpAddress compare4 = new IpAddress("200.200.200.200");
-        a.set(2066563929);
-        assertEquals(a, compare1);
-        a.set(10, 0, 0, 1);
-        assertEquals(a, compare2);
-        a.set(new int[]{192, 168, 0, 1});
-        assertEquals(a, compare3);
-        a.set("200.200.200.200");
-        assertEquals(a, compare4);
+        IpAddress compare3 = new IpAddress("200.200.200.200");
+        assertEquals(IpAddress.valueOf(2066563929), compare1);
+        assertEquals(IpAddress.valueOf(10, 0, 0, 1), compare2);
+        assertEquals(IpAddress.valueOf("200.200.200.200"), compare3);
+        assertSame(IpAddress.valueOf(2066563929), IpAddress.valueOf("123.45.67.89"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.valueOf(10, 0, 0, 256));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.valueOf(-1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new IpAddress(new int[]{1, 2, 3}));
+        assertEquals(new IpAddress(255, 255, 255, 255).getAsInt(), -1);
+        assertEquals(new IpAddress(new int[]{192, 168, 0, 1}).getAsInt(), 0xC0A80001);
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.valueOf("10.0.0"));
     }
 
     /**
@@ -82,6 +89,65 @@ public class TestIpAndSubnet {
         assertThrows(IllegalArgumentException.class, () -> new IpAddress("1.1.1.1").getOctet(5));
     }
 
+    /**
+     * Tests the allocation-free parse methods of the IpAddress class.
+     */
+    @Test
+    void ipParseTests() {
+        assertEquals(IpAddress.parse("192.168.0.1"), 0xC0A80001L);
+        assertEquals(IpAddress.parse("x10.0.0.1x", 1, 8), 0x0A000001L);
+        assertEquals(IpAddress.parse("255.255.255.255".getBytes(), 0, 15), 0xFFFFFFFFL);
+        assertEquals(IpAddress.parse("1.2.3"), IpAddress.INVALID);
+        assertEquals(IpAddress.parse("1.2.3.4."), IpAddress.INVALID);
+        assertEquals(IpAddress.parse("1..2.3"), IpAddress.INVALID);
+        assertEquals(IpAddress.parse("1.2.3.256"), IpAddress.INVALID);
+        assertEquals(IpAddress.parse("1.2.3.-4"), IpAddress.INVALID);
+        int[] dst = new int[3];
+        byte[] lines = "10.0.0.1\r\n\n192.168.0.1\n1.2.3.4".getBytes();
+        assertEquals(IpAddress.parseLines(lines, 0, lines.length, dst), 3);
+        assertArrayEquals(dst, new int[]{0x0A000001, 0xC0A80001, 0x01020304});
+        byte[] invalid = "10.0.0.1\nasdf\n".getBytes();
+        assertEquals(IpAddress.parseLines(invalid, 0, invalid.length, dst), -2);
+    }
+
+    /**
+     * Tests the buffer formatting methods of the IpAddress and Subnet classes.
+     */
+    @Test
+    void formatTests() throws IOException {
+        byte[] buf = new byte[64];
+        int end = IpAddress.formatAll(new int[]{0, 0xC0A8000A, 0xFFFFFFFF}, 0, 3, (byte) ',', buf, 1);
+        assertEquals(new String(buf, 1, end - 1, StandardCharsets.US_ASCII), "0.0.0.0,192.168.0.10,255.255.255.255");
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        IpAddress.format(0x0A64FF01, direct);
+        assertEquals(direct.position(), 12);
+        ByteBuffer heap = ByteBuffer.allocate(20).position(2);
+        IpAddress.format(0x0A64FF01, heap);
+        assertEquals(heap.position(), 14);
+        assertEquals(new String(heap.array(), 2, 12, StandardCharsets.US_ASCII), "10.100.255.1");
+        ByteBuffer small = ByteBuffer.allocate(20).limit(13).position(2);
+        assertThrows(BufferOverflowException.class, () -> IpAddress.format(0x0A64FF01, small));
+        assertEquals(small.position(), 2);
+        assertEquals(small.array()[2], 0);
+        ByteBuffer smallDirect = ByteBuffer.allocateDirect(11);
+        assertThrows(BufferOverflowException.class, () -> IpAddress.format(0x0A64FF01, smallDirect));
+        assertEquals(smallDirect.position(), 0);
+        IpAddress.format(0x0A000001, smallDirect);
+        assertEquals(smallDirect.position(), 8);
+        StringWriter writer = new StringWriter();
+        IpAddress.format(0x7F000001, writer);
+        assertEquals(writer.toString(), "127.0.0.1");
+        assertEquals(IpAddress.format(0x01020304, new StringBuilder("x")).toString(), "x1.2.3.4");
+        Subnet subnet = new Subnet("10.0.0.1/9");
+        assertEquals(subnet.toCidrString(), "10.0.0.1/9");
+        assertEquals(subnet.format(new StringBuilder(), true).toString(), "10.0.0.1/9");
+        assertEquals(subnet.format(new StringBuilder(), false).toString(), subnet.toString());
+        StringWriter subnetWriter = new StringWriter();
+        new Subnet("0.0.0.0/32").format(subnetWriter, true);
+        assertEquals(subnetWriter.toString(), "0.0.0.0/32");
+        assertEquals(new IpAddress("1.2.3.4").getOctet(3), 4);
+    }
+
     /**
      * Tests various constructors of the Subnet class.
      */
@@ -100,6 +166,7 @@ public class TestIpAndSubnet {
         assertEquals(ipLenC.toString(), "192.168.1.0/255.255.255.0");
         assertEquals(ipIpC.toString(), "192.168.1.0/255.255.255.0");
         assertEquals(stringStringC.toString(), "192.168.1.0/255.255.255.0");
+        assertEquals(new Subnet("192.168.1.0", "24"), stringStringC);
         assertEquals(classAC.toString(), "10.0.0.1/255.0.0.0");
         assertEquals(classBC.toString(), "172.0.0.1/255.255.0.0");
         assertEquals(classCC.toString(), "200.0.0.1/255.255.255.0");
@@ -133,6 +200,11 @@ public class TestIpAndSubnet {
         assertEquals(Arrays.toString(all), "[192.168.0.4, 192.168.0.5]");
         assertEquals(num, 254);
         assertEquals(Arrays.toString(split), "[192.168.0.0/255.255.255.128, 192.168.0.128/255.255.255.128]");
+        assertEquals(Arrays.toString(a.splitNet(3)), "[192.168.0.0/255.255.255.192, 192.168.0.64/255.255.255.192, 192.168.0.128/255.255.255.192]");
+        assertEquals(a.splitNet(5)[4].toCidrString(), "192.168.0.128/27");
+        assertEquals(a.splitNet(256)[255].toCidrString(), "192.168.0.255/32");
+        assertEquals(Arrays.toString(a.splitNet(1)), "[192.168.0.0/255.255.255.0]");
+        assertThrows(IllegalArgumentException.class, () -> a.splitNet(257));
         assertEquals(a, c);
         assertNotEquals(a, b);
         assertEquals(Subnet.LOCALNET, new Subnet("127.0.0.1/8"));
@@ -144,6 +216,75 @@ public class TestIpAndSubnet {
         assertEquals(0, a.compareTo(a));
     }
 
+    /**
+     * Tests the primitive accessors and orderings of the Subnet class.
+     */
+    @Test
+    void subnetPrimitiveTests() {
+        Subnet a = new Subnet(0xC0A80004, 24);
+        assertEquals(a, new Subnet("192.168.0.4/24"));
+        assertEquals(a.hashCode(), new Subnet("192.168.0.4/255.255.255.0").hashCode());
+        assertEquals(a.getNetAddressAsInt(), 0xC0A80000);
+        assertEquals(a.getBroadcastAddressAsInt(), 0xC0A800FF);
+        assertEquals(a.getNetMaskAsInt(), 0xFFFFFF00);
+        assertEquals(Subnet.maskOf(0), 0);
+        assertEquals(new Subnet("0.0.0.0/0.0.0.0").getPrefixLength(), 0);
+        assertEquals(Subnet.fromPackedLong(a.toPackedLong()), new Subnet("192.168.0.0/24"));
+        Subnet[] subnets = {new Subnet("200.0.0.0/8"), new Subnet("10.0.0.0/16"), new Subnet("10.0.0.0/8")};
+        long[] packed = Arrays.stream(subnets).mapToLong(Subnet::toPackedLong).sorted().toArray();
+        Arrays.sort(subnets, Subnet.NETWORK_PREFIX_ORDER);
+        assertEquals(Arrays.toString(subnets), "[10.0.0.0/255.0.0.0, 10.0.0.0/255.255.0.0, 200.0.0.0/255.0.0.0]");
+        assertArrayEquals(packed, Arrays.stream(subnets).mapToLong(Subnet::toPackedLong).toArray());
+        assertTrue(Subnet.compare(0x80000000, 1, 0x7FFFFFFF, 32) > 0);
+        assertThrows(IllegalArgumentException.class, () -> new Subnet(0, 33));
+        assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0/"));
+        assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0/2a"));
+    }
+
+    /**
+     * Tests the lazy address streams of the Subnet class.
+     */
+    @Test
+    void subnetAddressStreamTests() {
+        Subnet a = new Subnet("192.168.0.4/30");
+        assertArrayEquals(a.addresses(true, true).toArray(), new int[]{0xC0A80004, 0xC0A80005, 0xC0A80006, 0xC0A80007});
+        assertArrayEquals(a.addresses(false, false).toArray(), new int[]{0xC0A80005, 0xC0A80006});
+        assertEquals(new Subnet("10.0.0.0/32").addresses(false, true).count(), 0);
+        Subnet b = new Subnet("127.0.0.0/9");
+        assertEquals(b.addresses(false, false).parallel().count(), (1 << 23) - 2);
+        assertEquals(b.addresses(true, true).parallel().asLongStream().sum(), b.addresses(true, true).asLongStream().sum());
+        Subnet c = new Subnet("128.0.0.0/1");
+        assertEquals(c.addressSpliterator(true, true).estimateSize(), 1L << 31);
+        assertEquals(c.addressIterator(false, true).nextInt(), 0x80000001);
+    }
+
+    /**
+     * Tests the batch membership checks of the Subnet class.
+     */
+    @Test
+    void subnetBatchMembershipTests() {
+        Subnet a = new Subnet("192.168.0.0/24");
+        Subnet b = new Subnet("10.0.0.0/8");
+        int[] ips = new int[130];
+        for (int i = 0; i < ips.length; i++) {
+            ips[i] = i % 3 == 0 ? 0xC0A80000 | i : i % 3 == 1 ? 0x0A000000 | i << 8 : 0xC0A90000 | i;
+        }
+        long[] result = new long[3];
+        assertEquals(a.isInNetwork(ips, 0, ips.length, result), 44);
+        BitSet bits = new BitSet();
+        a.isInNetwork(ips, 0, ips.length, bits);
+        assertEquals(BitSet.valueOf(result), bits);
+        for (int i = 0; i < ips.length; i++) {
+            assertEquals(bits.get(i), i % 3 == 0);
+        }
+        long[] fromBuffer = new long[3];
+        assertEquals(a.isInNetwork(IntBuffer.wrap(ips), fromBuffer), 44);
+        assertArrayEquals(fromBuffer, result);
+        assertEquals(Subnet.isInAnyNetwork(new Subnet[]{a, b}, ips, 0, ips.length, result), 87);
+        assertTrue(b.isInNetwork(0x0AFFFFFF));
+        assertFalse(b.isInNetwork(0x0B000000));
+    }
+
     /**
      * Tests special cases and error handling of the Subnet class.
      */
@@ -160,4 +301,36 @@ public class TestIpAndSubnet {
     }
 
 
+
+    /**
+     * Tests the reasons named by the exception messages.
+     */
+    @Test
+    void errorMessageTests() {
+        assertEquals(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0/33")).getMessage(),
+                "Invalid subnet \"10.0.0.0/33\": has a prefix length that is not a number from 0 to 32");
+        assertEquals(assertThrows(IllegalArgumentException.class, () -> new Subnet(0, -1)).getMessage(),
+                "Invalid subnet \"0.0.0.0/-1\": has a prefix length that is not a number from 0 to 32");
+        assertEquals(assertThrows(IllegalArgumentException.class, () -> new IpAddress("1.2.3.256")).getMessage(),
+                "Invalid IP address \"1.2.3.256\": has an octet greater than 255");
+        assertEquals(ParseError.ofAddress("", 0, 0), ParseError.EMPTY);
+        assertEquals(ParseError.ofAddress("1.2.3.x", 0, 7), ParseError.INVALID_CHARACTER);
+        assertEquals(ParseError.ofAddress("1..2.3", 0, 6), ParseError.OCTET_COUNT);
+        assertEquals(ParseError.ofAddress("1.2.3", 0, 5), ParseError.OCTET_COUNT);
+        assertEquals(ParseError.ofAddress("1.2.3.4.", 0, 8), ParseError.OCTET_COUNT);
+        assertEquals(ParseError.ofAddress("1.2.3.1000", 0, 10), ParseError.OCTET_RANGE);
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0")).getMessage().contains("'/'"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0/255.0.255.0")).getMessage().contains("contiguous"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0/8")).getMessage().contains("four"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet(new IpAddress("10.0.0.0"),
+                new IpAddress("255.0.255.0"))).getMessage().startsWith("Invalid subnet \"10.0.0.0/255.0.255.0\""));
+        assertEquals(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0", "255.0.255.0")).getMessage(),
+                "Invalid subnet \"10.0.0.0/255.0.255.0\": " + ParseError.INVALID_MASK.getDescription());
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0", "8")).getMessage().startsWith("Invalid subnet \"10.0.0/8\""));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0", "33")).getMessage().contains("prefix length"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet("10.0.0.0", "")).getMessage().contains("prefix length"));
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> new Subnet(new IpAddress("224.0.0.1"))).getMessage().contains("class"));
+        assertTrue(assertThrows(IllegalArgumentException.class,
+                () -> Subnet.fromRange(new IpAddress("10.0.0.2"), new IpAddress("10.0.0.1"))).getMessage().contains("first address"));
+    }
 }
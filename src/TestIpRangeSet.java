@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the IpRangeSet class.
+ */
+public class TestIpRangeSet {
+    /**
+     * Tests subtracting subnets from a larger subnet.
+     */
+    @Test
+    void differenceTests() {
+        IpRangeSet net = IpRangeSet.of(new Subnet("10.0.0.0/8"));
+        IpRangeSet holes = IpRangeSet.of(new Subnet("10.0.1.0/24"), new Subnet("10.255.255.0/24"), new Subnet("11.0.0.0/8"));
+        IpRangeSet rest = net.difference(holes);
+        assertEquals(rest.toString(), "[10.0.0.0-10.0.0.255, 10.0.2.0-10.255.254.255]");
+        assertEquals(rest.getNumberOfAddresses(), (1 << 24) - 512);
+        assertTrue(rest.contains(new IpAddress("10.0.0.255")));
+        assertFalse(rest.contains(new IpAddress("10.0.1.0")));
+        assertFalse(rest.contains(new IpAddress("9.255.255.255")));
+        assertEquals(rest.union(holes), IpRangeSet.of(new Subnet("10.0.0.0/7")));
+        assertEquals(rest.intersection(holes), IpRangeSet.EMPTY);
+        assertEquals(IpRangeSet.of(rest.toSubnets()), rest);
+        assertEquals(IpRangeSet.ofRange(0x80000000, 0xFFFFFFFF).toSubnets()[0], new Subnet("128.0.0.0/1"));
+    }
+
+    /**
+     * Compares the set operations against BitSets on random ranges of a small address space.
+     */
+    @Test
+    void randomSetOperationTests() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            BitSet bitsA = new BitSet();
+            BitSet bitsB = new BitSet();
+            IpRangeSet a = randomSet(random, bitsA);
+            IpRangeSet b = randomSet(random, bitsB);
+            BitSet union = (BitSet) bitsA.clone();
+            union.or(bitsB);
+            BitSet intersection = (BitSet) bitsA.clone();
+            intersection.and(bitsB);
+            BitSet difference = (BitSet) bitsA.clone();
+            difference.andNot(bitsB);
+            assertContainsExactly(a.union(b), union);
+            assertContainsExactly(a.intersection(b), intersection);
+            assertContainsExactly(a.difference(b), difference);
+        }
+    }
+
+    /**
+     * Creates a random set of ranges in the address space 0.0.0.0 to 0.0.3.255.
+     *
+     * @param random The random generator.
+     * @param bits   Receives the addresses of the set.
+     * @return The set.
+     */
+    private static IpRangeSet randomSet(Random random, BitSet bits) {
+        IpRangeSet set = IpRangeSet.EMPTY;
+        for (int i = random.nextInt(8); i > 0; i--) {
+            int first = random.nextInt(1024);
+            int last = Math.min(1023, first + random.nextInt(64));
+            set = set.union(IpRangeSet.ofRange(first, last));
+            bits.set(first, last + 1);
+        }
+        List<Subnet> subnets = new ArrayList<>(List.of(set.toSubnets()));
+        assertEquals(IpRangeSet.of(subnets), set);
+        return set;
+    }
+
+    /**
+     * Asserts that a set contains exactly the addresses of a BitSet.
+     *
+     * @param set      The set.
+     * @param expected The expected addresses.
+     */
+    private static void assertContainsExactly(IpRangeSet set, BitSet expected) {
+        for (int ip = 0; ip < 1024; ip++) {
+            assertEquals(set.contains(ip), expected.get(ip));
+        }
+        assertEquals(set.getNumberOfAddresses(), expected.cardinality());
+        int runs = 0;
+        for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(expected.nextClearBit(i))) {
+            runs++;
+        }
+        assertEquals(set.getRangeCount(), runs);
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the LogScanner class.
+ */
+public class TestLogScanner {
+    /**
+     * Tests which tokens of a line are recognized as addresses.
+     */
+    @Test
+    void tokenTests() {
+        byte[] line = ("192.168.0.1 - - [10/Oct/2000:13:55:36] \"GET /a.b HTTP/1.0\" 200 from 10.0.0.255:8080, "
+                + "1.2.3.4.5 256.1.1.1 1.2.3 01.2.3.4444 v1.2 end 8.8.8.8.\n").getBytes(StandardCharsets.US_ASCII);
+        List<String> found = new ArrayList<>();
+        int count = LogScanner.scan(ByteBuffer.wrap(line), 0, line.length, ip -> found.add(IpAddress.toString(ip)));
+        assertEquals(count, 3);
+        assertEquals(found, List.of("192.168.0.1", "10.0.0.255", "8.8.8.8"));
+    }
+
+    /**
+     * Tests scanning and counting a file sequentially and in parallel.
+     *
+     * @param dir A temporary directory.
+     * @throws IOException if the file cannot be written or read.
+     */
+    @Test
+    void fileTests(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("access.log");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("client ").append(IpAddress.toString(0x0A000000 | i)).append(" status 200\n");
+        }
+        Files.writeString(file, sb, StandardCharsets.US_ASCII);
+        List<Integer> found = new ArrayList<>();
+        assertEquals(LogScanner.scan(file, found::add), 1000);
+        assertEquals((int) found.get(999), 0x0A000000 | 999);
+        AtomicLong sum = new AtomicLong();
+        assertEquals(LogScanner.scanParallel(file, ip -> sum.addAndGet(ip & 0xFFFF)), 1000);
+        assertEquals(sum.get(), 999 * 1000 / 2);
+        long[] counts = LogScanner.countBySubnet(file, new Subnet[]{
+                new Subnet("10.0.0.0/24"), new Subnet("10.0.0.0/8"), new Subnet("192.168.0.0/16")});
+        assertArrayEquals(counts, new long[]{256, 1000, 0});
+    }
+
+    /**
+     * Compares scans with chunks of a few bytes, so lines span many chunks, against a scan of the file in one chunk.
+     *
+     * @param dir A temporary directory.
+     * @throws IOException if the file cannot be written or read.
+     */
+    @Test
+    void smallChunkTests(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("access.log");
+        Random random = new Random(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            int words = random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                sb.append(random.nextBoolean() ? IpAddress.toString(random.nextInt()) : "GET /x").append(' ');
+            }
+            sb.append(random.nextInt(4) == 0 ? "" : IpAddress.toString(random.nextInt()) + ".").append('\n');
+        }
+        sb.append("last 192.168.7.1");
+        Files.writeString(file, sb, StandardCharsets.US_ASCII);
+        List<Integer> expected = new ArrayList<>();
+        long count = LogScanner.scan(file, expected::add);
+        assertEquals(count, expected.size());
+        assertEquals((int) expected.get(expected.size() - 1), 0xC0A80701);
+        Subnet[] subnets = {new Subnet("0.0.0.0/1"), new Subnet("128.0.0.0/1"), new Subnet("192.168.7.0/24")};
+        long[] expectedCounts = LogScanner.countBySubnet(file, subnets);
+        for (long chunkSize : new long[]{1, 3, 7, 64, 1000}) {
+            List<Integer> found = new ArrayList<>();
+            assertEquals(LogScanner.scan(file, found::add, chunkSize), count);
+            assertEquals(found, expected, "chunkSize=" + chunkSize);
+            Queue<Integer> parallel = new ConcurrentLinkedQueue<>();
+            assertEquals(LogScanner.scanParallel(file, parallel::add, chunkSize), count);
+            assertEquals(parallel.stream().sorted().toList(), expected.stream().sorted().toList());
+            assertArrayEquals(LogScanner.countBySubnet(file, subnets, chunkSize), expectedCounts);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * JUnit test class for the Metrics class, skipped unless the instrumentation is enabled.
+ */
+public class TestMetrics {
+    /**
+     * Tests the counters, their MXBean and the Flight Recorder events.
+     *
+     * @param dir A temporary directory for the recording.
+     * @throws Exception If the MXBean or the recording cannot be read.
+     */
+    @Test
+    void countersAndEventsTests(@TempDir Path dir) throws Exception {
+        assumeTrue(Metrics.ENABLED, "Run with -D" + Metrics.PROPERTY + "=true");
+        Metrics.MetricsMXBean metrics = Metrics.get();
+        metrics.reset();
+        Path file = dir.resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("ipsubnet.ParseFailure");
+            recording.enable("ipsubnet.AddressEnumeration");
+            recording.start();
+            Subnet subnet = new Subnet("192.168.0.0/29");
+            new IpAddress("192.168.0.1");
+            assertThrows(IllegalArgumentException.class, () -> new IpAddress("192.168.0.x"));
+            assertThrows(IllegalArgumentException.class, () -> new Subnet("192.168.0.0/40"));
+            assertThrows(IllegalArgumentException.class, () -> new Subnet("192.168.0.0/40"));
+            subnet.isInNetwork(0);
+            subnet.isInNetwork(new int[100], 0, 100, new long[2]);
+            assertEquals(subnet.getAllIpsInNetwork().length, 6);
+            recording.stop();
+            recording.dump(file);
+        }
+        assertEquals(metrics.getSubnetParses(), 1);
+        assertEquals(metrics.getAddressParses(), 1);
+        assertEquals((long) metrics.getAddressFailures().get("INVALID_CHARACTER"), 1);
+        assertEquals((long) metrics.getSubnetFailures().get("PREFIX_LENGTH"), 2);
+        assertEquals(metrics.getNetworkChecks(), 101);
+        assertEquals(metrics.getEnumerations(), 1);
+        assertEquals(metrics.getEnumeratedAddresses(), 6);
+        assertEquals(ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME), "NetworkChecks"), 101L);
+
+        List<RecordedEvent> events = readEvents(file);
+        assertEquals(events.stream().filter(e -> e.getEventType().getName().equals("ipsubnet.ParseFailure")).count(), 3);
+        RecordedEvent enumeration = events.stream()
+                .filter(e -> e.getEventType().getName().equals("ipsubnet.AddressEnumeration")).findFirst().orElseThrow();
+        assertEquals(enumeration.getString("subnet"), "192.168.0.0/29");
+        assertEquals(enumeration.getInt("addresses"), 6);
+        metrics.reset();
+        assertEquals(metrics.getNetworkChecks(), 0);
+    }
+
+    /**
+     * Reads all events of a recording.
+     *
+     * @param file The recording.
+     * @return The events.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<RecordedEvent> readEvents(Path file) throws IOException {
+        return RecordingFile.readAllEvents(file);
+    }
+}
@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the PrefixTable class.
+ */
+public class TestPrefixTable {
+    /**
+     * Tests longest prefix match lookups on a few subnets.
+     */
+    @Test
+    void lookupTests() {
+        PrefixTable<String> table = new PrefixTable<>();
+        table.put(new Subnet("10.0.0.0/8"), "a");
+        table.put(new Subnet("10.1.0.0/16"), "b");
+        table.put(new Subnet("10.1.2.0/23"), "c");
+        table.put(new Subnet("10.1.2.3/32"), "d");
+        assertEquals(table.lookup(new IpAddress("10.200.0.1")), "a");
+        assertEquals(table.lookup(new IpAddress("10.1.0.1")), "b");
+        assertEquals(table.lookup(new IpAddress("10.1.3.255")), "c");
+        assertEquals(table.lookup(new IpAddress("10.1.2.3")), "d");
+        assertNull(table.lookup(new IpAddress("11.0.0.0")));
+        table.put(new Subnet("0.0.0.0/0"), "default");
+        assertEquals(table.lookup(new IpAddress("11.0.0.0")), "default");
+        assertEquals(table.remove(new Subnet("10.1.2.0/23")), "c");
+        assertEquals(table.lookup(new IpAddress("10.1.3.255")), "b");
+        assertEquals(table.get(new Subnet("10.1.2.3/32")), "d");
+        assertEquals(table.size(), 4);
+    }
+
+    /**
+     * Compares lookups against a linear scan with isInNetwork over random prefixes.
+     */
+    @Test
+    void randomLookupTests() {
+        Random random = new Random(7);
+        PrefixTable<Subnet> table = new PrefixTable<>();
+        List<Subnet> subnets = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int prefixLength = 1 + random.nextInt(32);
+            int network = (0x0A000000 | random.nextInt(1 << 12) << 12) & (~0 << (32 - prefixLength));
+            Subnet subnet = new Subnet(new IpAddress((network >>> 24) & 0xFF, (network >>> 16) & 0xFF, (network >>> 8) & 0xFF, network & 0xFF), prefixLength);
+            if (table.put(subnet, subnet) == null) {
+                subnets.add(subnet);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            table.remove(subnets.remove(random.nextInt(subnets.size())));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            int addr = 0x0A000000 | random.nextInt(1 << 24);
+            IpAddress ip = new IpAddress((addr >>> 24) & 0xFF, (addr >>> 16) & 0xFF, (addr >>> 8) & 0xFF, addr & 0xFF);
+            Subnet expected = null;
+            for (Subnet subnet : subnets) {
+                if (subnet.isInNetwork(ip) && (expected == null || subnet.getPrefixLength() > expected.getPrefixLength())) {
+                    expected = subnet;
+                }
+            }
+            assertEquals(table.lookup(addr), expected);
+        }
+    }
+
+    /**
+     * Compares a table built by putAll against one built by single puts, also when adding to a filled table.
+     */
+    @Test
+    void putAllTests() {
+        Random random = new Random(11);
+        Map<Subnet, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            int prefixLength = random.nextInt(33);
+            entries.put(new Subnet(random.nextInt() & (prefixLength == 0 ? 0 : ~0 << (32 - prefixLength)), prefixLength), i);
+        }
+        PrefixTable<Integer> single = new PrefixTable<>();
+        entries.forEach(single::put);
+        PrefixTable<Integer> bulk = new PrefixTable<>();
+        bulk.put(new Subnet("10.0.0.0/8"), -1);
+        bulk.putAll(entries);
+        single.put(new Subnet("10.0.0.0/8"), entries.getOrDefault(new Subnet("10.0.0.0/8"), -1));
+        assertEquals(bulk.size(), single.size());
+        for (int i = 0; i < 100_000; i++) {
+            int addr = random.nextInt();
+            assertEquals(bulk.lookup(addr), single.lookup(addr));
+        }
+        bulk.remove(new Subnet("10.0.0.0/8"));
+        single.remove(new Subnet("10.0.0.0/8"));
+        assertEquals(bulk.lookup(0x0A000000), single.lookup(0x0A000000));
+        assertThrows(NullPointerException.class, () -> bulk.putAll(Collections.singletonMap(new Subnet("1.0.0.0/8"), null)));
+        assertNull(bulk.get(new Subnet("1.0.0.0/8")));
+    }
+
+    /**
+     * Tests that lookups running concurrently with a writer always see a consistent table.
+     *
+     * @throws InterruptedException if interrupted while waiting for the readers.
+     */
+    @Test
+    void concurrentReaderTests() throws InterruptedException {
+        PrefixTable<String> table = new PrefixTable<>();
+        table.put(new Subnet("10.0.0.0/8"), "base");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (!done.get()) {
+                    String inner = table.lookup(0x0A010203);
+                    String outer = table.lookup(0x0A020304);
+                    if (!"base".equals(outer) || !("base".equals(inner) || "inner".equals(inner) || "bulk".equals(inner))) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            table.put(new Subnet("10.1.0.0/16"), "inner");
+            table.put(0x0A010200, 24, "inner");
+            table.remove(new Subnet("10.1.0.0/16"));
+            table.putAll(Map.of(new Subnet("10.1.2.3/32"), "bulk", new Subnet("10.0.0.0/8"), "base"));
+            table.remove(0x0A010200, 24);
+            table.remove(0x0A010203, 32);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(errors.get(), 0);
+        assertEquals(table.size(), 1);
+    }
+}
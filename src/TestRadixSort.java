@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the RadixSort class.
+ */
+public class TestRadixSort {
+    /**
+     * Compares the int sorts against sorting with flipped sign bits, for short, long and partial ranges.
+     */
+    @Test
+    void intSortTests() {
+        Random random = new Random(23);
+        for (int n : new int[]{0, 1, 100, 5000, 300000}) {
+            int[] a = random.ints(n).toArray();
+            for (int i = 0; i < n / 3; i++) {
+                a[i] = 0x0A000000 | random.nextInt(1 << 12);
+            }
+            int[] expected = Arrays.stream(a).map(x -> x ^ Integer.MIN_VALUE).sorted().map(x -> x ^ Integer.MIN_VALUE).toArray();
+            int[] sequential = a.clone();
+            RadixSort.sort(sequential);
+            assertArrayEquals(sequential, expected);
+            int[] parallel = a.clone();
+            RadixSort.parallelSort(parallel);
+            assertArrayEquals(parallel, expected);
+        }
+        int[] a = random.ints(200000, 0, 1 << 20).toArray();
+        int[] expected = a.clone();
+        Arrays.sort(expected, 1000, 150000);
+        RadixSort.parallelSort(a, 1000, 150000);
+        assertArrayEquals(a, expected);
+        assertThrows(IndexOutOfBoundsException.class, () -> RadixSort.sort(new int[4], 2, 5));
+    }
+
+    /**
+     * Tests sorting packed subnets in the order of the Subnet comparator, and dedupe and counting of sorted keys.
+     */
+    @Test
+    void packedSortAndCountTests() {
+        Random random = new Random(24);
+        Subnet[] subnets = new Subnet[200000];
+        long[] packed = new long[subnets.length];
+        for (int i = 0; i < subnets.length; i++) {
+            subnets[i] = new Subnet(random.nextInt(), random.nextInt(33));
+            packed[i] = subnets[i].toPackedLong();
+        }
+        Arrays.sort(subnets, Subnet.NETWORK_PREFIX_ORDER);
+        long[] sequential = packed.clone();
+        RadixSort.sort(sequential);
+        long[] parallel = packed.clone();
+        RadixSort.parallelSort(parallel);
+        for (int i = 0; i < subnets.length; i++) {
+            assertEquals(sequential[i], subnets[i].toPackedLong());
+        }
+        assertArrayEquals(parallel, sequential);
+        long[] signed = {-1L, 0L, Long.MIN_VALUE, 1L};
+        RadixSort.sort(signed);
+        assertArrayEquals(signed, new long[]{0L, 1L, Long.MIN_VALUE, -1L});
+
+        int[] keys = {7, 7, 7, -1, 3, 3, 9, -1, 0};
+        RadixSort.sort(keys);
+        assertArrayEquals(keys, new int[]{0, 3, 3, 7, 7, 7, 9, -1, -1});
+        int[] copy = keys.clone();
+        assertEquals(RadixSort.dedupe(copy, 1, copy.length), 5);
+        assertArrayEquals(Arrays.copyOf(copy, 5), new int[]{0, 3, 7, 9, -1});
+        int[] counts = new int[keys.length];
+        assertEquals(RadixSort.countByKey(keys, 0, keys.length, counts), 5);
+        assertArrayEquals(Arrays.copyOf(keys, 5), new int[]{0, 3, 7, 9, -1});
+        assertArrayEquals(Arrays.copyOf(counts, 5), new int[]{1, 2, 3, 1, 2});
+        long[] longs = {1, 1, 2};
+        assertEquals(RadixSort.dedupe(longs, 0, 3), 2);
+        assertEquals(RadixSort.countByKey(new int[0], 0, 0, new int[0]), 0);
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the RangeDatabase class.
+ */
+public class TestRangeDatabase {
+    /**
+     * Tests loading from CSV, lookups, and writing and mapping the file.
+     *
+     * @param dir A temporary directory for the files.
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Test
+    void csvAndFileTests(@TempDir Path dir) throws IOException {
+        Path csv = dir.resolve("ranges.csv");
+        Files.writeString(csv, """
+                first,last,country
+                10.0.0.0,10.0.0.255,DE
+                # comment
+                10.0.1.0, 10.0.1.255 , DE
+
+                167772672,167772927,US
+                255.255.255.0,255.255.255.255,Österreich
+                0.0.0.0,0.0.0.0,ZERO
+                """);
+        RangeDatabase db = RangeDatabase.loadCsv(csv, true);
+        assertEquals(db.size(), 4);
+        assertEquals(db.getValueCount(), 4);
+        assertEquals(db.getLast(1), new IpAddress("10.0.1.255").getAsInt());
+        assertEquals(db.lookup(new IpAddress("10.0.1.7")), "DE");
+        assertEquals(db.lookup(new IpAddress("10.0.2.128")), "US");
+        assertEquals(db.lookup(new IpAddress("255.255.255.255")), "Österreich");
+        assertEquals(db.lookup(new IpAddress("0.0.0.0")), "ZERO");
+        assertNull(db.lookup(new IpAddress("0.0.0.1")));
+        assertNull(db.lookup(new IpAddress("10.0.3.0")));
+        assertNull(db.lookup(new IpAddress("128.0.0.0")));
+
+        Path file = dir.resolve("ranges.db");
+        db.write(file);
+        RangeDatabase mapped = RangeDatabase.open(file);
+        int[] ips = {new IpAddress("10.0.0.1").getAsInt(), new IpAddress("9.255.255.255").getAsInt(), -1};
+        int[] ids = new int[4];
+        mapped.lookupIds(ips, 0, 3, ids, 1);
+        assertArrayEquals(ids, new int[]{0, db.lookupId(ips[0]), RangeDatabase.NO_VALUE, db.lookupId(-1)});
+        assertEquals(mapped.getValue(ids[3]), "Österreich");
+        assertThrows(IndexOutOfBoundsException.class, () -> mapped.getFirst(4));
+
+        mapped.write(file);
+        assertEquals(mapped.lookup(new IpAddress("10.0.2.0")), "US");
+        assertEquals(RangeDatabase.open(file).lookup(new IpAddress("10.0.2.0")), "US");
+        try (var files = Files.list(dir)) {
+            assertEquals(files.count(), 2L);
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(20 + 32 + 4, 4);
+        writeWithChecksum(file, bytes);
+        assertThrows(IOException.class, () -> RangeDatabase.open(file));
+        bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(20 + 32 + 4, 0).putInt(20 + 8, new IpAddress("10.0.1.0").getAsInt());
+        writeWithChecksum(file, bytes);
+        assertThrows(IOException.class, () -> RangeDatabase.open(file));
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> RangeDatabase.open(file));
+        Files.writeString(csv, "10.0.0.0,10.0.0.255,A\n10.0.0.255,10.0.1.0,B\n");
+        assertThrows(IllegalArgumentException.class, () -> RangeDatabase.loadCsv(csv, false));
+        Files.writeString(csv, "10.0.0.0;10.0.0.255;A\n");
+        assertThrows(IOException.class, () -> RangeDatabase.loadCsv(csv, false));
+        assertEquals(new RangeDatabase.Builder().build().lookupId(0), RangeDatabase.NO_VALUE);
+    }
+
+    /**
+     * Writes a database file after fixing the checksum in its header.
+     *
+     * @param file  The file.
+     * @param bytes The database in the file format.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeWithChecksum(Path file, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 20, bytes.length - 20);
+        ByteBuffer.wrap(bytes).putInt(16, (int) crc.getValue());
+        Files.write(file, bytes);
+    }
+
+    /**
+     * Compares lookups in random databases against checking the ranges one by one.
+     */
+    @Test
+    void randomLookupTests() {
+        Random random = new Random(22);
+        RangeDatabase.Builder builder = new RangeDatabase.Builder();
+        int[] firsts = new int[2000];
+        int[] lasts = new int[2000];
+        long position = 0;
+        for (int i = 0; i < firsts.length; i++) {
+            position += 1 + random.nextInt(1 << 21);
+            firsts[i] = (int) position;
+            position += random.nextInt(1 << 20);
+            lasts[i] = (int) position;
+            builder.add(firsts[i], lasts[i], "v" + i);
+        }
+        RangeDatabase db = builder.build();
+        assertEquals(db.size(), firsts.length);
+        int[] ips = random.ints(100000).toArray();
+        for (int i = 0; i < 1000; i++) {
+            ips[i] = lasts[random.nextInt(lasts.length)] + random.nextInt(3) - 1;
+        }
+        int[] ids = new int[ips.length];
+        db.lookupIds(ips, 0, ips.length, ids, 0);
+        for (int i = 0; i < ips.length; i++) {
+            int expected = RangeDatabase.NO_VALUE;
+            for (int r = 0; r < firsts.length; r++) {
+                if (Integer.compareUnsigned(firsts[r], ips[i]) <= 0 && Integer.compareUnsigned(ips[i], lasts[r]) <= 0) {
+                    expected = r;
+                }
+            }
+            assertEquals(ids[i], expected);
+        }
+    }
+}
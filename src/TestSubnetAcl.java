@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetAcl and SubnetFilter classes.
+ */
+public class TestSubnetAcl {
+    /**
+     * Finds the first matching rule by checking the rules one by one.
+     *
+     * @param rules The rules.
+     * @param ip    The numerical representation of the IP address.
+     * @return The index of the first matching rule, or -1.
+     */
+    private static int linearMatch(List<SubnetAcl.Rule> rules, int ip) {
+        for (int r = 0; r < rules.size(); r++) {
+            if (rules.get(r).subnet().isInNetwork(ip)) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tests a small rule list with nested subnets.
+     */
+    @Test
+    void firstMatchTests() {
+        List<SubnetAcl.Rule> rules = List.of(
+                new SubnetAcl.Rule(new Subnet("10.1.2.0/24"), true),
+                new SubnetAcl.Rule(new Subnet("10.0.0.0/8"), false),
+                new SubnetAcl.Rule(new Subnet("10.1.2.3/32"), false),
+                new SubnetAcl.Rule(new Subnet("255.255.255.0/24"), false),
+                new SubnetAcl.Rule(new Subnet("0.0.0.0/1"), true));
+        SubnetFilter filter = new SubnetFilter(rules, false);
+        SubnetAcl acl = filter.get();
+        assertEquals(acl.match(new IpAddress("10.1.2.3").getAsInt()), 0);
+        assertEquals(acl.match(new IpAddress("10.1.3.0").getAsInt()), 1);
+        assertEquals(acl.match(new IpAddress("9.0.0.0").getAsInt()), 4);
+        assertEquals(acl.match(new IpAddress("255.255.255.255").getAsInt()), 3);
+        assertEquals(acl.match(new IpAddress("128.0.0.0").getAsInt()), -1);
+        assertTrue(filter.isAllowed(new IpAddress("10.1.2.3")));
+        assertFalse(filter.isAllowed(new IpAddress("10.200.0.1")));
+        assertTrue(filter.isAllowed(new IpAddress("0.0.0.0")));
+        assertFalse(filter.isAllowed(new IpAddress("200.0.0.1")));
+        SubnetAcl previous = filter.update(List.of(new SubnetAcl.Rule(new Subnet("0.0.0.0/0"), false)), true);
+        assertSame(previous, acl);
+        assertFalse(filter.isAllowed(new IpAddress("10.1.2.3")));
+        assertEquals(filter.get().getIntervalCount(), 1);
+        assertTrue(SubnetAcl.compile(List.of(), true).isAllowed(0));
+    }
+
+    /**
+     * Compares random rule lists against checking the rules one by one, sequentially and in parallel.
+     */
+    @Test
+    void randomRuleTests() {
+        Random random = new Random(19);
+        for (int round = 0; round < 20; round++) {
+            List<SubnetAcl.Rule> rules = new ArrayList<>();
+            for (int r = 0; r < 500; r++) {
+                int prefix = 4 + random.nextInt(29);
+                rules.add(new SubnetAcl.Rule(new Subnet(random.nextInt() & 0xF0FFFFFF, prefix), random.nextBoolean()));
+            }
+            SubnetAcl acl = SubnetAcl.compile(rules, round % 2 == 0);
+            int[] ips = new int[50_000];
+            for (int i = 0; i < ips.length; i++) {
+                Subnet s = rules.get(random.nextInt(rules.size())).subnet();
+                ips[i] = i % 2 == 0 ? s.getNetAddressAsInt() + random.nextInt(3) - 1 : random.nextInt() & 0xF0FFFFFF;
+            }
+            int[] matches = new int[ips.length];
+            acl.matchParallel(ips, 0, ips.length, matches, 0);
+            long[] allowed = new long[(ips.length + 63) / 64];
+            acl.isAllowed(ips, 0, ips.length, allowed);
+            for (int i = 0; i < ips.length; i++) {
+                int expected = linearMatch(rules, ips[i]);
+                assertEquals(matches[i], expected);
+                boolean allow = expected < 0 ? round % 2 == 0 : rules.get(expected).allow();
+                assertEquals((allowed[i >>> 6] >>> i & 1) != 0, allow);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetAggregator class.
+ */
+public class TestSubnetAggregator {
+    /**
+     * Tests merging of duplicates, nested and adjacent subnets.
+     */
+    @Test
+    void aggregateTests() {
+        List<Subnet> subnets = List.of(new Subnet("10.0.0.0/24"), new Subnet("10.0.1.0/24"), new Subnet("10.0.0.128/25"),
+                new Subnet("10.0.0.0/24"), new Subnet("10.0.2.0/23"), new Subnet("192.168.0.1/32"), new Subnet("192.168.0.0/32"));
+        assertEquals(SubnetAggregator.aggregate(subnets).toString(), "[10.0.0.0/255.255.252.0, 192.168.0.0/255.255.255.254]");
+        assertEquals(SubnetAggregator.aggregate(List.of(new Subnet("0.0.0.0/1"), new Subnet("128.0.0.0/1"))).toString(), "[0.0.0.0/0.0.0.0]");
+        assertEquals(Arrays.toString(Subnet.fromRange(new IpAddress("10.0.0.1"), new IpAddress("10.0.0.6"))),
+                "[10.0.0.1/255.255.255.255, 10.0.0.2/255.255.255.254, 10.0.0.4/255.255.255.254, 10.0.0.6/255.255.255.255]");
+    }
+
+    /**
+     * Compares sequential and parallel aggregation of random subnets and checks that the covered addresses stay the same.
+     */
+    @Test
+    void parallelAggregateTests() {
+        Random random = new Random(3);
+        List<Subnet> subnets = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            subnets.add(new Subnet(0x0A000000 | random.nextInt(1 << 20) << 4, 26 + random.nextInt(7)));
+        }
+        List<Subnet> sequential = SubnetAggregator.aggregate(subnets);
+        assertEquals(SubnetAggregator.aggregate(subnets, true), sequential);
+        assertTrue(sequential.size() < subnets.size());
+        for (int i = 0; i < 10_000; i++) {
+            int ip = 0x0A000000 | random.nextInt(1 << 24);
+            boolean expected = subnets.stream().limit(2000).anyMatch(s -> s.isInNetwork(ip));
+            if (expected) {
+                assertTrue(sequential.stream().anyMatch(s -> s.isInNetwork(ip)));
+            }
+        }
+        for (int i = 1; i < sequential.size(); i++) {
+            assertTrue(sequential.get(i - 1).getBroadcastAddressAsInt() + 1 != sequential.get(i).getNetAddressAsInt()
+                    || sequential.get(i - 1).getPrefixLength() != sequential.get(i).getPrefixLength()
+                    || (sequential.get(i - 1).getNetAddressAsInt() & Subnet.maskOf(sequential.get(i).getPrefixLength() - 1)) != sequential.get(i - 1).getNetAddressAsInt());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetAllocator class.
+ */
+public class TestSubnetAllocator {
+    /**
+     * Tests allocating subnets of different sizes and merging them on release.
+     */
+    @Test
+    void allocateAndReleaseTests() {
+        SubnetAllocator allocator = new SubnetAllocator(new Subnet("10.0.0.0/24"));
+        Subnet a = allocator.allocateForHosts(100);
+        Subnet b = allocator.allocateForHosts(2);
+        Subnet c = allocator.allocatePrefix(26);
+        assertEquals(a.toCidrString(), "10.0.0.0/25");
+        assertEquals(b.toCidrString(), "10.0.0.128/30");
+        assertEquals(c.toCidrString(), "10.0.0.192/26");
+        assertEquals(allocator.getFreeAddresses(), 256 - 128 - 4 - 64);
+        assertNull(allocator.allocatePrefix(25));
+        assertEquals(allocator.allocateAddress(), new IpAddress("10.0.0.132").getAsInt());
+        allocator.release(a);
+        assertThrows(IllegalArgumentException.class, () -> allocator.release(a));
+        assertThrows(IllegalArgumentException.class, () -> allocator.release(new Subnet("10.0.0.128/31")));
+        assertThrows(IllegalArgumentException.class, () -> allocator.release(new Subnet("10.0.1.0/30")));
+        allocator.release(b);
+        allocator.releaseAddress(new IpAddress("10.0.0.132").getAsInt());
+        allocator.release(c);
+        assertEquals(allocator.getFreeAddresses(), 256);
+        assertEquals(allocator.allocatePrefix(24), new Subnet("10.0.0.0/24"));
+        assertEquals(allocator.allocateAddress(), IpAddress.INVALID);
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocatePrefix(23));
+        assertThrows(IllegalArgumentException.class, () -> new SubnetAllocator(new Subnet("10.0.0.0/7")));
+    }
+
+    /**
+     * Tests random allocations from many threads against overlaps and leaks.
+     */
+    @Test
+    void concurrentTests() {
+        SubnetAllocator allocator = new SubnetAllocator(new Subnet("100.64.0.0/10"));
+        ConcurrentLinkedQueue<Subnet> leases = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            Random random = new Random(t);
+            List<Subnet> own = new ArrayList<>();
+            for (int i = 0; i < 20000; i++) {
+                if (!own.isEmpty() && random.nextInt(3) == 0) {
+                    allocator.release(own.remove(random.nextInt(own.size())));
+                } else {
+                    own.add(allocator.allocatePrefix(26 + random.nextInt(7)));
+                }
+            }
+            leases.addAll(own);
+        });
+        List<Subnet> sorted = new ArrayList<>(leases);
+        Collections.sort(sorted, Subnet.NETWORK_PREFIX_ORDER);
+        long used = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            Subnet s = sorted.get(i);
+            used += 1L << (32 - s.getPrefixLength());
+            if (i > 0) {
+                Subnet prev = sorted.get(i - 1);
+                assertTrue(Integer.compareUnsigned(prev.getBroadcastAddressAsInt(), s.getNetAddressAsInt()) < 0);
+            }
+        }
+        assertEquals(allocator.getFreeAddresses(), (1L << 22) - used);
+        leases.forEach(allocator::release);
+        assertEquals(allocator.allocatePrefix(10), new Subnet("100.64.0.0/10"));
+    }
+}
@@ -0,0 +1,163 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetLookupServer class.
+ */
+public class TestSubnetLookupServer {
+    /**
+     * The served subnets.
+     */
+    private static final List<Subnet> SUBNETS = List.of(new Subnet("10.0.0.0/8"), new Subnet("10.1.0.0/16"),
+            new Subnet("192.168.1.0/24"), new Subnet("192.168.1.77/32"));
+
+    /**
+     * Connects to a server.
+     *
+     * @param address The address of the server.
+     * @return The connection.
+     * @throws IOException If the connection fails.
+     */
+    private static SocketChannel connect(SocketAddress address) throws IOException {
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        channel.connect(address);
+        return channel;
+    }
+
+    /**
+     * Encodes a request frame.
+     *
+     * @param op  The op code.
+     * @param ips The numerical representations of the IP addresses.
+     * @return The frame, ready for writing.
+     */
+    private static ByteBuffer request(byte op, int... ips) {
+        ByteBuffer frame = ByteBuffer.allocate(5 + 4 * ips.length);
+        frame.put(op).putInt(ips.length);
+        for (int ip : ips) {
+            frame.putInt(ip);
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Reads a number of bytes.
+     *
+     * @param channel The connection.
+     * @param n       The number of bytes.
+     * @return The bytes, ready for reading.
+     * @throws IOException If the connection fails or ends early.
+     */
+    private static ByteBuffer read(SocketChannel channel, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(n);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        return buf.flip();
+    }
+
+    /**
+     * Tests pipelined membership and lookup frames over loopback TCP and a Unix domain socket,
+     * replacing the subnets and rejecting invalid frames.
+     *
+     * @param dir A temporary directory for the socket file.
+     * @throws IOException If the server or a connection fails.
+     */
+    @Test
+    void protocolTests(@TempDir Path dir) throws IOException {
+        int a = new IpAddress("10.1.2.3").getAsInt();
+        int b = new IpAddress("192.168.1.77").getAsInt();
+        int c = new IpAddress("11.0.0.1").getAsInt();
+        SocketAddress unix = UnixDomainSocketAddress.of(dir.resolve("lookup.sock"));
+        try (SubnetLookupServer tcpServer = SubnetLookupServer.start(SUBNETS);
+             SubnetLookupServer unixServer = SubnetLookupServer.start(unix, SUBNETS)) {
+            for (SocketAddress address : List.of(tcpServer.getLocalAddress(), unixServer.getLocalAddress())) {
+                try (SocketChannel channel = connect(address)) {
+                    ByteBuffer frames = ByteBuffer.allocate(100);
+                    frames.put(request(SubnetLookupServer.OP_CONTAINS, a, b, c, a, a, a, a, a, c, b));
+                    frames.put(request(SubnetLookupServer.OP_LOOKUP, a, b, c));
+                    frames.put(request(SubnetLookupServer.OP_CONTAINS));
+                    channel.write(frames.flip());
+                    ByteBuffer contains = read(channel, 5 + 2);
+                    assertEquals(contains.get(), SubnetLookupServer.OP_CONTAINS);
+                    assertEquals(contains.getInt(), 10);
+                    assertEquals(contains.get() & 0xFF, 0b11111011);
+                    assertEquals(contains.get() & 0xFF, 0b10);
+                    ByteBuffer lookup = read(channel, 5 + 15);
+                    assertEquals(lookup.get(), SubnetLookupServer.OP_LOOKUP);
+                    assertEquals(lookup.getInt(), 3);
+                    assertEquals(Subnet.pack(lookup.getInt(), lookup.get()), new Subnet("10.1.0.0/16").toPackedLong());
+                    assertEquals(Subnet.pack(lookup.getInt(), lookup.get()), new Subnet("192.168.1.77/32").toPackedLong());
+                    assertEquals(lookup.getInt(), 0);
+                    assertEquals(lookup.get() & 0xFF, SubnetLookupServer.NO_MATCH);
+                    ByteBuffer empty = read(channel, 5);
+                    assertEquals(empty.get(), SubnetLookupServer.OP_CONTAINS);
+                    assertEquals(empty.getInt(), 0);
+                }
+            }
+            tcpServer.setSubnets(List.of(new Subnet("11.0.0.0/8")));
+            try (SocketChannel channel = connect(tcpServer.getLocalAddress())) {
+                channel.write(request(SubnetLookupServer.OP_CONTAINS, a, c));
+                assertEquals(read(channel, 6).get(5), (byte) 0b10);
+                channel.write(request((byte) 9, a));
+                assertThrows(IOException.class, () -> read(channel, 1));
+            }
+        }
+    }
+
+    /**
+     * Tests many concurrent clients sending large batches split over several reads.
+     *
+     * @throws IOException If the server fails.
+     */
+    @Test
+    void concurrentClientTests() throws IOException {
+        try (SubnetLookupServer server = SubnetLookupServer.start(SUBNETS)) {
+            SocketAddress address = server.getLocalAddress();
+            IntStream.range(0, 64).parallel().forEach(t -> {
+                Random random = new Random(t);
+                int[] ips = new int[5000 + t];
+                for (int i = 0; i < ips.length; i++) {
+                    ips[i] = random.nextBoolean() ? 0x0A000000 | random.nextInt(1 << 24) : random.nextInt();
+                }
+                try (SocketChannel channel = connect(address)) {
+                    ByteBuffer frame = request(SubnetLookupServer.OP_LOOKUP, ips);
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                    ByteBuffer response = read(channel, 5 + 5 * ips.length);
+                    response.position(5);
+                    for (int ip : ips) {
+                        int network = response.getInt();
+                        int prefixLength = response.get() & 0xFF;
+                        Subnet expected = SUBNETS.stream().filter(s -> s.isInNetwork(ip))
+                                .max((x, y) -> Integer.compare(x.getPrefixLength(), y.getPrefixLength())).orElse(null);
+                        if (expected == null) {
+                            assertEquals(prefixLength, SubnetLookupServer.NO_MATCH);
+                        } else {
+                            assertEquals(Subnet.pack(network, prefixLength), expected.toPackedLong());
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+    }
+}
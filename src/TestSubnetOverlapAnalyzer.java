@@ -0,0 +1,174 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetOverlapAnalyzer class.
+ */
+public class TestSubnetOverlapAnalyzer {
+    /**
+     * Collects the results of an analysis as strings.
+     */
+    private static class Collector implements SubnetOverlapAnalyzer.Listener {
+        /**
+         * The reported duplicates.
+         */
+        final Set<String> duplicates = Collections.synchronizedSet(new TreeSet<>());
+        /**
+         * The reported containments.
+         */
+        final Set<String> containments = Collections.synchronizedSet(new TreeSet<>());
+        /**
+         * The reported gaps.
+         */
+        final Set<String> gaps = Collections.synchronizedSet(new TreeSet<>());
+
+        @Override
+        public void duplicate(long packed, int index, int duplicateIndex) {
+            duplicates.add(Subnet.fromPackedLong(packed).toCidrString() + " " + index + " " + duplicateIndex);
+        }
+
+        @Override
+        public void containment(long parent, int parentIndex, long child, int childIndex) {
+            containments.add(parentIndex + ">" + childIndex);
+        }
+
+        @Override
+        public void gap(int first, int last) {
+            gaps.add(IpAddress.toString(first) + "-" + IpAddress.toString(last));
+        }
+    }
+
+    /**
+     * Tests a small inventory with duplicates, nesting and gaps.
+     */
+    @Test
+    void smallInventoryTests() {
+        List<Subnet> subnets = List.of(
+                new Subnet("10.0.0.0/8"),
+                new Subnet("10.1.0.0/16"),
+                new Subnet("10.1.2.0/24"),
+                new Subnet("10.1.0.0/16"),
+                new Subnet("12.0.0.0/8"),
+                new Subnet("13.0.0.0/8"),
+                new Subnet("200.0.0.0/24"));
+        Collector collector = new Collector();
+        SubnetOverlapAnalyzer.analyze(subnets, collector, false);
+        assertEquals(collector.duplicates, Set.of("10.1.0.0/16 1 3"));
+        assertEquals(collector.containments, Set.of("0>1", "0>2", "1>2"));
+        assertEquals(collector.gaps, Set.of("11.0.0.0-11.255.255.255", "14.0.0.0-199.255.255.255"));
+        Collector empty = new Collector();
+        SubnetOverlapAnalyzer.analyze(List.of(), empty, true);
+        assertTrue(empty.duplicates.isEmpty() && empty.containments.isEmpty() && empty.gaps.isEmpty());
+    }
+
+    /**
+     * Compares random inventories against lookups of every enclosing subnet and a bitmap of covered /24 blocks,
+     * sequentially and in parallel.
+     */
+    @Test
+    void randomInventoryTests() {
+        Random random = new Random(20);
+        List<Subnet> subnets = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            int prefixLength = 14 + random.nextInt(11);
+            int address = (random.nextInt(64) << 24) | random.nextInt(1 << 24);
+            subnets.add(new Subnet(address & Subnet.maskOf(prefixLength), prefixLength));
+        }
+        Collector sequential = new Collector();
+        SubnetOverlapAnalyzer.analyze(subnets, sequential, false);
+        Collector parallel = new Collector();
+        SubnetOverlapAnalyzer.analyze(subnets, parallel, true);
+        assertEquals(parallel.duplicates, sequential.duplicates);
+        assertEquals(parallel.containments, sequential.containments);
+        assertEquals(parallel.gaps, sequential.gaps);
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < subnets.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> {
+            int c = Subnet.NETWORK_PREFIX_ORDER.compare(subnets.get(a), subnets.get(b));
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        Map<Subnet, Integer> firstIndexes = new HashMap<>();
+        int duplicates = 0;
+        int containments = 0;
+        for (int index : order) {
+            Subnet subnet = subnets.get(index);
+            if (firstIndexes.putIfAbsent(subnet, index) != null) {
+                duplicates++;
+                continue;
+            }
+            for (int p = 0; p < subnet.getPrefixLength(); p++) {
+                Integer parent = firstIndexes.get(new Subnet(subnet.getNetAddressAsInt() & Subnet.maskOf(p), p));
+                if (parent != null) {
+                    containments++;
+                    assertTrue(sequential.containments.contains(parent + ">" + index));
+                }
+            }
+        }
+        assertEquals(sequential.duplicates.size(), duplicates);
+        assertEquals(sequential.containments.size(), containments);
+
+        boolean[] covered = new boolean[64 << 16];
+        for (Subnet subnet : subnets) {
+            int first = subnet.getNetAddressAsInt() >>> 8;
+            for (int block = 0; block < 1 << (24 - subnet.getPrefixLength()); block++) {
+                covered[first + block] = true;
+            }
+        }
+        int gapBlocks = 0;
+        int firstCovered = -1;
+        int lastCovered = -1;
+        for (int block = 0; block < covered.length; block++) {
+            if (covered[block]) {
+                firstCovered = firstCovered < 0 ? block : firstCovered;
+                lastCovered = block;
+            }
+        }
+        for (int block = firstCovered; block <= lastCovered; block++) {
+            gapBlocks += covered[block] ? 0 : 1;
+        }
+        long reported = 0;
+        for (String gap : sequential.gaps) {
+            String[] bounds = gap.split("-");
+            reported += (new IpAddress(bounds[1]).getAsInt() & 0xFFFFFFFFL) - (new IpAddress(bounds[0]).getAsInt() & 0xFFFFFFFFL) + 1;
+        }
+        assertEquals(reported, (long) gapBlocks << 8);
+    }
+
+    /**
+     * Tests an inventory enclosed by one supernet, where the only independent part is the whole inventory,
+     * followed by blocks which can be swept in parallel.
+     */
+    @Test
+    void enclosingSupernetTests() {
+        List<Subnet> subnets = new ArrayList<>();
+        subnets.add(new Subnet("10.0.0.0/8"));
+        for (int i = 0; i < 100000; i++) {
+            subnets.add(new Subnet(0x0A000000 + 7 * i, 32));
+        }
+        for (int i = 0; i < 100000; i++) {
+            subnets.add(new Subnet(0x20000000 + 512 * i, 24));
+        }
+        Collector sequential = new Collector();
+        SubnetOverlapAnalyzer.analyze(subnets, sequential, false);
+        Collector parallel = new Collector();
+        SubnetOverlapAnalyzer.analyze(subnets, parallel, true);
+        assertEquals(sequential.containments.size(), 100000);
+        assertEquals(sequential.gaps.size(), 100000);
+        assertEquals(parallel.containments, sequential.containments);
+        assertEquals(parallel.gaps, sequential.gaps);
+        assertTrue(parallel.duplicates.isEmpty());
+    }
+}
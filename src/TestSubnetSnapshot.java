@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SubnetSnapshot class.
+ */
+public class TestSubnetSnapshot {
+    /**
+     * Tests writing and reading a snapshot.
+     *
+     * @param dir A temporary directory.
+     * @throws IOException if the file cannot be written or read.
+     */
+    @Test
+    void roundTripTests(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("subnets.bin");
+        SubnetSnapshot.write(file, List.of(new Subnet("192.168.1.0/24"), new Subnet("10.0.0.0/8"),
+                new Subnet("10.1.2.3/16"), new Subnet("10.0.0.0/8"), new Subnet("0.0.0.0/0")));
+        assertEquals(Files.size(file), 16 + 4 * 5);
+        SubnetSnapshot snapshot = SubnetSnapshot.open(file);
+        assertEquals(snapshot.size(), 4);
+        assertEquals(snapshot.get(0), new Subnet("0.0.0.0/0"));
+        assertEquals(snapshot.get(1), new Subnet("10.0.0.0/8"));
+        assertEquals(snapshot.getNetAddressAsInt(2), 0x0A010000);
+        assertEquals(snapshot.getPrefixLength(2), 16);
+        assertEquals(snapshot.get(3).toCidrString(), "192.168.1.0/24");
+        assertEquals(snapshot.indexOf(new Subnet("10.1.0.0/16")), 2);
+        assertFalse(snapshot.contains(new Subnet("10.1.0.0/17")));
+        assertArrayEquals(snapshot.toPackedArray(), new long[]{
+                Subnet.pack(0, 0), Subnet.pack(0x0A000000, 8), Subnet.pack(0x0A010000, 16), Subnet.pack(0xC0A80100, 24)});
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(4));
+
+        SubnetSnapshot.writePacked(file, snapshot.toPackedArray());
+        assertEquals(snapshot.get(3).toCidrString(), "192.168.1.0/24");
+        assertEquals(SubnetSnapshot.open(file).size(), 4);
+        try (var files = Files.list(dir)) {
+            assertEquals(files.count(), 1L);
+        }
+    }
+
+    /**
+     * Tests that damaged files are rejected.
+     *
+     * @param dir A temporary directory.
+     * @throws IOException if the file cannot be written or read.
+     */
+    @Test
+    void corruptFileTests(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("subnets.bin");
+        SubnetSnapshot.write(file, List.of(new Subnet("10.0.0.0/8"), new Subnet("172.16.0.0/12")));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> SubnetSnapshot.open(file));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> SubnetSnapshot.open(file));
+
+        assertThrows(IllegalArgumentException.class, () -> SubnetSnapshot.writePacked(file, new long[]{Subnet.pack(0, 33)}));
+        assertThrows(IllegalArgumentException.class, () -> SubnetSnapshot.writePacked(file, new long[]{Subnet.pack(0x0A000001, 8)}));
+        assertThrows(IllegalArgumentException.class, () -> SubnetSnapshot.writePacked(file, new long[]{-1}));
+        SubnetSnapshot.write(file, List.of(new Subnet("10.0.0.0/8"), new Subnet("172.16.0.0/12")));
+        bytes = Files.readAllBytes(file);
+        bytes[16 + 8 + 1] = 33;
+        writeWithChecksum(file, bytes);
+        assertThrows(IOException.class, () -> SubnetSnapshot.open(file));
+        bytes[16 + 8 + 1] = 8;
+        ByteBuffer.wrap(bytes).putInt(16 + 4, 0x0A000000);
+        writeWithChecksum(file, bytes);
+        assertThrows(IOException.class, () -> SubnetSnapshot.open(file));
+        bytes[16 + 8 + 1] = 12;
+        ByteBuffer.wrap(bytes).putInt(16 + 4, 0xAC100001);
+        writeWithChecksum(file, bytes);
+        assertThrows(IOException.class, () -> SubnetSnapshot.open(file));
+    }
+
+    /**
+     * Writes a snapshot file after fixing the checksum in its header.
+     *
+     * @param file  The file.
+     * @param bytes The snapshot in the file format.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writeWithChecksum(Path file, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 16, bytes.length - 16);
+        ByteBuffer.wrap(bytes).putInt(12, (int) crc.getValue());
+        Files.write(file, bytes);
+    }
+}